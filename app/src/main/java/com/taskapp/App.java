@@ -1,11 +1,81 @@
 package com.taskapp;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import com.taskapp.server.TaskServer;
+import com.taskapp.ui.BatchRunner;
 import com.taskapp.ui.TaskUI;
 
 public class App {
+    /** サーバーとして起動する場合の既定のポート番号 */
+    private static final int DEFAULT_PORT = 5050;
+
+    private static final String USAGE = "使い方：--batch スクリプトファイル | --server [ポート番号(0～65535)]";
 
+    /**
+     * アプリケーションを起動します。
+     * 引数に --batch スクリプトファイル を指定した場合は、スクリプトのコマンドをまとめて実行します。
+     * スクリプトファイルに - を指定した場合は標準入力から読み込みます。
+     * 引数に --server [ポート番号] を指定した場合は、ローカルのクライアントからコマンドを受け付けるサーバーとして起動します。
+     *
+     * @param args 起動引数
+     */
     public static void main(String[] args) {
+        if (args.length >= 2 && args[0].equals("--batch")) {
+            System.exit(runBatch(args[1]));
+        }
+
+        if (args.length >= 1 && args[0].equals("--server")) {
+            int port = args.length >= 2 ? parsePort(args[1]) : DEFAULT_PORT;
+            if (port < 0) {
+                System.out.println("ポート番号は0～65535の半角の数字で入力してください");
+                System.out.println(USAGE);
+                System.exit(1);
+            }
+            try {
+                TaskServer.start(port);
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+            return;
+        }
+
         TaskUI ui = new TaskUI();
         ui.displayMenu();
     }
+
+    /**
+     * ポート番号の引数を数値に変換します。
+     * 画面の入力と同じく、半角の数字だけを受け付けます。
+     *
+     * @param text ポート番号の引数
+     * @return ポート番号（数字でない、または範囲外の場合は-1）
+     */
+    static int parsePort(String text) {
+        if (text.isEmpty() || text.length() > 5 || !text.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            return -1;
+        }
+        int port = Integer.parseInt(text);
+        return port <= 65535 ? port : -1;
+    }
+
+    private static int runBatch(String scriptPath) {
+        try (BufferedReader script = scriptPath.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(scriptPath), StandardCharsets.UTF_8)) {
+
+            int errors = new BatchRunner().run(script, System.out);
+            return errors == 0 ? 0 : 1;
+
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 1;
+        }
+    }
 }
@@ -0,0 +1,107 @@
+package com.taskapp.dataaccess;
+
+import java.util.Arrays;
+
+/**
+ * コードが含まれているかを、少ないメモリで判定するブルームフィルターです。
+ *
+ * <p>
+ * 含まれていないと判定したコードは確実に含まれていないため、ファイルや一覧を調べずに済みます。
+ * 含まれていると判定したコードは、およそ1%の確率で誤りのため、実際に調べて確かめてください。
+ * 想定した件数より多く加えると誤りが増えるため、{@link #isFull()}になったら作り直してください。
+ * </p>
+ */
+final class CodeBloomFilter {
+    /** 1件あたりのビット数（ハッシュの数と合わせて、誤判定の確率がおよそ1%になる） */
+    private static final int BITS_PER_CODE = 10;
+
+    private static final int HASHES = 7;
+
+    private final long[] bits;
+
+    private final long bitCount;
+
+    /** 想定している件数 */
+    private final int capacity;
+
+    private int size;
+
+    /**
+     * @param capacity 加える予定の件数
+     */
+    CodeBloomFilter(int capacity) {
+        this.capacity = Math.max(capacity, 64);
+        this.bits = new long[(int) (((long) this.capacity * BITS_PER_CODE + 63) / 64)];
+        this.bitCount = (long) bits.length * 64;
+    }
+
+    private CodeBloomFilter(CodeBloomFilter source) {
+        this.capacity = source.capacity;
+        this.bits = Arrays.copyOf(source.bits, source.bits.length);
+        this.bitCount = source.bitCount;
+        this.size = source.size;
+    }
+
+    /**
+     * コードを加えます。
+     *
+     * @param code 加えるコード
+     */
+    void add(int code) {
+        long hash = mix(code);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASHES; i++) {
+            long index = Math.floorMod(h1 + (long) i * h2, bitCount);
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+        size++;
+    }
+
+    /**
+     * コードが含まれている可能性があるかを判定します。
+     *
+     * @param code 判定するコード
+     * @return 含まれている可能性があればtrue（falseの場合は確実に含まれていない）
+     */
+    boolean mightContain(int code) {
+        long hash = mix(code);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < HASHES; i++) {
+            long index = Math.floorMod(h1 + (long) i * h2, bitCount);
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 想定した件数まで加えたかを返します。
+     *
+     * @return 想定した件数以上を加えていればtrue
+     */
+    boolean isFull() {
+        return size >= capacity;
+    }
+
+    /**
+     * 同じ内容のフィルターを作ります。
+     *
+     * @return コピーしたフィルター
+     */
+    CodeBloomFilter copy() {
+        return new CodeBloomFilter(this);
+    }
+
+    /**
+     * コードの全てのビットが偏りなく変わるように混ぜます（SplitMix64）。
+     */
+    private static long mix(int code) {
+        long z = code * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,68 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.DoubleSupplier;
+
+/**
+ * 削除済みの行がCSVに占める割合が閾値を超えたら、バックグラウンドでCSVを書き直します。
+ * 削除のたびにファイル全体を書き直すのを避けるために使います。
+ */
+class CsvCompactor {
+    /** 圧縮を始める削除済み行の割合 */
+    static final double THRESHOLD = Double.parseDouble(System.getProperty("taskapp.compaction.threshold", "0.2"));
+
+    /** 全てのファイルの圧縮を順番に実行するスレッド */
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "csv-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final DoubleSupplier garbageRatio;
+
+    private final Compaction compaction;
+
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    /**
+     * @param garbageRatio 削除済みの行の割合を返す処理
+     * @param compaction   削除済みの行を取り除いて書き直す処理
+     */
+    CsvCompactor(DoubleSupplier garbageRatio, Compaction compaction) {
+        this.garbageRatio = garbageRatio;
+        this.compaction = compaction;
+    }
+
+    /**
+     * 削除済みの行が閾値を超えていれば、バックグラウンドで圧縮します。
+     * 既に圧縮の予定がある場合は何もしません。
+     */
+    void request() {
+        if (!pending.compareAndSet(false, true)) {
+            return;
+        }
+
+        EXECUTOR.execute(() -> {
+            pending.set(false);
+            try {
+                if (garbageRatio.getAsDouble() >= THRESHOLD) {
+                    compaction.run();
+                }
+            } catch (IOException | UncheckedIOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * 削除済みの行を取り除いてCSVを書き直す処理です。
+     */
+    @FunctionalInterface
+    interface Compaction {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,175 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 複数のプロセス・スレッドから同じCSVファイルを読み書きするためのロックです。
+ *
+ * <p>
+ * 読み込みは共有ロック、書き込み（追記・書き直し）は排他ロックで行います。
+ * 読み込み同士は互いに待たず、書き込みは全ての読み込み・書き込みと排他になります。
+ * プロセス間はCSVの隣に置いたロックファイルのFileLockで、プロセス内はReadWriteLockで調整します。
+ * ロックファイルを使うのは、CSVを一時ファイルからの置き換えで書き直してもロックが外れないようにするためです。
+ * </p>
+ *
+ * <p>
+ * 同じスレッドで排他ロック中に共有ロックを取ることはできますが、共有ロック中に排他ロックを取ることはできません。
+ * </p>
+ */
+public final class CsvFileLock {
+    /** 同じJVM内ではファイルごとに1つのロックを共有する */
+    private static final Map<Path, CsvFileLock> LOCKS = new ConcurrentHashMap<>();
+
+    private final Path lockPath;
+
+    /** プロセス内のスレッド間の調整 */
+    private final ReentrantReadWriteLock threads = new ReentrantReadWriteLock(true);
+
+    /** readers・sharedLockを操作するためのロック */
+    private final ReentrantLock mutex = new ReentrantLock();
+
+    private FileChannel channel;
+
+    /** このプロセスの読み込み全体で1つだけ取る、プロセス間の共有ロック */
+    private FileLock sharedLock;
+
+    private int readers;
+
+    private final LockStatistics statistics;
+
+    private CsvFileLock(Path dataPath) {
+        this.lockPath = dataPath.resolveSibling(dataPath.getFileName() + ".lock");
+        this.statistics = new LockStatistics(dataPath.toString());
+    }
+
+    /**
+     * CSVファイルのロックを取得します。
+     *
+     * @param filePath CSVファイル
+     * @return ファイルのロック
+     */
+    static CsvFileLock forFile(String filePath) {
+        Path path = Paths.get(filePath).toAbsolutePath().normalize();
+        return LOCKS.computeIfAbsent(path, CsvFileLock::new);
+    }
+
+    /**
+     * このJVMで使われた全てのロックの待ち時間の統計を返します。
+     *
+     * @return ファイルごとのロックの統計
+     */
+    public static List<LockStatistics> statistics() {
+        List<LockStatistics> result = new ArrayList<>();
+        for (CsvFileLock lock : LOCKS.values()) {
+            result.add(lock.statistics);
+        }
+        return result;
+    }
+
+    /**
+     * 読み込み用の共有ロックを取ります。
+     *
+     * @return ロックを解放するためのハンドル
+     * @throws IOException ロックファイルを開けなかった場合
+     */
+    Handle shared() throws IOException {
+        long start = System.nanoTime();
+        threads.readLock().lock();
+
+        // 排他ロック中のスレッドは既にファイルをロックしている
+        if (threads.isWriteLockedByCurrentThread()) {
+            return () -> threads.readLock().unlock();
+        }
+
+        mutex.lock();
+        try {
+            if (readers == 0) {
+                sharedLock = channel().lock(0, Long.MAX_VALUE, true);
+            }
+            readers++;
+        } catch (IOException | RuntimeException e) {
+            threads.readLock().unlock();
+            throw e;
+        } finally {
+            mutex.unlock();
+        }
+        statistics.recordShared(System.nanoTime() - start);
+
+        return () -> {
+            mutex.lock();
+            try {
+                if (--readers == 0) {
+                    sharedLock.release();
+                    sharedLock = null;
+                }
+            } finally {
+                mutex.unlock();
+                threads.readLock().unlock();
+            }
+        };
+    }
+
+    /**
+     * 書き込み用の排他ロックを取ります。
+     *
+     * @return ロックを解放するためのハンドル
+     * @throws IOException ロックファイルを開けなかった場合
+     */
+    Handle exclusive() throws IOException {
+        long start = System.nanoTime();
+        threads.writeLock().lock();
+
+        // 同じスレッドで既に排他ロックを取っている
+        if (threads.getWriteHoldCount() > 1) {
+            return () -> threads.writeLock().unlock();
+        }
+
+        FileLock fileLock;
+        mutex.lock();
+        try {
+            fileLock = channel().lock();
+        } catch (IOException | RuntimeException e) {
+            threads.writeLock().unlock();
+            throw e;
+        } finally {
+            mutex.unlock();
+        }
+        statistics.recordExclusive(System.nanoTime() - start);
+
+        return () -> {
+            try {
+                fileLock.release();
+            } finally {
+                threads.writeLock().unlock();
+            }
+        };
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(lockPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        return channel;
+    }
+
+    /**
+     * 取得したロックを解放するためのハンドルです。
+     */
+    @FunctionalInterface
+    interface Handle extends AutoCloseable {
+        @Override
+        void close() throws IOException;
+    }
+}
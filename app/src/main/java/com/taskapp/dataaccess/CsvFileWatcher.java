@@ -0,0 +1,100 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * CSVファイルの変更を監視し、変更があったファイルに登録された処理を呼び出します。
+ * 他のプロセスや外部ツールによる書き込みを検知して、メモリ上のデータを先回りして読み込むために使います。
+ */
+public class CsvFileWatcher implements AutoCloseable {
+    private final WatchService watchService;
+
+    /** 監視しているディレクトリ */
+    private final Map<Path, WatchKey> directories = new ConcurrentHashMap<>();
+
+    /** ファイルごとの変更時の処理 */
+    private final Map<Path, List<Runnable>> listeners = new ConcurrentHashMap<>();
+
+    private final Thread thread;
+
+    public CsvFileWatcher() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        thread = Thread.ofVirtual().name("csv-file-watcher").start(this::watchLoop);
+    }
+
+    /**
+     * ファイルの変更時に呼び出す処理を登録します。
+     *
+     * @param filePath 監視するファイル
+     * @param onChange 変更時に呼び出す処理
+     * @throws IOException ディレクトリを監視できなかった場合
+     */
+    public void watch(String filePath, Runnable onChange) throws IOException {
+        Path file = Paths.get(filePath).toAbsolutePath().normalize();
+        Path directory = file.getParent();
+
+        if (!directories.containsKey(directory)) {
+            WatchKey key = directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+            directories.putIfAbsent(directory, key);
+        }
+        listeners.computeIfAbsent(file, f -> new CopyOnWriteArrayList<>()).add(onChange);
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = (Path) key.watchable();
+
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // 取りこぼした可能性があるので全て読み直す
+                        listeners.values().forEach(this::fire);
+                        continue;
+                    }
+                    Path file = directory.resolve((Path) event.context());
+                    List<Runnable> targets = listeners.get(file);
+                    if (targets != null) {
+                        fire(targets);
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // close()による終了
+        }
+    }
+
+    private void fire(List<Runnable> targets) {
+        for (Runnable target : targets) {
+            try {
+                target.run();
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 監視を終了します。
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+}
@@ -0,0 +1,96 @@
+package com.taskapp.dataaccess;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * CSVファイルをまとめて書き直すための処理です。
+ */
+final class CsvFiles {
+
+    private CsvFiles() {
+    }
+
+    /**
+     * 条件に合う行だけを残してCSVを書き直します。
+     * 一時ファイルに書き出してから置き換えるため、読み込み中のプロセスが書きかけの内容を読むことはありません。
+     * {@link Durability}の方法に従ってディスクに同期します。SYNCでは置き換える前に一時ファイルも同期します。
+     *
+     * @param path CSVファイル
+     * @param keep 残す行の条件（タイトル行は常に残す）
+     * @return 取り除いた行数
+     * @throws IOException 書き直せなかった場合
+     */
+    static int rewrite(Path path, Predicate<String> keep) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        int removed = 0;
+        int kept = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+                BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+
+            // タイトル行
+            String line = reader.readLine();
+            if (line != null) {
+                writer.write(line);
+            }
+
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (!keep.test(line)) {
+                    removed++;
+                    continue;
+                }
+                writer.newLine();
+                writer.write(line);
+                kept++;
+            }
+        }
+
+        Durability.replace(temp, path, kept);
+        return removed;
+    }
+
+    /**
+     * CSV全体を書き出します。
+     * 一時ファイルに書き出してから置き換えるため、読み込み中のプロセスが書きかけの内容を読むことはありません。
+     * {@link Durability}の方法に従ってディスクに同期します。SYNCでは置き換える前に一時ファイルも同期します。
+     *
+     * @param path   CSVファイル
+     * @param header タイトル行
+     * @param lines  タイトル行以降の行
+     * @throws IOException 書き出せなかった場合
+     */
+    static void writeAll(Path path, String header, List<String> lines) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            writer.write(header);
+            for (String line : lines) {
+                writer.newLine();
+                writer.write(line);
+            }
+        }
+
+        Durability.replace(temp, path, lines.size());
+    }
+
+    /**
+     * CSVの行の先頭の列を数値として返します。
+     *
+     * @param line CSVの1行
+     * @return 先頭の列の値
+     */
+    static int firstColumn(String line) {
+        int comma = line.indexOf(',');
+        return Integer.parseInt(comma < 0 ? line.strip() : line.substring(0, comma));
+    }
+}
@@ -0,0 +1,271 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import com.taskapp.model.CycleTimeReport;
+import com.taskapp.model.LogSummary;
+
+/**
+ * ログファイルを1回読みながら、タスクの着手・完了までの日数を集計します。
+ *
+ * <p>
+ * ログは{@link LogLineScanner}で1行ずつ読み、タスクごとに最初に登録・着手・完了した日だけを残します。
+ * そのため、必要なメモリはログの行数ではなくタスクの数に比例します。
+ * 大きなファイルは行の区切りで範囲に分けて並列に読み、前の範囲の日付を優先して合わせます。
+ * </p>
+ *
+ * <p>
+ * 2回目以降は、前回読んだ位置より後ろに追記された行だけを読みます。
+ * ファイルが書き直された場合と、削除済みのタスクが変わった場合は最初から読み直します。
+ * </p>
+ */
+class CycleTimeAnalyzer {
+    /** この大きさ（バイト）より小さければ並列にしない */
+    private static final long PARALLEL_THRESHOLD = 1024 * 1024;
+
+    /** 日付がまだ分からないことを表す値 */
+    private static final int UNSET = Integer.MIN_VALUE;
+
+    private final Path path;
+
+    /** これまでに読んだ内容（まだ読んでいない場合はnull） */
+    private Pass pass;
+
+    /** 前回読み終えた位置 */
+    private long offset;
+
+    private Object fileKey;
+
+    private IntSet deleted;
+
+    /**
+     * @param path ログファイル
+     */
+    CycleTimeAnalyzer(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * 前回から追記された行を読み、これまでの集計を返します。
+     * ログファイルへの書き込みと重ならないように、呼び出し側で読み込みのロックを取得してください。
+     *
+     * @param deleted   削除済みのタスクのコード
+     * @param summaries 保存期間を過ぎて削除されたログのまとめ
+     * @return 集計（呼び出し側で変更しても影響しないコピー）
+     * @throws IOException ログファイルを読み込めなかった場合
+     */
+    synchronized CycleTimeReport analyze(IntSet deleted, Collection<LogSummary> summaries) throws IOException {
+        FileStamp stamp = FileStamp.of(path);
+        if (stamp.equals(FileStamp.MISSING)) {
+            pass = null;
+            return new CycleTimeReport();
+        }
+
+        boolean rewritten = pass == null
+                || !deleted.equals(this.deleted)
+                || !Objects.equals(stamp.fileKey(), fileKey)
+                || stamp.size() < offset;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (rewritten) {
+                pass = scanAll(channel, size, deleted, summaries);
+            } else if (size > offset) {
+                scan(channel, offset, size, deleted, pass);
+            }
+            offset = size;
+        }
+        fileKey = stamp.fileKey();
+        this.deleted = deleted.copy();
+        return pass.report.copy();
+    }
+
+    /**
+     * ファイル全体を範囲に分けて並列に読みます。
+     */
+    private static Pass scanAll(FileChannel channel, long size, IntSet deleted, Collection<LogSummary> summaries)
+            throws IOException {
+        Pass result = new Pass(false);
+        for (LogSummary summary : summaries) {
+            result.seed(summary);
+        }
+
+        long[] bounds = LogLineScanner.split(channel, size,
+                size < PARALLEL_THRESHOLD ? 1 : Runtime.getRuntime().availableProcessors());
+        try {
+            List<Pass> chunks = IntStream.range(0, bounds.length - 1)
+                    .parallel()
+                    .mapToObj(i -> {
+                        Pass chunk = new Pass(false);
+                        try {
+                            scan(channel, bounds[i], bounds[i + 1], deleted, chunk);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        return chunk;
+                    })
+                    .toList();
+
+            // ファイルの先頭に近い範囲から順に合わせる
+            for (Pass chunk : chunks) {
+                result.merge(chunk);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        result.measureAll();
+        return result;
+    }
+
+    /**
+     * 削除済みのタスクを除いて、ファイルの指定した範囲の行を読みます。
+     */
+    private static void scan(FileChannel channel, long from, long to, IntSet deleted, Pass pass)
+            throws IOException {
+        LogLineScanner.scan(channel, from, to, (taskCode, userCode, status, day) -> {
+            if (!deleted.contains(taskCode)) {
+                pass.accept(taskCode, userCode, status, day);
+            }
+        });
+    }
+
+    /**
+     * 読み込んだ範囲の、タスクごとの最初の日付と集計です。
+     */
+    private static final class Pass {
+        private final Map<Integer, Timeline> timelines = new HashMap<>();
+
+        private final CycleTimeReport report = new CycleTimeReport();
+
+        /** 読みながら集計する場合はtrue（並列に読む範囲では、前の範囲と合わせるまで集計しない） */
+        private boolean measuring;
+
+        Pass(boolean measuring) {
+            this.measuring = measuring;
+        }
+
+        void accept(int taskCode, int userCode, int status, int day) {
+            Timeline timeline = timelines.computeIfAbsent(taskCode, code -> new Timeline());
+            switch (status) {
+                case 0:
+                    if (timeline.created == UNSET) {
+                        timeline.created = day;
+                    }
+                    break;
+                case 1:
+                    if (timeline.started == UNSET) {
+                        timeline.started = day;
+                        timeline.startUser = userCode;
+                    }
+                    break;
+                case 2:
+                    if (timeline.completed == UNSET) {
+                        timeline.completed = day;
+                        timeline.completeUser = userCode;
+                    }
+                    break;
+                default:
+                    return;
+            }
+            if (measuring) {
+                timeline.measure(report);
+            }
+        }
+
+        /**
+         * 削除されたログのまとめから、登録した日と、既に着手・完了しているかを設定します。
+         */
+        void seed(LogSummary summary) {
+            Timeline timeline = timelines.computeIfAbsent(summary.getTaskCode(), code -> new Timeline());
+            timeline.created = (int) summary.getFirstChangeDate().toEpochDay();
+            // 削除されたログで着手・完了した日は分からないため、集計しない
+            timeline.startMeasured = summary.getLastStatus() >= 1;
+            timeline.completeMeasured = summary.getLastStatus() == 2;
+        }
+
+        /**
+         * 後ろの範囲を合わせます。同じタスクの日付はこちらを優先します。
+         */
+        void merge(Pass later) {
+            later.timelines.forEach((code, timeline) -> {
+                Timeline current = timelines.putIfAbsent(code, timeline);
+                if (current != null) {
+                    current.merge(timeline);
+                }
+            });
+        }
+
+        /**
+         * まだ集計していない全てのタスクを集計し、以降は読みながら集計します。
+         */
+        void measureAll() {
+            for (Timeline timeline : timelines.values()) {
+                timeline.measure(report);
+            }
+            measuring = true;
+        }
+    }
+
+    /**
+     * 1つのタスクの、最初に登録・着手・完了した日（エポック日）です。
+     */
+    private static final class Timeline {
+        int created = UNSET;
+        int started = UNSET;
+        int completed = UNSET;
+        int startUser;
+        int completeUser;
+        boolean startMeasured;
+        boolean completeMeasured;
+
+        void merge(Timeline later) {
+            if (created == UNSET) {
+                created = later.created;
+            }
+            if (started == UNSET) {
+                started = later.started;
+                startUser = later.startUser;
+            }
+            if (completed == UNSET) {
+                completed = later.completed;
+                completeUser = later.completeUser;
+            }
+        }
+
+        /**
+         * 登録と着手・完了の日付が揃っていれば、1回だけ集計に加えます。
+         */
+        void measure(CycleTimeReport report) {
+            if (created == UNSET) {
+                return;
+            }
+            if (!startMeasured && started != UNSET) {
+                startMeasured = true;
+                report.addStart(started - created, startUser, week(started));
+            }
+            if (!completeMeasured && completed != UNSET) {
+                completeMeasured = true;
+                report.addComplete(completed - created, completeUser, week(completed));
+            }
+        }
+
+        /**
+         * 日付が含まれる週の月曜日を返します。
+         */
+        private static LocalDate week(int day) {
+            // 1970-01-01は木曜日
+            return LocalDate.ofEpochDay(day - Math.floorMod(day + 3, 7));
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+
+/**
+ * 書き込もうとしたタスクコードが、確認した後に他の操作で使われていたため、書き込みを取りやめたことを表します。
+ * 別のコードでやり直してください。
+ *
+ * @see UnitOfWork#expectNewCode(int)
+ */
+public class DuplicateTaskCodeException extends IOException {
+    public DuplicateTaskCodeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,253 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSVへの書き込みを、いつディスクに同期（fsync）するかを決めます。
+ *
+ * <p>
+ * 同期の方法はシステムプロパティ taskapp.durability で指定します。
+ * </p>
+ * <ul>
+ * <li>NONE：同期しない。書き込みはOSのキャッシュに任せる（既定）</li>
+ * <li>BATCH：taskapp.durability.batchMillis ミリ秒ごと、または taskapp.durability.batchRecords 行ごとに同期する</li>
+ * <li>SYNC：書き込みのたびに同期する</li>
+ * </ul>
+ *
+ * <p>
+ * NONEとBATCHでは、OSが停止した時に直前の書き込みが失われることがあります。
+ * プロセスが終了しただけであれば、どの方法でも書き込みは失われません。
+ * </p>
+ */
+public final class Durability {
+
+    /**
+     * ディスクに同期する方法です。
+     */
+    public enum Mode {
+        NONE, BATCH, SYNC
+    }
+
+    /** BATCHで同期するまでの最大の時間 */
+    static final long BATCH_MILLIS = Long.getLong("taskapp.durability.batchMillis", 100);
+
+    /** BATCHで同期するまでの最大の行数 */
+    static final int BATCH_RECORDS = Integer.getInteger("taskapp.durability.batchRecords", 100);
+
+    private static volatile Mode mode = Mode.valueOf(
+            System.getProperty("taskapp.durability", "NONE").toUpperCase(Locale.ROOT));
+
+    /** BATCHの同期を実行するスレッド */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "csv-fsync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** BATCHでまだ同期していないファイル */
+    private static final Map<Path, Pending> PENDING = new ConcurrentHashMap<>();
+
+    private static final FsyncStatistics STATISTICS = new FsyncStatistics();
+
+    private Durability() {
+    }
+
+    /**
+     * 現在の同期の方法を返します。
+     *
+     * @return 同期の方法
+     */
+    public static Mode mode() {
+        return mode;
+    }
+
+    /**
+     * 同期の方法を変更します。
+     * 負荷試験などで方法ごとの性能を比べるために使います。
+     *
+     * @param newMode 同期の方法
+     */
+    public static void setMode(Mode newMode) {
+        mode = newMode;
+    }
+
+    /**
+     * 同期にかかった時間の統計を返します。
+     *
+     * @return 同期の統計
+     */
+    public static FsyncStatistics statistics() {
+        return STATISTICS;
+    }
+
+    /**
+     * ファイルに書き込んだ後に呼び出し、同期の方法に従って同期します。
+     *
+     * @param path    書き込んだファイル
+     * @param records 書き込んだ行数
+     * @throws IOException 同期できなかった場合
+     */
+    static void written(Path path, int records) throws IOException {
+        switch (mode) {
+            case SYNC:
+                force(path, records);
+                break;
+            case BATCH:
+                defer(path, records);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 開いているファイルに書き込んだ後に呼び出し、同期の方法に従って同期します。
+     *
+     * @param channel 書き込んだファイルのチャネル
+     * @param path    書き込んだファイル
+     * @param records 書き込んだ行数
+     * @throws IOException 同期できなかった場合
+     */
+    static void written(FileChannel channel, Path path, int records) throws IOException {
+        switch (mode) {
+            case SYNC:
+                force(channel, records);
+                break;
+            case BATCH:
+                defer(path, records);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * SYNCの場合だけ同期します。
+     * 作業単位のジャーナルのように、書き込みの順番を保証するためだけに同期するファイルに使います。
+     *
+     * @param channel 書き込んだファイルのチャネル
+     * @throws IOException 同期できなかった場合
+     */
+    static void forceIfSync(FileChannel channel) throws IOException {
+        if (mode == Mode.SYNC) {
+            force(channel, 0);
+        }
+    }
+
+    /**
+     * 書き出し終えた一時ファイルでファイルを置き換え、同期の方法に従って同期します。
+     * SYNCでは置き換える前に一時ファイルの内容を同期し、置き換えた後にディレクトリを同期します。
+     * 内容を同期する前に置き換えると、OSが停止した時に置き換えたファイルが空になることがあるためです。
+     *
+     * @param temp    書き出し終えた一時ファイル
+     * @param path    置き換えるファイル
+     * @param records 書き出した行数
+     * @throws IOException 置き換え・同期できなかった場合
+     */
+    static void replace(Path temp, Path path, int records) throws IOException {
+        if (mode == Mode.SYNC) {
+            force(temp, records);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (mode == Mode.SYNC) {
+            forceDirectory(path);
+        } else if (mode == Mode.BATCH) {
+            defer(path, records);
+        }
+    }
+
+    /**
+     * SYNCの場合だけ、ファイルを置き換えたディレクトリを同期します。
+     * 同期しないと、OSが停止した時に置き換える前のファイルに戻ることがあります。
+     *
+     * @param path 置き換えたファイル
+     * @throws IOException 同期できなかった場合
+     */
+    static void forceDirectoryIfSync(Path path) throws IOException {
+        if (mode == Mode.SYNC) {
+            forceDirectory(path);
+        }
+    }
+
+    private static void forceDirectory(Path path) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path.toAbsolutePath().getParent(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            // ディレクトリを開けないOS（Windowsなど）では、置き換えとともに記録されるため同期しない
+            return;
+        }
+        try (channel) {
+            force(channel, 0);
+        }
+    }
+
+    private static void defer(Path path, int records) throws IOException {
+        Pending pending = PENDING.computeIfAbsent(path, key -> new Pending());
+        int synced;
+        synchronized (pending) {
+            pending.records += records;
+            if (pending.records < BATCH_RECORDS) {
+                if (!pending.scheduled) {
+                    pending.scheduled = true;
+                    SCHEDULER.schedule(() -> flush(path, pending), BATCH_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                return;
+            }
+            synced = pending.records;
+            pending.records = 0;
+        }
+        force(path, synced);
+    }
+
+    private static void flush(Path path, Pending pending) {
+        int synced;
+        synchronized (pending) {
+            pending.scheduled = false;
+            synced = pending.records;
+            pending.records = 0;
+        }
+        if (synced == 0) {
+            return;
+        }
+        try {
+            force(path, synced);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static void force(Path path, int records) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            force(channel, records);
+        } catch (NoSuchFileException e) {
+            // 同期する前に置き換えられたファイルは、置き換え後のファイルで同期される
+        }
+    }
+
+    private static void force(FileChannel channel, int records) throws IOException {
+        long start = System.nanoTime();
+        channel.force(false);
+        STATISTICS.record(System.nanoTime() - start, records);
+    }
+
+    /**
+     * BATCHでまだ同期していない行数です。
+     */
+    private static final class Pending {
+        private int records;
+        private boolean scheduled;
+    }
+}
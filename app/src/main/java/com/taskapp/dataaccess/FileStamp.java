@@ -0,0 +1,71 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ファイルの状態（サイズ・更新日時・ファイルキー）を表します。
+ * 前回読み込んだ時から変わっていないかを、ファイルを読まずに判定するために使います。
+ */
+final class FileStamp {
+    /** ファイルが存在しないことを表すスタンプ */
+    static final FileStamp MISSING = new FileStamp(-1, -1, null);
+
+    private final long size;
+    private final long lastModifiedNanos;
+    private final Object fileKey;
+
+    private FileStamp(long size, long lastModifiedNanos, Object fileKey) {
+        this.size = size;
+        this.lastModifiedNanos = lastModifiedNanos;
+        this.fileKey = fileKey;
+    }
+
+    /**
+     * ファイルの現在のスタンプを取得します。
+     *
+     * @param path 対象のファイル
+     * @return ファイルのスタンプ
+     * @throws IOException 属性を読み込めなかった場合
+     */
+    static FileStamp of(Path path) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new FileStamp(attributes.size(),
+                    attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                    attributes.fileKey());
+        } catch (NoSuchFileException e) {
+            return MISSING;
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    Object fileKey() {
+        return fileKey;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(size, lastModifiedNanos, fileKey);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof FileStamp))
+            return false;
+        FileStamp other = (FileStamp) obj;
+        return size == other.size
+                && lastModifiedNanos == other.lastModifiedNanos
+                && Objects.equals(fileKey, other.fileKey);
+    }
+}
@@ -0,0 +1,51 @@
+package com.taskapp.dataaccess;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CSVをディスクに同期（fsync）するのにかかった時間の統計です。
+ * 同期の方法ごとの書き込み性能を比べるために使います。
+ */
+public class FsyncStatistics {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder records = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    FsyncStatistics() {
+    }
+
+    void record(long nanos, int syncedRecords) {
+        count.increment();
+        totalNanos.add(nanos);
+        records.add(syncedRecords);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getRecords() {
+        return records.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        long syncs = getCount();
+        return String.format("同期：%d回, 平均%.3fms, 最大%.3fms, 1回あたり%.1f行",
+                syncs,
+                syncs == 0 ? 0 : getTotalNanos() / 1e6 / syncs,
+                getMaxNanos() / 1e6,
+                syncs == 0 ? 0 : (double) getRecords() / syncs);
+    }
+}
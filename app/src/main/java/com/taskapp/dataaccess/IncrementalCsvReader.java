@@ -0,0 +1,301 @@
+package com.taskapp.dataaccess;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * CSVファイルを読み込んだ内容をメモリに保持し、変更があった分だけを読み直します。
+ *
+ * <p>
+ * ファイルのスタンプが変わっていなければファイルは読みません。
+ * 前回読んだ位置までの内容が変わっていなければ、追記された末尾だけを解析します。
+ * 途中が書き換えられていた場合は全体を読み直します。
+ * このプロセスが追記しただけの場合は、前回読んだ位置までの照合を省きます。
+ * </p>
+ *
+ * @param <T> 1行から作られるデータの型
+ */
+class IncrementalCsvReader<T> {
+    /** 追記のみのファイルで、前回位置の直前を照合するバイト数 */
+    private static final int FINGERPRINT_LENGTH = 64;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+
+    private final Function<String, T> parser;
+
+    /** trueの場合、前回位置までの内容全体をチェックサムで照合する */
+    private final boolean verifyWholePrefix;
+
+    /** 改行で終わっている確定済みの行 */
+    private final List<T> rows = new ArrayList<>();
+
+    /** 確定済みの行の末尾のバイト位置 */
+    private long offset;
+
+    /** 確定済みの内容のチェックサム */
+    private CRC32 prefixChecksum = new CRC32();
+
+    /** 確定済みの内容の末尾のバイト列 */
+    private byte[] fingerprint = new byte[0];
+
+    /** 改行で終わっていない最終行 */
+    private T tail;
+
+    private FileStamp stamp;
+
+    /** このプロセスが追記した後のスタンプ（前回読んだ位置までは変わっていないことが分かっている） */
+    private FileStamp appendedStamp;
+
+    /** 全体を読み直した回数 */
+    private long generation;
+
+    /**
+     * @param path              読み込むファイル
+     * @param parser            1行をデータに変換する処理
+     * @param verifyWholePrefix 書き換えられることがあるファイルの場合はtrue
+     */
+    IncrementalCsvReader(Path path, Function<String, T> parser, boolean verifyWholePrefix) {
+        this.path = path;
+        this.parser = parser;
+        this.verifyWholePrefix = verifyWholePrefix;
+    }
+
+    /**
+     * 最新の内容を全て返します。
+     *
+     * @return タイトル行を除いた全ての行のデータ
+     * @throws IOException ファイルを読み込めなかった場合
+     */
+    synchronized List<T> readAll() throws IOException {
+        refresh();
+        List<T> result = new ArrayList<>(rows.size() + 1);
+        result.addAll(rows);
+        if (tail != null) {
+            result.add(tail);
+        }
+        return result;
+    }
+
+    /**
+     * ファイルに変更があれば、変更された分を読み込みます。
+     *
+     * @throws IOException ファイルを読み込めなかった場合
+     */
+    synchronized void refresh() throws IOException {
+        FileStamp current = FileStamp.of(path);
+        if (current.equals(stamp)) {
+            return;
+        }
+        if (current == FileStamp.MISSING) {
+            reset();
+            stamp = current;
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (!current.equals(appendedStamp) && !continuesFrom(channel)) {
+                reset();
+            }
+            readFrom(channel);
+        }
+        stamp = current;
+        appendedStamp = null;
+    }
+
+    /**
+     * このプロセスがファイルの末尾に追記したことを記録します。
+     * 次に読み込む時にファイルがこのスタンプのままであれば、前回読んだ位置までの照合を省いて追記された分だけを読みます。
+     * 追記する前に他のプロセスが書き換えていた可能性がある場合は記録せず、通常どおり照合します。
+     * 排他ロックを取った状態で呼び出してください。
+     *
+     * @param before 追記する前のスタンプ
+     * @param after  追記した後のスタンプ
+     */
+    synchronized void appended(FileStamp before, FileStamp after) {
+        boolean unchanged = before.equals(stamp) || before.equals(appendedStamp);
+        appendedStamp = unchanged ? after : null;
+    }
+
+    /**
+     * 保持している内容を破棄し、次回の読み込みで全体を読み直すようにします。
+     */
+    synchronized void invalidate() {
+        stamp = null;
+        appendedStamp = null;
+        reset();
+    }
+
+    /**
+     * 全体を読み直した回数を返します。
+     * この値が変わっていなければ、以前の行はそのままで後ろに追加されただけです。
+     *
+     * @return 全体を読み直した回数
+     */
+    synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * 指定した位置以降の確定済みの行と、改行で終わっていない最終行を返します。
+     * ファイルの読み込みは行わないため、先に{@link #refresh()}を呼び出してください。
+     *
+     * @param index 取得を始める行の位置
+     * @return 指定した位置以降の行
+     */
+    synchronized List<T> rowsFrom(int index) {
+        List<T> result = new ArrayList<>(rows.subList(Math.min(index, rows.size()), rows.size()));
+        if (tail != null) {
+            result.add(tail);
+        }
+        return result;
+    }
+
+    /**
+     * 改行で終わっていない最終行も含めた行数を返します。
+     * ファイルの読み込みは行わないため、先に{@link #refresh()}を呼び出してください。
+     *
+     * @return 行数
+     */
+    synchronized int size() {
+        return rows.size() + (tail == null ? 0 : 1);
+    }
+
+    /**
+     * 指定した位置の行を返します。
+     * ファイルの読み込みは行わないため、先に{@link #refresh()}を呼び出してください。
+     *
+     * @param index 行の位置（改行で終わっていない最終行も含む）
+     * @return 行のデータ
+     */
+    synchronized T get(int index) {
+        return index == rows.size() && tail != null ? tail : rows.get(index);
+    }
+
+    /**
+     * 確定済みの行数を返します。
+     *
+     * @return 改行で終わっている行の数
+     */
+    synchronized int committedCount() {
+        return rows.size();
+    }
+
+    private void reset() {
+        generation++;
+        rows.clear();
+        offset = 0;
+        prefixChecksum = new CRC32();
+        fingerprint = new byte[0];
+        tail = null;
+    }
+
+    /**
+     * 前回読み込んだ位置までの内容が変わっていないかを確認します。
+     */
+    private boolean continuesFrom(FileChannel channel) throws IOException {
+        if (stamp == null || channel.size() < offset) {
+            return false;
+        }
+        if (offset == 0) {
+            return true;
+        }
+
+        if (verifyWholePrefix) {
+            CRC32 checksum = new CRC32();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = 0;
+            while (position < offset) {
+                buffer.clear();
+                buffer.limit((int) Math.min(BUFFER_SIZE, offset - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    return false;
+                }
+                buffer.flip();
+                checksum.update(buffer);
+                position += read;
+            }
+            return checksum.getValue() == prefixChecksum.getValue();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(fingerprint.length);
+        channel.read(buffer, offset - fingerprint.length);
+        return Arrays.equals(buffer.array(), fingerprint);
+    }
+
+    /**
+     * 確定済みの位置から末尾までを読み込みます。
+     */
+    private void readFrom(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        long position = offset;
+
+        channel.position(offset);
+        while (channel.read(buffer) > 0) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                position++;
+                if (b == '\n') {
+                    line.write(b);
+                    commit(line.toByteArray(), position);
+                    line.reset();
+                } else {
+                    line.write(b);
+                }
+            }
+            buffer.clear();
+        }
+
+        // 改行で終わっていない最終行は確定させずに保持する
+        tail = null;
+        if (line.size() > 0 && offset > 0) {
+            try {
+                tail = parse(line.toString(StandardCharsets.UTF_8));
+            } catch (RuntimeException e) {
+                // 書き込み途中の行は次回読み直す
+                tail = null;
+            }
+        }
+
+        byte[] last = new byte[(int) Math.min(FINGERPRINT_LENGTH, offset)];
+        channel.read(ByteBuffer.wrap(last), offset - last.length);
+        fingerprint = last;
+    }
+
+    private void commit(byte[] bytes, long end) {
+        // 先頭行はタイトル行なので飛ばす
+        if (offset > 0) {
+            T row = parse(new String(bytes, StandardCharsets.UTF_8));
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        prefixChecksum.update(bytes, 0, bytes.length);
+        offset = end;
+    }
+
+    private T parse(String line) {
+        int end = line.length();
+        while (end > 0 && (line.charAt(end - 1) == '\n' || line.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        if (line.substring(0, end).isBlank()) {
+            return null;
+        }
+        return parser.apply(line.substring(0, end));
+    }
+}
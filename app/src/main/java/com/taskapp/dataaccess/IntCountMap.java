@@ -0,0 +1,116 @@
+package com.taskapp.dataaccess;
+
+import java.util.Arrays;
+
+/**
+ * intのキーごとに件数を数えるマップです。
+ * キーと件数をそれぞれプリミティブの配列で持ち、ボクシングせずに数えます。
+ */
+final class IntCountMap {
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private int[] keys;
+    private long[] counts;
+    private int size;
+
+    /**
+     * キーと件数を受け取ります。
+     */
+    @FunctionalInterface
+    interface Visitor {
+        void accept(int key, long count);
+    }
+
+    IntCountMap() {
+        keys = new int[64];
+        counts = new long[64];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * キーの件数に加えます。
+     *
+     * @param key   キー（Integer.MIN_VALUE以外）
+     * @param delta 加える件数
+     */
+    void add(int key, long delta) {
+        int index = indexOf(key);
+        if (keys[index] == EMPTY) {
+            keys[index] = key;
+            size++;
+        }
+        counts[index] += delta;
+        if (size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /**
+     * キーの件数を返します。
+     *
+     * @param key キー
+     * @return 件数（数えていない場合は0）
+     */
+    long get(int key) {
+        int index = indexOf(key);
+        return keys[index] == EMPTY ? 0 : counts[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 別のマップの件数を足し合わせます。
+     *
+     * @param other 足し合わせるマップ
+     */
+    void merge(IntCountMap other) {
+        other.forEach(this::add);
+    }
+
+    /**
+     * 全てのキーと件数を順不同で渡します。
+     *
+     * @param visitor キーと件数を受け取る
+     */
+    void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                visitor.accept(keys[i], counts[i]);
+            }
+        }
+    }
+
+    /**
+     * キーが入っている位置、またはキーを入れる空きの位置を返します（線形探索）。
+     */
+    private int indexOf(int key) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != EMPTY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                counts[index] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
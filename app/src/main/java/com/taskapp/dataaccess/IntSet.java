@@ -0,0 +1,157 @@
+package com.taskapp.dataaccess;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * intの集合です。
+ * 値をプリミティブの配列で持ち、ボクシングせずに登録・確認します。
+ *
+ * <p>
+ * 使うメモリは登録した値の数だけで決まるため、入力されたタスクコードのように
+ * 大きな値が入る可能性がある場合でも、ビットマップのように値の大きさに比例したメモリを使いません。
+ * </p>
+ */
+final class IntSet {
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private int[] values;
+    private int size;
+
+    IntSet() {
+        values = new int[16];
+        Arrays.fill(values, EMPTY);
+    }
+
+    private IntSet(int[] values, int size) {
+        this.values = values;
+        this.size = size;
+    }
+
+    /**
+     * 値を全て登録した集合を作ります。
+     * 多くの値について何度も含まれているかを確かめる前に、リストなどから1回だけ作って使います。
+     *
+     * @param values 登録する値
+     * @return 作った集合
+     */
+    static IntSet of(Collection<Integer> values) {
+        IntSet set = new IntSet();
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+
+    /**
+     * 値を登録します。
+     *
+     * @param value 登録する値（Integer.MIN_VALUE以外）
+     */
+    void add(int value) {
+        if (value == EMPTY) {
+            throw new IllegalArgumentException("登録できない値です：" + value);
+        }
+        int index = indexOf(value);
+        if (values[index] == EMPTY) {
+            values[index] = value;
+            size++;
+            if (size * 2 > values.length) {
+                grow();
+            }
+        }
+    }
+
+    /**
+     * 値が登録されているかを返します。
+     *
+     * @param value 確認する値
+     * @return 登録されていればtrue
+     */
+    boolean contains(int value) {
+        return value != EMPTY && values[indexOf(value)] == value;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * 登録した値を全て取り除きます。
+     */
+    void clear() {
+        values = new int[16];
+        Arrays.fill(values, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * 同じ値を持つ、別の集合を作ります。
+     *
+     * @return コピーした集合
+     */
+    IntSet copy() {
+        return new IntSet(values.clone(), size);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (int value : values) {
+            if (value != EMPTY) {
+                hash += mix(value);
+            }
+        }
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof IntSet))
+            return false;
+        IntSet other = (IntSet) obj;
+        if (size != other.size) {
+            return false;
+        }
+        for (int value : values) {
+            if (value != EMPTY && !other.contains(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 値が入っている位置、または値を入れる空きの位置を返します（線形探索）。
+     */
+    private int indexOf(int value) {
+        int mask = values.length - 1;
+        int index = mix(value) & mask;
+        while (values[index] != EMPTY && values[index] != value) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void grow() {
+        int[] oldValues = values;
+        values = new int[oldValues.length * 2];
+        Arrays.fill(values, EMPTY);
+        for (int value : oldValues) {
+            if (value != EMPTY) {
+                values[indexOf(value)] = value;
+            }
+        }
+    }
+
+    private static int mix(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,72 @@
+package com.taskapp.dataaccess;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 1つのCSVファイルのロックを取るまでに待った時間の統計です。
+ * 同時に読み書きするプロセス・スレッドが多い時に、どれだけ待たされているかを確認するために使います。
+ */
+public class LockStatistics {
+    private final String filePath;
+
+    private final LongAdder sharedCount = new LongAdder();
+    private final LongAdder sharedWaitNanos = new LongAdder();
+    private final LongAdder exclusiveCount = new LongAdder();
+    private final LongAdder exclusiveWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    LockStatistics(String filePath) {
+        this.filePath = filePath;
+    }
+
+    void recordShared(long waitNanos) {
+        sharedCount.increment();
+        sharedWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    void recordExclusive(long waitNanos) {
+        exclusiveCount.increment();
+        exclusiveWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    public String getFilePath() {
+        return this.filePath;
+    }
+
+    public long getSharedCount() {
+        return sharedCount.sum();
+    }
+
+    public long getSharedWaitNanos() {
+        return sharedWaitNanos.sum();
+    }
+
+    public long getExclusiveCount() {
+        return exclusiveCount.sum();
+    }
+
+    public long getExclusiveWaitNanos() {
+        return exclusiveWaitNanos.sum();
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s 共有：%d回 平均%.3fms, 排他：%d回 平均%.3fms, 最大待ち時間：%.3fms",
+                filePath,
+                getSharedCount(), average(getSharedWaitNanos(), getSharedCount()),
+                getExclusiveCount(), average(getExclusiveWaitNanos(), getExclusiveCount()),
+                getMaxWaitNanos() / 1e6);
+    }
+
+    private static double average(long nanos, long count) {
+        return count == 0 ? 0 : nanos / 1e6 / count;
+    }
+
+}
@@ -3,14 +3,60 @@ package com.taskapp.dataaccess;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
+import com.taskapp.model.CycleTimeReport;
+import com.taskapp.model.DailyActivity;
 import com.taskapp.model.Log;
+import com.taskapp.model.LogSummary;
+import com.taskapp.model.RankingEntry;
+import com.taskapp.model.TaskState;
 
 public class LogDataAccess {
     private final String filePath;
 
+    /** 読み込んだログを保持し、追記された分だけを読み込む */
+    private final IncrementalCsvReader<Log> reader;
+
+    /** ログを削除されたタスクのコード */
+    private final TombstoneJournal tombstones;
+
+    /** 削除済みの行が増えたらCSVを書き直す */
+    private final CsvCompactor compactor;
+
+    /** 他のプロセス・スレッドと読み書きを調整する */
+    private final CsvFileLock fileLock;
+
+    /** ログからタスクの状態を求める */
+    private final TaskStateReplay replay;
+
+    /** ログから着手・完了までの日数を集計する */
+    private final CycleTimeAnalyzer cycleTimes;
+
+    /** 日ごとのログの件数 */
+    private final LogRollup rollup;
+
     public LogDataAccess() {
         filePath = "app/src/main/resources/logs.csv";
+        reader = new IncrementalCsvReader<>(Paths.get(filePath), LogDataAccess::parseLine, false);
+        tombstones = new TombstoneJournal(Paths.get(filePath + ".del"));
+        compactor = new CsvCompactor(this::garbageRatio, this::compact);
+        fileLock = CsvFileLock.forFile(filePath);
+        replay = new TaskStateReplay(Paths.get(filePath + ".checkpoint"));
+        cycleTimes = new CycleTimeAnalyzer(Paths.get(filePath));
+        rollup = new LogRollup(Paths.get(filePath + ".rollup"));
     }
 
     /**
@@ -20,22 +66,42 @@ public class LogDataAccess {
      */
     public LogDataAccess(String filePath) {
         this.filePath = filePath;
+        this.reader = new IncrementalCsvReader<>(Paths.get(filePath), LogDataAccess::parseLine, false);
+        this.tombstones = new TombstoneJournal(Paths.get(filePath + ".del"));
+        this.compactor = new CsvCompactor(this::garbageRatio, this::compact);
+        this.fileLock = CsvFileLock.forFile(filePath);
+        this.replay = new TaskStateReplay(Paths.get(filePath + ".checkpoint"));
+        this.cycleTimes = new CycleTimeAnalyzer(Paths.get(filePath));
+        this.rollup = new LogRollup(Paths.get(filePath + ".rollup"));
     }
 
     /**
      * ログをCSVファイルに保存します。
+     * 追記は短時間で終わるため、1行を書き終えるまでの間だけ他のプロセスからの読み書きを待たせます。
+     * 書き込んだ後は{@link Durability}の方法に従ってディスクに同期し、日ごとの件数に加えます。
+     * 作業単位の中では、コミットするまで書き込みません。
      *
+     * @see com.taskapp.dataaccess.UnitOfWork
      * @param log 保存するログ
      */
     public void save(Log log) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath,true))) {
+        UnitOfWork work = UnitOfWork.current(this);
+        if (work != null) {
+            work.stageSave(log);
+            return;
+        }
 
-            // 改行
-            writer.newLine();
+        try (CsvFileLock.Handle lock = fileLock.exclusive()) {
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath,true))) {
 
-            // 書き込み
-            writer.write(log.getTaskCode() + "," + log.getChangeUserCode() + "," +
-                    log.getStatus() + "," + log.getChangeDate());
+                // 改行
+                writer.newLine();
+
+                // 書き込み
+                writer.write(createLine(log));
+            }
+            Durability.written(path(), 1);
+            rollUp(List.of(log));
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -44,31 +110,389 @@ public class LogDataAccess {
 
     /**
      * すべてのログを取得します。
+     * 前回の読み込みから追記された行だけを読み込みます。
+     * 削除済みのタスクのログは含みません。
+     * 作業単位の中では、まだコミットしていないログも含みます。
      *
      * @return すべてのログのリスト
      */
-    // public List<Log> findAll() {
-    // try () {
+    public List<Log> findAll() {
+        try (CsvFileLock.Handle lock = fileLock.shared()) {
+            List<Log> logs = reader.readAll();
+            IntSet deleted = tombstones.deletedCodes();
+            if (!deleted.isEmpty()) {
+                logs.removeIf(log -> deleted.contains(log.getTaskCode()));
+            }
+            UnitOfWork work = UnitOfWork.current(this);
+            return work == null ? logs : work.applyToLogs(logs);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * ファイルに変更があれば、追記された分を読み込みます。
+     * {@link CsvFileWatcher}から呼び出され、次回の取得を速くします。
+     */
+    public void refresh() {
+        try (CsvFileLock.Handle lock = fileLock.shared()) {
+            reader.refresh();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
 
-    // } catch (IOException e) {
-    // e.printStackTrace();
-    // }
-    // return null;
-    // }
+    /**
+     * ファイルの変更を監視し、変更があれば読み込むようにします。
+     *
+     * @param watcher ファイルの監視
+     * @throws IOException 監視を開始できなかった場合
+     */
+    public void watch(CsvFileWatcher watcher) throws IOException {
+        watcher.watch(filePath, this::refresh);
+    }
 
     /**
      * 指定したタスクコードに該当するログを削除します。
+     * 削除済みとして記録し、CSVは{@link #markDeletedByTaskCodes(Collection)}と同じくバックグラウンドで書き直します。
      *
      * @see #findAll()
      * @param taskCode 削除するログのタスクコード
      */
-    // public void deleteByTaskCode(int taskCode) {
-    // try () {
+    public void deleteByTaskCode(int taskCode) {
+        markDeletedByTaskCodes(List.of(taskCode));
+    }
+
+    /**
+     * タスクコードのログが削除済みとして記録され、まだ記録が消えていないかを確認します。
+     * 記録が残っている間にそのコードでタスクを登録すると、新しいタスクのログまで削除済みとして扱われるため、
+     * 記録が消えるまではそのコードを使わないようにします。
+     *
+     * @param taskCode 確認するタスクコード
+     * @return 削除済みとして記録されていればtrue
+     */
+    public boolean isDeletedTaskCode(int taskCode) {
+        try (CsvFileLock.Handle lock = fileLock.shared()) {
+            return tombstones.contains(taskCode);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * 複数のタスクのログを削除済みとして記録します。
+     * CSVはすぐには書き直さず、削除済みの行が一定の割合を超えた時にバックグラウンドで書き直します。
+     *
+     * @param taskCodes 削除するログのタスクコード
+     */
+    public void markDeletedByTaskCodes(Collection<Integer> taskCodes) {
+        if (taskCodes.isEmpty()) {
+            return;
+        }
+        UnitOfWork work = UnitOfWork.current(this);
+        if (work != null) {
+            work.stageDeleteLogs(taskCodes);
+            return;
+        }
+
+        try (CsvFileLock.Handle lock = fileLock.exclusive()) {
+            tombstones.add(taskCodes);
+            compactor.request();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 作業単位のコミットで、ログを削除済みとして記録します。
+     * 排他ロックを取った状態で呼び出してください。
+     *
+     * @param taskCodes 削除するログのタスクコード
+     * @throws IOException 書き込めなかった場合
+     */
+    void addTombstones(Collection<Integer> taskCodes) throws IOException {
+        tombstones.add(taskCodes);
+    }
+
+    /**
+     * 作業単位のコミットが終わった後に、圧縮を依頼します。
+     */
+    void deleted() {
+        compactor.request();
+    }
+
+    Path tombstonePath() {
+        return Paths.get(filePath + ".del");
+    }
+
+    /**
+     * 削除済みのタスクのログを取り除いてCSVを書き直し、削除の記録を消します。
+     *
+     * @throws IOException 書き直せなかった場合
+     */
+    public void compact() throws IOException {
+        try (CsvFileLock.Handle lock = fileLock.exclusive()) {
+            IntSet deleted = tombstones.deletedCodes();
+            if (deleted.isEmpty()) {
+                return;
+            }
+
+            CsvFiles.rewrite(Paths.get(filePath), line -> !deleted.contains(CsvFiles.firstColumn(line)));
+            tombstones.clear();
+            reader.invalidate();
+            rollup.rebased(Files.size(path()));
+        }
+    }
+
+    /**
+     * 保存方針に従って古いログを削除します。
+     * ログファイルを1回読みながら残す行だけを書き出し、削除したログはタスクごとにまとめて残します。
+     * 削除済みのタスクのログも同時に取り除きます。
+     *
+     * @see #findSummaries()
+     * @param policy ログを残す方針
+     * @param today  基準日
+     * @return 削除したログの件数
+     */
+    public int purge(LogRetentionPolicy policy, LocalDate today) {
+        if (!policy.isEnabled()) {
+            return 0;
+        }
+
+        try (CsvFileLock.Handle lock = fileLock.exclusive()) {
+            LocalDate cutoff = policy.cutoff(today);
+            int maxEntries = policy.getMaxEntriesPerTask();
+
+            // タスクごとの件数はメモリ上のログから数える
+            Map<Integer, Integer> remaining = new HashMap<>();
+            boolean expired = false;
+            for (Log log : reader.readAll()) {
+                int count = remaining.merge(log.getTaskCode(), 1, Integer::sum);
+                if (log.getChangeDate().isBefore(cutoff) || (maxEntries > 0 && count > maxEntries)) {
+                    expired = true;
+                }
+            }
+            if (!expired) {
+                return 0;
+            }
+
+            IntSet deleted = tombstones.deletedCodes();
+            Map<Integer, LogSummary> purged = new LinkedHashMap<>();
+            int[] purgedCount = new int[1];
 
-    // } catch (IOException e) {
-    // e.printStackTrace();
-    // }
-    // }
+            CsvFiles.rewrite(Paths.get(filePath), line -> {
+                Log log = parseLine(line);
+                // この行より後ろにある同じタスクのログの件数
+                int after = remaining.merge(log.getTaskCode(), -1, Integer::sum);
+
+                if (deleted.contains(log.getTaskCode())) {
+                    return false;
+                }
+                if (!log.getChangeDate().isBefore(cutoff) && (maxEntries == 0 || after < maxEntries)) {
+                    return true;
+                }
+
+                purged.computeIfAbsent(log.getTaskCode(),
+                        code -> new LogSummary(code, 0, null, null, 0)).add(log);
+                purgedCount[0]++;
+                return false;
+            });
+
+            saveSummaries(purged);
+            tombstones.clear();
+            reader.invalidate();
+            rollup.rebased(Files.size(path()));
+            return purgedCount[0];
+
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    /**
+     * ログを適用し直して、指定した日の時点のタスクの状態を求めます。
+     * 前回のチェックポイント以降に追記されたログだけを読み込んで適用するため、ログが増えても時間は一定に保たれます。
+     * 過去の日を指定した場合も、その日までのログだけを含むチェックポイントから適用します。
+     * 削除済みのタスクは含みません。
+     *
+     * @see com.taskapp.dataaccess.TaskStateReplay
+     * @param asOf この日までのログを適用する（nullの場合は全て）
+     * @return タスクコード順の状態
+     */
+    public Map<Integer, TaskState> findStates(LocalDate asOf) {
+        try (CsvFileLock.Handle lock = fileLock.shared()) {
+            reader.refresh();
+            Map<Integer, TaskState> states = replay.replay(reader, new ArrayList<>(loadSummaries().values()), asOf);
+            IntSet deleted = tombstones.deletedCodes();
+            states.keySet().removeIf(deleted::contains);
+            return states;
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return new LinkedHashMap<>();
+    }
+
+    /**
+     * タスクの登録から着手・完了までにかかった日数を、ユーザー別・週別に集計します。
+     * ログはファイルから直接1行ずつ読むため、全てのログをメモリに読み込みません。
+     * 2回目以降は前回から追記された行だけを読みます。削除済みのタスクは含みません。
+     *
+     * @see com.taskapp.dataaccess.CycleTimeAnalyzer
+     * @return 集計
+     */
+    public CycleTimeReport analyzeCycleTimes() {
+        try (CsvFileLock.Handle lock = fileLock.shared()) {
+            return cycleTimes.analyze(tombstones.deletedCodes(), loadSummaries().values());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return new CycleTimeReport();
+    }
+
+    /**
+     * 指定した期間の、日ごとのステータス変更の件数を取得します。
+     * ログファイルではなく、日付ごとにまとめたロールアップを読みます。
+     * 削除したログの件数も、その日の件数として残ります。
+     *
+     * @see com.taskapp.dataaccess.LogRollup
+     * @param from 期間の最初の日
+     * @param to   期間の最後の日
+     * @return 日付順の件数（ログがない日は含まない）
+     */
+    public List<DailyActivity> findDailyActivity(LocalDate from, LocalDate to) {
+        try (CsvFileLock.Handle lock = fileLock.shared();
+                FileChannel channel = FileChannel.open(path(), StandardOpenOption.READ)) {
+            return rollup.read(channel, from, to);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * 期間内にステータスを変更した件数が多いユーザーを、多い順に取得します。
+     * 削除済みのタスクのログは数えません。
+     *
+     * @see com.taskapp.dataaccess.LogRanking
+     * @param limit 取得する件数
+     * @param from  期間の最初の日（nullの場合は指定なし）
+     * @param to    期間の最後の日（nullの場合は指定なし）
+     * @return ユーザーコードと件数のリスト
+     */
+    public List<RankingEntry> findTopChangeUsers(int limit, LocalDate from, LocalDate to) {
+        return findTop(LogRanking.Key.CHANGE_USER, limit, from, to);
+    }
+
+    /**
+     * 期間内にステータスが変更された件数が多いタスクを、多い順に取得します。
+     * 削除済みのタスクは含みません。
+     *
+     * @see com.taskapp.dataaccess.LogRanking
+     * @param limit 取得する件数
+     * @param from  期間の最初の日（nullの場合は指定なし）
+     * @param to    期間の最後の日（nullの場合は指定なし）
+     * @return タスクコードと件数のリスト
+     */
+    public List<RankingEntry> findTopChangedTasks(int limit, LocalDate from, LocalDate to) {
+        return findTop(LogRanking.Key.TASK, limit, from, to);
+    }
+
+    private List<RankingEntry> findTop(LogRanking.Key key, int limit, LocalDate from, LocalDate to) {
+        try (CsvFileLock.Handle lock = fileLock.shared();
+                FileChannel channel = FileChannel.open(path(), StandardOpenOption.READ)) {
+            return LogRanking.top(channel, key, limit, from, to, tombstones.deletedCodes());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * 保存期間を過ぎて削除されたログのまとめを取得します。
+     *
+     * @return タスクごとのまとめのリスト
+     */
+    public List<LogSummary> findSummaries() {
+        try (CsvFileLock.Handle lock = fileLock.shared()) {
+            return new ArrayList<>(loadSummaries().values());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    Path path() {
+        return Paths.get(filePath);
+    }
+
+    /**
+     * 書き込んだログを日ごとの件数に加えます。
+     * 書き込みのロックを取得した状態で呼び出してください。
+     *
+     * @param logs 書き込んだログ
+     * @throws IOException 書き込めなかった場合
+     */
+    void rollUp(List<Log> logs) throws IOException {
+        rollup.added(logs, Files.size(path()));
+    }
+
+    CsvFileLock fileLock() {
+        return fileLock;
+    }
+
+    private Path summaryPath() {
+        return Paths.get(filePath + ".summary");
+    }
+
+    private Map<Integer, LogSummary> loadSummaries() throws IOException {
+        Map<Integer, LogSummary> summaries = new LinkedHashMap<>();
+        Path path = summaryPath();
+        if (!Files.exists(path)) {
+            return summaries;
+        }
+
+        List<String> lines = Files.readAllLines(path);
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] values = line.split(",");
+            LogSummary summary = new LogSummary(
+                    Integer.parseInt(values[0]),
+                    Integer.parseInt(values[1]),
+                    LocalDate.parse(values[2]),
+                    LocalDate.parse(values[3]),
+                    Integer.parseInt(values[4]));
+            summaries.put(summary.getTaskCode(), summary);
+        }
+        return summaries;
+    }
+
+    private void saveSummaries(Map<Integer, LogSummary> purged) throws IOException {
+        if (purged.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, LogSummary> summaries = loadSummaries();
+        for (LogSummary summary : purged.values()) {
+            summaries.merge(summary.getTaskCode(), summary, (current, added) -> {
+                current.add(added);
+                return current;
+            });
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (LogSummary summary : summaries.values()) {
+            lines.add(summary.getTaskCode() + "," + summary.getPurgedCount() + "," +
+                    summary.getFirstChangeDate() + "," + summary.getLastChangeDate() + "," +
+                    summary.getLastStatus());
+        }
+        CsvFiles.writeAll(summaryPath(), "Task_Code,Purged_Count,First_Change_Date,Last_Change_Date,Last_Status",
+                lines);
+    }
 
     /**
      * ログをCSVファイルに書き込むためのフォーマットを作成します。
@@ -76,7 +500,40 @@ public class LogDataAccess {
      * @param log フォーマットを作成するログ
      * @return CSVファイルに書き込むためのフォーマット
      */
-    // private String createLine(Log log) {
-    // }
+    String createLine(Log log) {
+        return log.getTaskCode() + "," + log.getChangeUserCode() + "," +
+                log.getStatus() + "," + log.getChangeDate();
+    }
 
+    /**
+     * CSVの行のうち、削除済みの行が占める割合を返します。
+     */
+    private double garbageRatio() {
+        try (CsvFileLock.Handle lock = fileLock.shared()) {
+            IntSet deleted = tombstones.deletedCodes();
+            List<Log> logs = reader.readAll();
+            if (logs.isEmpty()) {
+                return 0;
+            }
+            long garbage = logs.stream().filter(log -> deleted.contains(log.getTaskCode())).count();
+            return (double) garbage / logs.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * CSVの1行をログに変換します。
+     *
+     * @param line CSVの1行
+     * @return ログ
+     */
+    private static Log parseLine(String line) {
+        String[] values = line.split(",");
+        return new Log(
+                Integer.parseInt(values[0]),
+                Integer.parseInt(values[1]),
+                Integer.parseInt(values[2]),
+                LocalDate.parse(values[3]));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ログファイルの行を{@link com.taskapp.model.Log}に変換せずに読みます。
+ * 全てのログをメモリに読み込まずに、ファイル全体を集計する時に使います。
+ */
+final class LogLineScanner {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 読み取ったログの1行を受け取ります。
+     */
+    @FunctionalInterface
+    interface Visitor {
+        /**
+         * @param taskCode       タスクコード
+         * @param changeUserCode 変更したユーザーのコード
+         * @param status         ステータス
+         * @param day            変更した日（エポック日）
+         */
+        void accept(int taskCode, int changeUserCode, int status, int day);
+    }
+
+    private LogLineScanner() {
+    }
+
+    /**
+     * ファイルを行の区切りで、ほぼ同じ大きさの範囲に分けます。
+     *
+     * @param channel ログファイル
+     * @param size    分ける大きさ
+     * @param count   範囲の数
+     * @return 各範囲の開始位置と、最後にファイルの大きさを並べた配列
+     * @throws IOException 読み込めなかった場合
+     */
+    static long[] split(FileChannel channel, long size, int count) throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        for (int i = 1; i < count; i++) {
+            long position = Math.max(size * i / count, bounds.get(bounds.size() - 1));
+            // 次の改行の直後を範囲の区切りにする
+            search: while (position < size) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    position = size;
+                    break;
+                }
+                for (int j = 0; j < read; j++) {
+                    if (buffer.get(j) == '\n') {
+                        position += j + 1;
+                        break search;
+                    }
+                }
+                position += read;
+            }
+            if (position < size && position > bounds.get(bounds.size() - 1)) {
+                bounds.add(position);
+            }
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * ファイルの指定した範囲の行を読みます。
+     * タイトル行と、形式が誤っている行は無視します。
+     *
+     * @param channel ログファイル
+     * @param from    読み始める位置（行の先頭）
+     * @param to      読み終える位置
+     * @param visitor 読み取った行を受け取る
+     * @throws IOException 読み込めなかった場合
+     */
+    static void scan(FileChannel channel, long from, long to, Visitor visitor) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        byte[] line = new byte[64];
+        int length = 0;
+        long position = from;
+        while (position < to) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, to - position));
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            position += read;
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    accept(line, length, visitor);
+                    length = 0;
+                } else {
+                    if (length == line.length) {
+                        line = Arrays.copyOf(line, length * 2);
+                    }
+                    line[length++] = b;
+                }
+            }
+        }
+        accept(line, length, visitor);
+    }
+
+    private static void accept(byte[] line, int length, Visitor visitor) {
+        // タスクコード,変更したユーザーコード,ステータス,年-月-日
+        int[] values = new int[6];
+        int index = 0;
+        boolean digits = false;
+        for (int i = 0; i < length; i++) {
+            byte b = line[i];
+            if (b >= '0' && b <= '9') {
+                values[index] = values[index] * 10 + (b - '0');
+                digits = true;
+            } else if (digits && index < 5 && b == (index < 3 ? ',' : '-')) {
+                index++;
+                digits = false;
+            } else if (b != '\r') {
+                return;
+            }
+        }
+        if (index != 5 || !digits) {
+            return;
+        }
+
+        int day;
+        try {
+            day = (int) LocalDate.of(values[3], values[4], values[5]).toEpochDay();
+        } catch (DateTimeException e) {
+            return;
+        }
+        visitor.accept(values[0], values[1], values[2], day);
+    }
+}
@@ -0,0 +1,183 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import com.taskapp.model.RankingEntry;
+
+/**
+ * ログファイルを1回読み、ステータス変更の件数が多いユーザー・タスクの上位を求めます。
+ *
+ * <p>
+ * ファイルを行の区切りで範囲に分け、範囲ごとに{@link IntCountMap}で並列に数えてから足し合わせます。
+ * 上位は件数の少ない方を先頭にした、大きさが上限までのヒープで選ぶため、全体を並べ替えません。
+ * </p>
+ */
+final class LogRanking {
+    /** この大きさ（バイト）より小さければ並列にしない */
+    private static final long PARALLEL_THRESHOLD = 1024 * 1024;
+
+    /** 何ごとに数えるか */
+    enum Key {
+        /** 変更したユーザー */
+        CHANGE_USER,
+        /** タスク */
+        TASK
+    }
+
+    private LogRanking() {
+    }
+
+    /**
+     * 件数の多い順に上位を返します。件数が同じ場合はコードの昇順です。
+     * ログファイルへの書き込みと重ならないように、呼び出し側で読み込みのロックを取得してください。
+     *
+     * @param channel ログファイル
+     * @param key     何ごとに数えるか
+     * @param limit   返す件数
+     * @param from    この日以降のログを数える（nullの場合は指定なし）
+     * @param to      この日以前のログを数える（nullの場合は指定なし）
+     * @param deleted 削除済みのタスクのコード
+     * @return 件数の多い順の上位
+     * @throws IOException ログファイルを読み込めなかった場合
+     */
+    static List<RankingEntry> top(FileChannel channel, Key key, int limit, LocalDate from, LocalDate to,
+            IntSet deleted) throws IOException {
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        int first = from == null ? Integer.MIN_VALUE : (int) from.toEpochDay();
+        int last = to == null ? Integer.MAX_VALUE : (int) to.toEpochDay();
+
+        long size = channel.size();
+        long[] bounds = LogLineScanner.split(channel, size,
+                size < PARALLEL_THRESHOLD ? 1 : Runtime.getRuntime().availableProcessors());
+        IntCountMap counts;
+        try {
+            counts = IntStream.range(0, bounds.length - 1)
+                    .parallel()
+                    .mapToObj(i -> {
+                        IntCountMap partial = new IntCountMap();
+                        try {
+                            LogLineScanner.scan(channel, bounds[i], bounds[i + 1],
+                                    (taskCode, changeUserCode, status, day) -> {
+                                        if (day >= first && day <= last && !deleted.contains(taskCode)) {
+                                            partial.add(key == Key.TASK ? taskCode : changeUserCode, 1);
+                                        }
+                                    });
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        return partial;
+                    })
+                    .reduce((left, right) -> {
+                        // 大きい方に小さい方を足し合わせる
+                        if (left.size() < right.size()) {
+                            right.merge(left);
+                            return right;
+                        }
+                        left.merge(right);
+                        return left;
+                    })
+                    .orElseGet(IntCountMap::new);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        // 返す件数は集計した数を超えないため、大きな件数を指定されても配列を大きく取らない
+        TopHeap heap = new TopHeap(Math.min(limit, counts.size()));
+        counts.forEach(heap::offer);
+        return heap.toList();
+    }
+
+    /**
+     * 件数の少ない方を先頭にした、大きさに上限のあるヒープです。
+     * 上限に達した後は、先頭より多いものが来た時だけ先頭と入れ替えます。
+     */
+    private static final class TopHeap {
+        private final int[] codes;
+        private final long[] counts;
+        private int size;
+
+        TopHeap(int limit) {
+            codes = new int[limit];
+            counts = new long[limit];
+        }
+
+        void offer(int code, long count) {
+            if (size < codes.length) {
+                codes[size] = code;
+                counts[size] = count;
+                siftUp(size++);
+            } else if (lower(codes[0], counts[0], code, count)) {
+                codes[0] = code;
+                counts[0] = count;
+                siftDown(0);
+            }
+        }
+
+        /**
+         * 件数の多い順に並べて返します。
+         */
+        List<RankingEntry> toList() {
+            List<RankingEntry> entries = new ArrayList<>(size);
+            while (size > 0) {
+                entries.add(new RankingEntry(codes[0], counts[0]));
+                size--;
+                codes[0] = codes[size];
+                counts[0] = counts[size];
+                siftDown(0);
+            }
+            return entries.reversed();
+        }
+
+        /**
+         * aの順位がbより下の場合はtrue（件数が少ない、または件数が同じでコードが大きい）。
+         */
+        private static boolean lower(int codeA, long countA, int codeB, long countB) {
+            return countA != countB ? countA < countB : codeA > codeB;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (!lower(codes[index], counts[index], codes[parent], counts[parent])) {
+                    return;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int child = index * 2 + 1;
+                if (child >= size) {
+                    return;
+                }
+                if (child + 1 < size && lower(codes[child + 1], counts[child + 1], codes[child], counts[child])) {
+                    child++;
+                }
+                if (!lower(codes[child], counts[child], codes[index], counts[index])) {
+                    return;
+                }
+                swap(index, child);
+                index = child;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int code = codes[i];
+            codes[i] = codes[j];
+            codes[j] = code;
+            long count = counts[i];
+            counts[i] = counts[j];
+            counts[j] = count;
+        }
+    }
+}
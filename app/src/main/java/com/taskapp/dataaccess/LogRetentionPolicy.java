@@ -0,0 +1,63 @@
+package com.taskapp.dataaccess;
+
+import java.time.LocalDate;
+
+/**
+ * ログをどれだけ残すかの方針です。
+ * 保存日数とタスクごとの件数のどちらか、または両方で古いログを削除します。
+ */
+public class LogRetentionPolicy {
+    /** ログを削除しない方針 */
+    public static final LogRetentionPolicy KEEP_ALL = new LogRetentionPolicy(0, 0);
+
+    private int retentionDays;
+    private int maxEntriesPerTask;
+
+    /**
+     * @param retentionDays     ログを残す日数（0の場合は日数で削除しない）
+     * @param maxEntriesPerTask タスクごとに残す最新のログの件数（0の場合は件数で削除しない）
+     */
+    public LogRetentionPolicy(int retentionDays, int maxEntriesPerTask) {
+        this.retentionDays = retentionDays;
+        this.maxEntriesPerTask = maxEntriesPerTask;
+    }
+
+    /**
+     * システムプロパティから方針を作成します。
+     * taskapp.logs.retentionDays と taskapp.logs.maxEntriesPerTask を参照します。
+     *
+     * @return ログを残す方針
+     */
+    public static LogRetentionPolicy fromSystemProperties() {
+        return new LogRetentionPolicy(
+                Integer.getInteger("taskapp.logs.retentionDays", 0),
+                Integer.getInteger("taskapp.logs.maxEntriesPerTask", 0));
+    }
+
+    public int getRetentionDays() {
+        return this.retentionDays;
+    }
+
+    public int getMaxEntriesPerTask() {
+        return this.maxEntriesPerTask;
+    }
+
+    /**
+     * 何らかの削除を行う方針かどうかを返します。
+     *
+     * @return 削除を行う場合はtrue
+     */
+    public boolean isEnabled() {
+        return retentionDays > 0 || maxEntriesPerTask > 0;
+    }
+
+    /**
+     * 日数で削除する場合の、残す最も古い日付を返します。
+     *
+     * @param today 基準日
+     * @return 残す最も古い日付（日数で削除しない場合はLocalDate.MIN）
+     */
+    LocalDate cutoff(LocalDate today) {
+        return retentionDays > 0 ? today.minusDays(retentionDays) : LocalDate.MIN;
+    }
+}
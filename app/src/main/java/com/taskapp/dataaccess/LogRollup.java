@@ -0,0 +1,278 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import com.taskapp.model.DailyActivity;
+import com.taskapp.model.Log;
+
+/**
+ * ログの件数を日付・変更したユーザー・ステータスごとにまとめたファイル（ロールアップ）を管理します。
+ *
+ * <p>
+ * ログを保存するたびに、ロールアップの末尾に件数の行を追記します。
+ * 追記した行が増えたら、日付ごとにまとめて書き直します。
+ * 各行の最後の列は、その行までに反映したログファイルの大きさです。
+ * </p>
+ *
+ * <p>
+ * 読み込む時にログファイルの方が大きければ、反映されていない行だけを読んで加えます。
+ * ログファイルが小さくなっていた場合は、ログファイル全体を読み、ロールアップにない日だけを作り直します。
+ * ロールアップがない場合はログファイル全体から作ります。
+ * 古いログを削除した後も、その日の件数はロールアップに残ります。
+ * </p>
+ */
+class LogRollup {
+    private static final String HEADER = "Change_Date,Change_User_Code,Status,Count,Log_Size";
+
+    /** 前回まとめてから、この行数を超えて追記したら書き直す */
+    private static final int CONSOLIDATE_ROWS = 10_000;
+
+    private final Path path;
+
+    /** ロールアップの読み書きを、他のプロセス・スレッドと調整する */
+    private final CsvFileLock fileLock;
+
+    /** 前回まとめてから追記した行数 */
+    private int appended;
+
+    /** 読み込んだロールアップと、その時のファイルのスタンプ（読み込んでいない場合はnull） */
+    private Rollup cache;
+
+    private FileStamp cacheStamp;
+
+    /**
+     * @param path ロールアップのファイル
+     */
+    LogRollup(Path path) {
+        this.path = path;
+        this.fileLock = CsvFileLock.forFile(path.toString());
+    }
+
+    /**
+     * 保存したログの件数を追記します。
+     * ロールアップがまだない場合は、次に読み込む時にログファイルから作るため、何もしません。
+     * ログファイルの書き込みのロックを取得した状態で呼び出してください。
+     *
+     * @param logs    保存したログ
+     * @param logSize 保存した後のログファイルの大きさ
+     * @throws IOException 書き込めなかった場合
+     */
+    synchronized void added(List<Log> logs, long logSize) throws IOException {
+        if (logs.isEmpty() || !Files.exists(path)) {
+            return;
+        }
+        try (CsvFileLock.Handle lock = fileLock.exclusive()) {
+            if (!Files.exists(path)) {
+                return;
+            }
+
+            boolean cached = cache != null && FileStamp.of(path).equals(cacheStamp);
+
+            Map<String, long[]> counts = new TreeMap<>();
+            for (Log log : logs) {
+                counts.computeIfAbsent(log.getChangeDate() + "," + log.getChangeUserCode() + "," + log.getStatus(),
+                        key -> new long[1])[0]++;
+            }
+            StringBuilder content = new StringBuilder();
+            counts.forEach((key, count) -> content.append('\n').append(key).append(',').append(count[0])
+                    .append(',').append(logSize));
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                channel.write(ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8)));
+            }
+
+            // 読み込み済みの内容にも加えて、次回の読み込みを省く
+            if (cached) {
+                for (Log log : logs) {
+                    cache.days.computeIfAbsent(log.getChangeDate(), DailyActivity::new)
+                            .add(log.getChangeUserCode(), log.getStatus(), 1);
+                }
+                cache.coverage = logSize;
+                cache.rows += counts.size();
+                cacheStamp = FileStamp.of(path);
+            } else {
+                cache = null;
+            }
+
+            appended += counts.size();
+            if (appended > CONSOLIDATE_ROWS) {
+                Rollup rollup = load();
+                write(rollup.days, rollup.coverage);
+            }
+        }
+    }
+
+    /**
+     * ログファイルを書き直した後に、反映済みの大きさを書き直した後の大きさに合わせます。
+     * 件数はそのまま残します。
+     * ログファイルの書き込みのロックを取得した状態で呼び出してください。
+     *
+     * @param logSize 書き直した後のログファイルの大きさ
+     * @throws IOException 書き込めなかった場合
+     */
+    synchronized void rebased(long logSize) throws IOException {
+        try (CsvFileLock.Handle lock = fileLock.exclusive()) {
+            if (Files.exists(path)) {
+                write(load().days, logSize);
+            }
+        }
+    }
+
+    /**
+     * 指定した期間の日ごとの件数を返します。
+     * ロールアップに反映されていないログがあれば、先に反映します。
+     * 全て反映済みであれば共有ロックだけで読み、反映する時や書き直す時だけ排他ロックを取ります。
+     * ログファイルの読み込みのロックを取得した状態で呼び出してください。
+     *
+     * @param logs ログファイル
+     * @param from 期間の最初の日
+     * @param to   期間の最後の日
+     * @return 日付順の件数（ログがない日は含まない）
+     * @throws IOException 読み書きできなかった場合
+     */
+    List<DailyActivity> read(FileChannel logs, LocalDate from, LocalDate to) throws IOException {
+        long size = logs.size();
+        synchronized (this) {
+            try (CsvFileLock.Handle lock = fileLock.shared()) {
+                Rollup rollup = load();
+                if (rollup.coverage == size && !needsConsolidation(rollup)) {
+                    return copy(rollup, from, to);
+                }
+            }
+        }
+        return update(logs, from, to);
+    }
+
+    /**
+     * 排他ロックを取って反映されていないログを反映し、必要であれば書き直してから件数を返します。
+     * 共有ロックを放してから取り直すため、その間に他のプロセスが反映していないかを確かめ直します。
+     */
+    private synchronized List<DailyActivity> update(FileChannel logs, LocalDate from, LocalDate to)
+            throws IOException {
+        try (CsvFileLock.Handle lock = fileLock.exclusive()) {
+            Rollup rollup = load();
+            long size = logs.size();
+
+            if (rollup.coverage != size) {
+                // 書き直すまでの間に失敗しても、読み込んだ内容を使い回さない
+                cache = null;
+                if (rollup.coverage < size) {
+                    // 反映されていない行だけを読む
+                    scan(logs, rollup.coverage, size, rollup.days);
+                } else {
+                    // ログファイルが書き直されたため、ロールアップにない日だけを作り直す
+                    NavigableMap<LocalDate, DailyActivity> days = new TreeMap<>();
+                    scan(logs, 0, size, days);
+                    days.forEach(rollup.days::putIfAbsent);
+                }
+                write(rollup.days, size);
+            } else if (needsConsolidation(rollup)) {
+                write(rollup.days, size);
+            }
+            return copy(rollup, from, to);
+        }
+    }
+
+    /**
+     * 同じ日付の行が増え、まとめて書き直す必要があるかを返します。
+     */
+    private static boolean needsConsolidation(Rollup rollup) {
+        return rollup.rows > rollup.days.size() * 3L + CONSOLIDATE_ROWS;
+    }
+
+    private static List<DailyActivity> copy(Rollup rollup, LocalDate from, LocalDate to) {
+        List<DailyActivity> result = new ArrayList<>();
+        for (DailyActivity day : rollup.days.subMap(from, true, to, true).values()) {
+            DailyActivity copy = new DailyActivity(day.getDate());
+            copy.merge(day);
+            result.add(copy);
+        }
+        return result;
+    }
+
+    private static void scan(FileChannel logs, long from, long to, NavigableMap<LocalDate, DailyActivity> days)
+            throws IOException {
+        LogLineScanner.scan(logs, from, to, (taskCode, changeUserCode, status, day) -> {
+            LocalDate date = LocalDate.ofEpochDay(day);
+            days.computeIfAbsent(date, DailyActivity::new).add(changeUserCode, status, 1);
+        });
+    }
+
+    /**
+     * ロールアップを読み込み、同じ日付の行をまとめます。
+     * 前回読み込んだ時からファイルが変わっていなければ、読み込んだ内容を使い回します。
+     */
+    private Rollup load() throws IOException {
+        FileStamp stamp = FileStamp.of(path);
+        if (cache != null && stamp.equals(cacheStamp)) {
+            return cache;
+        }
+
+        Rollup rollup = new Rollup();
+        List<String> lines = stamp.equals(FileStamp.MISSING) ? List.of() : Files.readAllLines(path);
+        for (String line : lines.subList(Math.min(1, lines.size()), lines.size())) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] values = line.split(",");
+            if (values.length != 5) {
+                continue;
+            }
+            LocalDate date = LocalDate.parse(values[0]);
+            rollup.days.computeIfAbsent(date, DailyActivity::new)
+                    .add(Integer.parseInt(values[1]), Integer.parseInt(values[2]), Long.parseLong(values[3]));
+            rollup.coverage = Math.max(rollup.coverage, Long.parseLong(values[4]));
+            rollup.rows++;
+        }
+        cache = rollup;
+        cacheStamp = stamp;
+        return rollup;
+    }
+
+    /**
+     * 日付ごとにまとめた行でロールアップを書き直します。
+     */
+    private void write(NavigableMap<LocalDate, DailyActivity> days, long coverage) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (DailyActivity day : days.values()) {
+            for (int userCode : day.getChangeUserCodes()) {
+                for (int status = 0; status <= 2; status++) {
+                    long count = day.getCount(userCode, status);
+                    if (count > 0) {
+                        lines.add(day.getDate() + "," + userCode + "," + status + "," + count + "," + coverage);
+                    }
+                }
+            }
+        }
+        CsvFiles.writeAll(path, HEADER, lines);
+        appended = 0;
+
+        Rollup rollup = new Rollup();
+        rollup.days.putAll(days);
+        rollup.coverage = coverage;
+        rollup.rows = lines.size();
+        cache = rollup;
+        cacheStamp = FileStamp.of(path);
+    }
+
+    private static final class Rollup {
+        final NavigableMap<LocalDate, DailyActivity> days = new TreeMap<>();
+
+        /** 反映済みのログファイルの大きさ */
+        long coverage;
+
+        /** ファイルの行数 */
+        int rows;
+    }
+}
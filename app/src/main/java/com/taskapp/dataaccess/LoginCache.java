@@ -0,0 +1,145 @@
+package com.taskapp.dataaccess;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ログインの照合結果を、1つのセッションの間だけ覚えておくキャッシュです。
+ *
+ * <p>
+ * {@link #begin()}でセッションを開始したスレッドでは、{@link UserDataAccess#findByEmailAndPassword(String, String)}が
+ * 照合に成功したメールアドレスとパスワードのダイジェストを覚え、同じセッションで同じパスワードが入力された場合は
+ * ハッシュの計算を省きます。セッションを開始していないスレッドでは、毎回ハッシュと照合します。
+ * </p>
+ *
+ * <p>
+ * 照合結果は他のセッションと共有しないため、照合にかかる時間から他の接続のログインを知ることはできません。
+ * パスワードは平文のまま覚えず、セッションごとの乱数と合わせたダイジェストにしてメモリ上だけに置きます。
+ * </p>
+ */
+public final class LoginCache implements AutoCloseable {
+    /** ログインに成功したパスワードを覚えておく時間 */
+    private static final long LOGIN_CACHE_NANOS = TimeUnit.SECONDS
+            .toNanos(Long.getLong("taskapp.login.cacheSeconds", 300));
+
+    private static final ThreadLocal<LoginCache> CURRENT = new ThreadLocal<>();
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /** ログインに成功したメールアドレスと、その時のパスワードのダイジェスト */
+    private final Map<String, VerifiedLogin> verifiedLogins = new HashMap<>();
+
+    /** ダイジェストに混ぜる、セッションごとの乱数 */
+    private final byte[] sessionSalt = new byte[16];
+
+    /** このスレッドで前に開始されていたセッション */
+    private final LoginCache previous;
+
+    private LoginCache(LoginCache previous) {
+        this.previous = previous;
+        RANDOM.nextBytes(sessionSalt);
+    }
+
+    /**
+     * このスレッドでセッションを開始します。
+     * 閉じるまでの間、このスレッドで行うログインの照合結果を覚えます。
+     *
+     * @return 開始したセッションのキャッシュ
+     */
+    public static LoginCache begin() {
+        LoginCache cache = new LoginCache(CURRENT.get());
+        CURRENT.set(cache);
+        return cache;
+    }
+
+    /**
+     * このスレッドで開始されているセッションのキャッシュを返します。
+     *
+     * @return キャッシュ（開始されていない場合はnull）
+     */
+    static LoginCache current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * このセッションで、同じパスワードの照合に成功済みかを返します。
+     *
+     * @param email    メールアドレス
+     * @param stored   ファイルに保存されている値
+     * @param password 入力されたパスワード
+     * @return 期限内で、その後保存されている値が変わっておらず、同じパスワードが入力された場合はtrue
+     */
+    boolean matches(String email, String stored, String password) {
+        VerifiedLogin verified = verifiedLogins.get(email);
+        return verified != null && verified.matches(stored, digest(password));
+    }
+
+    /**
+     * 照合に成功したパスワードを覚えます。
+     *
+     * @param email    メールアドレス
+     * @param stored   ファイルに保存されている値
+     * @param password 入力されたパスワード
+     */
+    void verified(String email, String stored, String password) {
+        verifiedLogins.put(email, new VerifiedLogin(stored, digest(password)));
+    }
+
+    /**
+     * セッションを終了し、覚えた照合結果を捨てます。
+     */
+    @Override
+    public void close() {
+        verifiedLogins.clear();
+        if (CURRENT.get() == this) {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * パスワードを、このセッションの乱数と合わせてダイジェストにします。
+     * 照合済みのパスワードを平文のまま覚えておかないために使います。
+     */
+    private byte[] digest(String password) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(sessionSalt);
+            return digest.digest(password.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256は全てのJava実行環境にあるため、通常は起こらない
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 照合に成功したログインです。
+     */
+    private static final class VerifiedLogin {
+        /** 照合した時にファイルに保存されていた値 */
+        final String stored;
+
+        final byte[] digest;
+
+        final long verifiedAt = System.nanoTime();
+
+        VerifiedLogin(String stored, byte[] digest) {
+            this.stored = stored;
+            this.digest = digest;
+        }
+
+        boolean matches(String stored, byte[] digest) {
+            return System.nanoTime() - verifiedAt < LOGIN_CACHE_NANOS
+                    && this.stored.equals(stored)
+                    && MessageDigest.isEqual(this.digest, digest);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.taskapp.dataaccess;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.Semaphore;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * パスワードをソルト付きのハッシュ（PBKDF2）に変換し、照合します。
+ *
+ * <p>
+ * ハッシュは「pbkdf2-sha256$繰り返し回数$ソルト$ハッシュ」の形式で、ソルトとハッシュはBase64です。
+ * 繰り返し回数はハッシュに含まれるため、回数の設定を変えても以前のハッシュで照合できます。
+ * この形式でない値は、ハッシュ化する前の平文のパスワードとして照合します。
+ * 平文で照合に成功したパスワードは、{@link UserDataAccess}がその場でハッシュに書き換えます。
+ * </p>
+ *
+ * <p>
+ * 繰り返し回数はシステムプロパティtaskapp.password.iterationsで変更できます。
+ * 既定の210,000回で、1回の照合におよそ50msかかります（1CPUで計測）。
+ * 同時に照合する数はtaskapp.password.concurrency（既定はCPUの数）までに抑え、
+ * ログインが集中してもCPUを奪い合って全員が遅くならないようにします。
+ * </p>
+ */
+final class PasswordHasher {
+    private static final String PREFIX = "pbkdf2-sha256";
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+    /** 新しく作るハッシュの繰り返し回数 */
+    static final int ITERATIONS = Integer.getInteger("taskapp.password.iterations", 210_000);
+
+    private static final int SALT_BYTES = 16;
+
+    private static final int HASH_BITS = 256;
+
+    private static final Semaphore PERMITS = new Semaphore(
+            Integer.getInteger("taskapp.password.concurrency", Runtime.getRuntime().availableProcessors()), true);
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private PasswordHasher() {
+    }
+
+    /**
+     * パスワードを新しいソルトでハッシュ化します。
+     *
+     * @param password ハッシュ化するパスワード
+     * @return ファイルに保存するハッシュ
+     */
+    static String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + "$" + ITERATIONS + "$" + encoder.encodeToString(salt) + "$"
+                + encoder.encodeToString(derive(password, salt, ITERATIONS));
+    }
+
+    /**
+     * パスワードが保存されている値と一致するかを照合します。
+     *
+     * @param password 入力されたパスワード
+     * @param stored   ファイルに保存されている値（ハッシュまたは平文）
+     * @return 一致する場合はtrue
+     */
+    static boolean verify(String password, String stored) {
+        String[] parts = stored.split("\\$");
+        if (!isHashed(stored) || parts.length != 4) {
+            // ハッシュ化する前の平文（比べる時間で内容が分からないように比べる）
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                    stored.getBytes(StandardCharsets.UTF_8));
+        }
+
+        try {
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] expected = decoder.decode(parts[3]);
+            byte[] actual = derive(password, decoder.decode(parts[2]), Integer.parseInt(parts[1]));
+            return MessageDigest.isEqual(expected, actual);
+        } catch (IllegalArgumentException e) {
+            // 壊れたハッシュとは一致しない
+            return false;
+        }
+    }
+
+    /**
+     * 保存されている値がハッシュ化済みかを判定します。
+     *
+     * @param stored ファイルに保存されている値
+     * @return ハッシュ化済みの場合はtrue
+     */
+    static boolean isHashed(String stored) {
+        return stored.startsWith(PREFIX + "$");
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        PERMITS.acquireUninterruptibly();
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            // PBKDF2WithHmacSHA256は全てのJava実行環境にあるため、通常は起こらない
+            throw new IllegalStateException(e);
+        } finally {
+            PERMITS.release();
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+
+/**
+ * 画面に表示した後にタスクが変更されていたため、書き込みを取りやめたことを表します。
+ * 最新のタスクを読み直してからやり直してください。
+ *
+ * @see UnitOfWork#expect(TaskSnapshot)
+ */
+public class StaleSnapshotException extends IOException {
+    public StaleSnapshotException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,137 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.taskapp.exception.AppException;
+
+/**
+ * 使用済みのタスクコードを管理します。
+ *
+ * <p>
+ * 使用済みのコードは{@link IntSet}で保持し、重複の確認をO(1)で行います。
+ * 入力されたコードが大きな値でも、使うメモリはコードの数だけで決まります。
+ * 自動採番したコードの最大値はシーケンスファイルに保存し、
+ * 複数のプロセスから同時に採番しても同じコードにならないようにファイルをロックします。
+ * </p>
+ */
+class TaskCodeRegistry {
+    /** 同じJVM内で同じファイルを二重にロックしないためのロック */
+    private static final Map<Path, Object> JVM_LOCKS = new ConcurrentHashMap<>();
+
+    private final Path sequencePath;
+
+    private final IntSet codes = new IntSet();
+
+    /** 使用済みのコードの最大値 */
+    private int highest;
+
+    /**
+     * @param sequencePath 採番の最大値を保存するファイル
+     */
+    TaskCodeRegistry(Path sequencePath) {
+        this.sequencePath = sequencePath.toAbsolutePath().normalize();
+    }
+
+    /**
+     * 保持しているコードを全て破棄します。
+     */
+    synchronized void clear() {
+        codes.clear();
+        highest = 0;
+    }
+
+    /**
+     * コードを使用済みにします。
+     *
+     * @param code 使用済みにするコード
+     */
+    synchronized void add(int code) {
+        if (code >= 0) {
+            codes.add(code);
+            highest = Math.max(highest, code);
+        }
+    }
+
+    /**
+     * コードが使用済みかどうかを返します。
+     *
+     * @param code 確認するコード
+     * @return 使用済みであればtrue
+     */
+    synchronized boolean contains(int code) {
+        return code >= 0 && codes.contains(code);
+    }
+
+    /**
+     * まだ使われていない新しいコードを採番し、使用済みにします。
+     *
+     * @return 採番したコード
+     * @throws IOException シーケンスファイルを読み書きできなかった場合
+     * @throws AppException 採番できるコードが残っていない場合
+     */
+    synchronized int allocate() throws IOException, AppException {
+        synchronized (JVM_LOCKS.computeIfAbsent(sequencePath, p -> new Object())) {
+            return allocateLocked();
+        }
+    }
+
+    private int allocateLocked() throws IOException, AppException {
+        try (FileChannel channel = FileChannel.open(sequencePath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                FileLock lock = channel.lock()) {
+
+            // 他のプロセスが採番した分とCSVにある分の両方より後ろから探す
+            int sequence = readSequence(channel);
+            int code = nextUnused(Math.max(sequence, highest));
+            if (code < 0) {
+                // 最大値のコードが入力されている場合は、採番した分の後ろの空いているコードを使う
+                code = nextUnused(sequence);
+            }
+            if (code < 0) {
+                throw new AppException("採番できるタスクコードがありません");
+            }
+
+            writeSequence(channel, code);
+            add(code);
+            return code;
+        }
+    }
+
+    /**
+     * 指定したコードより後ろで、まだ使われていない最初のコードを返します。
+     * 使用済みのコードの数より1つ多く調べれば必ず空きが見つかるため、ロックを持ったまま調べる範囲はその数までに抑えます。
+     *
+     * @return 使われていないコード（intの最大値まで使われている場合は-1）
+     */
+    private int nextUnused(int last) {
+        long first = Math.max(last + 1L, 1);
+        long end = Math.min(first + codes.size(), Integer.MAX_VALUE);
+        for (long code = first; code <= end; code++) {
+            if (!codes.contains((int) code)) {
+                return (int) code;
+            }
+        }
+        return -1;
+    }
+
+    private int readSequence(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        channel.read(buffer, 0);
+        String value = new String(buffer.array(), StandardCharsets.UTF_8).strip();
+        return value.isEmpty() ? 0 : Integer.parseInt(value);
+    }
+
+    private void writeSequence(FileChannel channel, int code) throws IOException {
+        channel.truncate(0);
+        channel.write(ByteBuffer.wrap(String.valueOf(code).getBytes(StandardCharsets.UTF_8)), 0);
+        channel.force(false);
+    }
+}
@@ -0,0 +1,149 @@
+package com.taskapp.dataaccess;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+/**
+ * 担当ユーザー・ステータスごとのタスク数の表です。
+ *
+ * <p>
+ * タスクの版（{@link TaskSnapshot}）と一緒に保持し、タスクを登録・更新・削除するたびに差分だけを反映した新しい表を作ります。
+ * 表は変更できないため、読み込み側はロックを取らずに参照できます。
+ * 担当ユーザーコードの昇順に並んだ配列と、ユーザーごとに3つのステータスの件数を並べた配列で持ちます。
+ * </p>
+ */
+public final class TaskCounts {
+    /** ステータスの数（未着手・着手中・完了） */
+    private static final int STATUSES = 3;
+
+    /** 担当ユーザーがユーザーのCSVに見つからないタスクを数える、ユーザーコードの代わりの値 */
+    public static final int UNKNOWN_USER = -1;
+
+    static final TaskCounts EMPTY = new TaskCounts(new int[0], new long[0]);
+
+    /** 担当ユーザーコード（昇順） */
+    private final int[] userCodes;
+
+    /** userCodes[i]のステータスsの件数はcounts[i * 3 + s] */
+    private final long[] counts;
+
+    private TaskCounts(int[] userCodes, long[] counts) {
+        this.userCodes = userCodes;
+        this.counts = counts;
+    }
+
+    /**
+     * 全てのタスクを数えて表を作ります。
+     *
+     * @param tasks 全てのタスク
+     * @return タスク数の表
+     */
+    static TaskCounts of(List<Task> tasks) {
+        int[] codes = tasks.stream().mapToInt(TaskCounts::repUserCode).distinct().sorted().toArray();
+        long[] counts = new long[codes.length * STATUSES];
+        for (Task task : tasks) {
+            if (isStatus(task.getStatus())) {
+                counts[Arrays.binarySearch(codes, repUserCode(task)) * STATUSES + task.getStatus()]++;
+            }
+        }
+        return new TaskCounts(codes, counts);
+    }
+
+    /**
+     * タスクを1件加えた表を作ります。
+     *
+     * @param task 加えるタスク
+     * @return 新しい表
+     */
+    TaskCounts plus(Task task) {
+        return add(repUserCode(task), task.getStatus(), 1);
+    }
+
+    /**
+     * タスクを1件除いた表を作ります。
+     *
+     * @param task 除くタスク
+     * @return 新しい表
+     */
+    TaskCounts minus(Task task) {
+        return add(repUserCode(task), task.getStatus(), -1);
+    }
+
+    private TaskCounts add(int userCode, int status, long delta) {
+        if (!isStatus(status)) {
+            return this;
+        }
+
+        int index = Arrays.binarySearch(userCodes, userCode);
+        if (index >= 0) {
+            long[] next = counts.clone();
+            next[index * STATUSES + status] += delta;
+            return new TaskCounts(userCodes, next);
+        }
+
+        // 初めて担当するユーザーを、順番を保って差し込む
+        int insert = -index - 1;
+        int[] nextCodes = new int[userCodes.length + 1];
+        System.arraycopy(userCodes, 0, nextCodes, 0, insert);
+        nextCodes[insert] = userCode;
+        System.arraycopy(userCodes, insert, nextCodes, insert + 1, userCodes.length - insert);
+
+        long[] next = new long[nextCodes.length * STATUSES];
+        System.arraycopy(counts, 0, next, 0, insert * STATUSES);
+        System.arraycopy(counts, insert * STATUSES, next, (insert + 1) * STATUSES,
+                counts.length - insert * STATUSES);
+        next[insert * STATUSES + status] += delta;
+        return new TaskCounts(nextCodes, next);
+    }
+
+    /**
+     * 担当ユーザーのコードを返します。
+     * 担当ユーザーが見つからないタスクは{@link #UNKNOWN_USER}として数え、1行のために表全体を作れなくなることを防ぎます。
+     */
+    private static int repUserCode(Task task) {
+        User user = task.getRepUser();
+        return user == null ? UNKNOWN_USER : user.getCode();
+    }
+
+    private static boolean isStatus(int status) {
+        return status >= 0 && status < STATUSES;
+    }
+
+    /**
+     * タスクを担当しているユーザーのコードを返します。
+     *
+     * @return 担当ユーザーコード（昇順）
+     */
+    public int[] getUserCodes() {
+        return userCodes.clone();
+    }
+
+    /**
+     * 担当ユーザー・ステータスごとのタスク数を返します。
+     *
+     * @param userCode 担当ユーザーコード
+     * @param status   ステータス
+     * @return タスク数
+     */
+    public long get(int userCode, int status) {
+        int index = Arrays.binarySearch(userCodes, userCode);
+        return index < 0 ? 0 : counts[index * STATUSES + status];
+    }
+
+    /**
+     * ステータスごとの全ユーザーのタスク数を返します。
+     *
+     * @param status ステータス
+     * @return タスク数
+     */
+    public long total(int status) {
+        long total = 0;
+        for (int i = status; i < counts.length; i += STATUSES) {
+            total += counts[i];
+        }
+        return total;
+    }
+}
@@ -1,13 +1,22 @@
 package com.taskapp.dataaccess;
 
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
+import com.taskapp.exception.AppException;
 import com.taskapp.model.Task;
 import com.taskapp.model.User;
 
@@ -17,9 +26,53 @@ public class TaskDataAccess {
 
     private final UserDataAccess userDataAccess;
 
+    /** 読み込んだタスクを保持し、ファイルが変わった分だけ読み直す */
+    private final IncrementalCsvReader<Task> reader;
+
+    /** 1回の読み込みの間に取得した担当ユーザー */
+    private final Map<Integer, User> users = new HashMap<>();
+
+    /** 使用済みのタスクコード */
+    private final TaskCodeRegistry codes;
+
+    /** codesに反映済みの読み込み世代 */
+    private long codesGeneration = -1;
+
+    /** codesに反映済みの行数 */
+    private int codesRows;
+
+    /** 削除されたタスクコード */
+    private final TombstoneJournal tombstones;
+
+    /** 削除済みの行が増えたらCSVを書き直す */
+    private final CsvCompactor compactor;
+
+    /** 他のプロセス・スレッドと読み書きを調整する */
+    private final CsvFileLock fileLock;
+
+    /** 最新のタスクの版。書き込むたびに新しい版に置き換え、読み込みはロックを取らずにこれを参照する */
+    private final AtomicReference<TaskSnapshot> snapshot = new AtomicReference<>(TaskSnapshot.EMPTY);
+
+    /** タスク名の索引 */
+    private final TaskNameIndex nameIndex = new TaskNameIndex();
+
+    /**
+     * 版にだけ反映し、まだファイルに書き込んでいない更新（コードごとに最後の状態）。
+     * ファイルのロックを取った状態で読み書きする。
+     *
+     * @see WriteCoalescing
+     */
+    private final Map<Integer, Task> deferredUpdates = new LinkedHashMap<>();
+
     public TaskDataAccess() {
         filePath = "app/src/main/resources/tasks.csv";
         userDataAccess = new UserDataAccess();
+        reader = new IncrementalCsvReader<>(Paths.get(filePath), this::parseLine, true);
+        codes = new TaskCodeRegistry(Paths.get(filePath + ".seq"));
+        tombstones = new TombstoneJournal(tombstonePath());
+        compactor = new CsvCompactor(this::garbageRatio, this::compact);
+        fileLock = CsvFileLock.forFile(filePath);
+        recover();
     }
 
     /**
@@ -31,60 +84,160 @@ public class TaskDataAccess {
     public TaskDataAccess(String filePath, UserDataAccess userDataAccess) {
         this.filePath = filePath;
         this.userDataAccess = userDataAccess;
+        this.reader = new IncrementalCsvReader<>(Paths.get(filePath), this::parseLine, true);
+        this.codes = new TaskCodeRegistry(Paths.get(filePath + ".seq"));
+        this.tombstones = new TombstoneJournal(tombstonePath());
+        this.compactor = new CsvCompactor(this::garbageRatio, this::compact);
+        this.fileLock = CsvFileLock.forFile(filePath);
+        recover();
     }
 
     /**
      * CSVから全てのタスクデータを取得します。
+     * 前回の読み込みからファイルが変わっていなければ、ロックを取らずに最新の版の内容を返します。
+     * 削除済みのタスクは含みません。
+     * 作業単位の中では、まだコミットしていない書き込みも含みます。
      *
      * @see com.taskapp.dataaccess.UserDataAccess#findByCode(int)
      * @return タスクのリスト
      */
     public List<Task> findAll() {
-        List<Task> tasks = new ArrayList<>();// 返すリスト
-
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-
-            // タイトル行飛ばし
-            reader.readLine();
+        UnitOfWork work = UnitOfWork.current(this);
+        List<Task> tasks = findCommitted();
+        return work == null ? tasks : work.applyTo(tasks);
+    }
 
-            while ((line = reader.readLine()) != null) {
-                String[] value1 = line.split(",");
+    /**
+     * ファイルに書き込まれている全てのタスクを取得します。
+     *
+     * @return タスクのリスト
+     */
+    List<Task> findCommitted() {
+        try {
+            return new ArrayList<>(snapshot().tasks());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
 
-                User user = userDataAccess.findByCode(Integer.parseInt(value1[3]));
+    /**
+     * 最新のタスクの版を返します。
+     * ファイルが他のプロセスに書き換えられていた場合だけ、読み込んで新しい版を作ります。
+     *
+     * @return タスクの版
+     * @throws IOException ファイルを読み込めなかった場合
+     */
+    TaskSnapshot snapshot() throws IOException {
+        TaskSnapshot current = snapshot.get();
+        if (current.isCurrent(FileStamp.of(path()), FileStamp.of(tombstonePath()))) {
+            return current;
+        }
 
-                Task task = new Task(
-                        Integer.parseInt(value1[0]),
-                        value1[1],
-                        Integer.parseInt(value1[2]),
-                        user);
+        try (CsvFileLock.Handle lock = fileLock.shared()) {
+            // 読み込んでいる間はファイルが変わらないため、先に取ったスタンプが版の内容と一致する
+            FileStamp stamp = FileStamp.of(path());
+            FileStamp deletedStamp = FileStamp.of(tombstonePath());
+            List<Task> tasks = loadTasks();
+            IntSet deleted = tombstones.deletedCodes();
+            if (!deleted.isEmpty()) {
+                tasks.removeIf(task -> deleted.contains(task.getCode()));
+            }
+            // 他のプロセスが書き込んだ場合も、まだ書き込んでいない更新は残す
+            if (!deferredUpdates.isEmpty()) {
+                tasks.replaceAll(task -> deferredUpdates.getOrDefault(task.getCode(), task));
+            }
+            TaskSnapshot next = snapshot.get().next(tasks, TaskCounts.of(tasks), stamp, deletedStamp);
+            snapshot.set(next);
+            return next;
+        }
+    }
 
-                tasks.add(task);
+    /**
+     * 書き込みが終わったタスクを、差分を反映したタスク数と一緒に新しい版として公開します。
+     * タスク名の索引とタスクコードのブルームフィルター、並べ替えの結果にも差分を反映します。
+     * 排他ロックを取った状態で呼び出してください。
+     *
+     * @param tasks   書き込み後の全てのタスク
+     * @param counts  書き込み後のタスク数
+     * @param removed 取り除いた、または更新する前のタスク
+     * @param added   加えた、または更新した後のタスク
+     * @throws IOException ファイルのスタンプを取得できなかった場合
+     */
+    void publish(List<Task> tasks, TaskCounts counts, List<Task> removed, List<Task> added) throws IOException {
+        TaskSnapshot before = snapshot.get();
+        TaskSnapshot next = before.next(tasks, counts, FileStamp.of(path()), FileStamp.of(tombstonePath()));
+        next.inheritCodeFilter(before, added);
+        next.inheritSortIndex(before);
+        snapshot.set(next);
+        nameIndex.changed(before.version(), next.version(), removed, added);
+    }
 
-            }
+    /**
+     * 担当ユーザー・ステータスごとのタスク数を取得します。
+     * タスクを書き込むたびに差分だけを反映しているため、タスクを読み直したり数え直したりしません。
+     *
+     * @return タスク数の表
+     */
+    public TaskCounts countByUserAndStatus() {
+        try {
+            return snapshot().counts();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return TaskCounts.EMPTY;
+    }
 
+    /**
+     * 最新の版の全てのタスクを数え直して、タスク数の表を作り直します。
+     *
+     * @return 作り直したタスク数の表
+     */
+    public TaskCounts rebuildCounts() {
+        try (CsvFileLock.Handle lock = fileLock.exclusive()) {
+            List<Task> tasks = snapshot().tasks();
+            publish(tasks, TaskCounts.of(tasks), List.of(), List.of());
+            return snapshot.get().counts();
         } catch (IOException e) {
             e.printStackTrace();
         }
-        return tasks;
+        return TaskCounts.EMPTY;
     }
 
     /**
      * タスクをCSVに保存します。
+     * 追記している間は他のプロセスから読み書きされないようにします。
+     * 書き込んだ後は{@link Durability}の方法に従ってディスクに同期します。
+     * 作業単位の中では、コミットするまで書き込みません。
      * 
+     * @see com.taskapp.dataaccess.UnitOfWork
      * @param task 保存するタスク
      */
     public void save(Task task) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath, true))) {
+        UnitOfWork work = UnitOfWork.current(this);
+        if (work != null) {
+            work.stageSave(task);
+            return;
+        }
 
-            // 改行
-            writer.newLine();
+        try (CsvFileLock.Handle lock = fileLock.exclusive()) {
+            TaskSnapshot before = snapshot();
+            List<Task> tasks = new ArrayList<>(before.tasks());
+            FileStamp stamp = FileStamp.of(path());
+            try (BufferedWriter writer = Files.newBufferedWriter(path(), StandardCharsets.UTF_8,
+                    StandardOpenOption.APPEND)) {
 
-            // 書き込み
-            writer.write(task.getCode() + "," +
-                    task.getName() + "," +
-                    task.getStatus() + "," +
-                    task.getRepUser().getCode());
+                // 改行
+                writer.newLine();
+
+                // 書き込み
+                writer.write(createLine(task));
+            }
+            Durability.written(path(), 1);
+            appended(stamp);
+
+            tasks.add(task);
+            publish(tasks, before.counts().plus(task), List.of(), List.of(task));
 
         } catch (IOException e) {
             e.printStackTrace();
@@ -93,78 +246,364 @@ public class TaskDataAccess {
 
     /**
      * コードを基にタスクデータを1件取得します。
+     * 同じコードのタスクが複数ある場合は、最後に登録されたものを返します。
+     * 存在しないコードはブルームフィルターで判定し、タスクを調べずにnullを返します。
      * 
      * @param code 取得するタスクのコード
      * @return 取得したタスク
      */
     public Task findByCode(int code) {
+        UnitOfWork work = UnitOfWork.current(this);
+        if (work == null) {
+            TaskSnapshot current = currentSnapshot();
+            if (!current.codeFilter().mightContain(code)) {
+                return null;
+            }
+            return current.find(code);
+        }
+
         Task task = null;
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
+        for (Task t : findAll()) {
+            if (t.getCode() == code) {
+                task = t;
+            }
+        }
+        return task;
+    }
+
+    /**
+     * ファイルに書き込まれている最新のタスクの版を取得します。
+     * 画面のセッションが表示した版を持っておき、続けて行う操作で使い回すために使います。
+     * 削除済みのタスクと、作業単位のまだコミットしていない書き込みは含みません。
+     *
+     * @see #isCurrent(TaskSnapshot)
+     * @return タスクの版
+     */
+    public TaskSnapshot findSnapshot() {
+        return currentSnapshot();
+    }
 
-            // タイトル飛ばし
-            reader.readLine();
+    /**
+     * 版が取得した時から変わっていないかを確認します。
+     * ファイルを読まずに、最新の版と同じかとファイルのスタンプだけで判定します。
+     *
+     * @param taskSnapshot {@link #findSnapshot()}で取得した版
+     * @return 変わっていなければtrue
+     */
+    public boolean isCurrent(TaskSnapshot taskSnapshot) {
+        try {
+            return taskSnapshot == snapshot.get()
+                    && taskSnapshot.isCurrent(FileStamp.of(path()), FileStamp.of(tombstonePath()));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return false;
+    }
 
-            String line;
+    /**
+     * 名前に文字列を含むタスクを、コードの昇順で取得します。
+     * タスク名の索引を使うため、全てのタスクを調べません。
+     * 英字の大文字・小文字と、英数字の全角・半角は区別しません。
+     *
+     * @see com.taskapp.dataaccess.TaskNameIndex
+     * @param query 探す文字列
+     * @param limit 取得する件数の上限
+     * @return 見つかったタスク
+     */
+    public List<Task> searchByName(String query, int limit) {
+        try {
+            return nameIndex.search(snapshot(), query, limit);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
 
-            while ((line = reader.readLine()) != null) {
-                String[] value1 = line.split(",");
+    /**
+     * タスクコードが既に使われているかを確認します。
+     * 削除済みとして記録され、まだCSVから取り除かれていないコードも使われているものとします。
+     * ファイル全体を走査せず、前回から追加された行だけを反映して確認します。
+     *
+     * @param code 確認するタスクコード
+     * @return 使われていればtrue
+     */
+    public boolean existsByCode(int code) {
+        UnitOfWork work = UnitOfWork.current(this);
+        if (work != null && work.containsTask(code)) {
+            return true;
+        }
+        try (CsvFileLock.Handle lock = fileLock.shared()) {
+            return isCodeUsed(code);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return findByCode(code) != null;
+    }
 
-                int taskCode = Integer.parseInt(value1[0]);
+    /**
+     * タスクコードがファイルで既に使われているか、削除済みとして記録されているかを確認します。
+     * ファイルのロックを取った状態で呼び出してください。
+     *
+     * @param code 確認するタスクコード
+     * @return 使われていればtrue
+     * @throws IOException ファイルを読み込めなかった場合
+     */
+    boolean isCodeUsed(int code) throws IOException {
+        return syncCodes().contains(code) || tombstones.contains(code);
+    }
 
-                if (taskCode != code)
-                    continue;
+    /**
+     * まだ使われていないタスクコードを採番します。
+     * 複数のプロセスから同時に呼び出しても、同じコードは返しません。
+     *
+     * @return 採番したタスクコード
+     * @throws IOException シーケンスファイルを読み書きできなかった場合
+     * @throws AppException 採番できるタスクコードが残っていない場合
+     */
+    public int nextCode() throws IOException, AppException {
+        TaskCodeRegistry registry;
+        try (CsvFileLock.Handle lock = fileLock.shared()) {
+            registry = syncCodes();
+        }
+        return registry.allocate();
+    }
 
-                User user = userDataAccess.findByCode(Integer.parseInt(value1[3]));
+    /**
+     * タスクデータを更新します。
+     * ファイル全体を書き直すため、書き終わるまで他のプロセスからの読み書きを待たせます。
+     * 作業単位の中では、コミットするまで書き込みません。
+     * {@link WriteCoalescing}が有効な場合は版にだけ反映し、続く更新とまとめて後から書き直します。
+     * 
+     * @see com.taskapp.dataaccess.UnitOfWork
+     * @param updateTask 更新するタスク
+     */
+    public void update(Task updateTask) {
+        UnitOfWork work = UnitOfWork.current(this);
+        if (work != null) {
+            work.stageUpdate(updateTask);
+            return;
+        }
 
-                task = new Task(taskCode, value1[1], Integer.parseInt(value1[2]), user);
+        try (CsvFileLock.Handle lock = fileLock.exclusive()) {
+            TaskSnapshot before = snapshot();
+            List<Task> tasks = new ArrayList<>(before.tasks());
+            TaskCounts counts = before.counts();
+            List<Task> removed = new ArrayList<>();
+            for (int i = 0; i < tasks.size(); i++) {
+                if (tasks.get(i).getCode() == updateTask.getCode()) {
+                    counts = counts.minus(tasks.get(i)).plus(updateTask);
+                    removed.add(tasks.get(i));
+                    tasks.set(i, updateTask);
+                }
+            }
 
+            if (!removed.isEmpty() && WriteCoalescing.enabled()) {
+                publish(tasks, counts, removed, List.of(updateTask));
+                defer(List.of(updateTask));
+                return;
             }
 
+            writeTasks(tasks);
+            publish(tasks, counts, removed, removed.isEmpty() ? List.of() : List.of(updateTask));
+            written();
+
         } catch (IOException e) {
             e.printStackTrace();
         }
-        return task;
     }
 
     /**
-     * タスクデータを更新します。
-     * 
-     * @param updateTask 更新するタスク
+     * 版にだけ反映して遅らせている更新を、すぐにCSVに書き込みます。
+     * 遅らせている更新がなければ何もしません。
+     *
+     * @see WriteCoalescing
      */
-    public void update(Task updateTask) {
-        List<Task> tasks = findAll();
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-
-            writer.write("Code,Name,Status,Rep_User_Code\n");
-
-            for (Task task : tasks) {
-                if (updateTask.getCode() == task.getCode()) {
-                    writer.write(updateTask.getCode() + "," + updateTask.getName() + "," +
-                            updateTask.getStatus() + "," + updateTask.getRepUser().getCode());
-                } else {
-                    writer.write(task.getCode() + "," + task.getName() + "," +
-                            task.getStatus() + "," + task.getRepUser().getCode());
-                }
-                writer.newLine();
+    public void flush() {
+        try (CsvFileLock.Handle lock = fileLock.exclusive()) {
+            if (deferredUpdates.isEmpty()) {
+                return;
             }
+            TaskSnapshot current = snapshot();
+            writeTasks(current.tasks());
+            publish(current.tasks(), current.counts(), List.of(), List.of());
+            written();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 版に反映した更新を、ファイルへの書き込みを遅らせる更新として登録します。
+     * 排他ロックを取った状態で呼び出してください。
+     *
+     * @param updates 更新した後のタスク
+     */
+    void defer(List<Task> updates) {
+        for (Task task : updates) {
+            // 後の更新を最後に書き込んだものとして並べるため、一度取り除いてから入れる
+            deferredUpdates.remove(task.getCode());
+            deferredUpdates.put(task.getCode(), task);
+        }
+        WriteCoalescing.deferred(this);
+    }
+
+    /**
+     * 版の全てのタスクをCSVに書き直したため、遅らせている更新を消します。
+     * 書き直したファイルは前回読んだ内容と照合しても一致しないため、次回は照合せずに全体を読み直します。
+     * 排他ロックを取った状態で呼び出してください。
+     */
+    void written() {
+        deferredUpdates.clear();
+        reader.invalidate();
+    }
+
+    /**
+     * このプロセスがCSVに追記したことを記録し、次回の読み込みで前回読んだ位置までの照合を省きます。
+     * 排他ロックを取った状態で呼び出してください。
+     *
+     * @param before 追記する前のCSVのスタンプ
+     * @throws IOException スタンプを取得できなかった場合
+     */
+    void appended(FileStamp before) throws IOException {
+        reader.appended(before, FileStamp.of(path()));
+    }
 
+    /**
+     * 全てのタスクでCSVを書き直します。
+     * 一時ファイルに書き出してから置き換えるため、途中で止まっても書きかけのCSVは残らず、
+     * ロックを取らずに読み込む側が書きかけの内容を読むこともありません。
+     */
+    private void writeTasks(List<Task> tasks) throws IOException {
+        List<String> lines = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            lines.add(createLine(task));
+        }
+        CsvFiles.writeAll(path(), "Code,Name,Status,Rep_User_Code", lines);
+    }
+
+    /**
+     * ファイルに変更があれば、変更された分を読み込みます。
+     * {@link CsvFileWatcher}から呼び出され、次回の取得を速くします。
+     */
+    public void refresh() {
+        try {
+            snapshot();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * ファイルの変更を監視し、変更があれば読み込むようにします。
+     *
+     * @param watcher ファイルの監視
+     * @throws IOException 監視を開始できなかった場合
+     */
+    public void watch(CsvFileWatcher watcher) throws IOException {
+        watcher.watch(filePath, this::refresh);
+    }
+
     /**
      * コードを基にタスクデータを削除します。
+     * 削除済みとして記録し、CSVは{@link #markDeleted(Collection)}と同じくバックグラウンドで書き直します。
      * 
      * @param code 削除するタスクのコード
      */
-    // public void delete(int code) {
-    // try () {
+    public void delete(int code) {
+        markDeleted(List.of(code));
+    }
+
+    /**
+     * 複数のタスクを削除済みとして記録します。
+     * CSVはすぐには書き直さず、削除済みの行が一定の割合を超えた時にバックグラウンドで書き直します。
+     *
+     * @param deleteCodes 削除するタスクのコード
+     */
+    public void markDeleted(Collection<Integer> deleteCodes) {
+        if (deleteCodes.isEmpty()) {
+            return;
+        }
+        UnitOfWork work = UnitOfWork.current(this);
+        if (work != null) {
+            work.stageDelete(deleteCodes);
+            return;
+        }
+
+        try (CsvFileLock.Handle lock = fileLock.exclusive()) {
+            remove(deleteCodes);
+            compactor.request();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * タスクを削除済みとして記録し、版からも取り除きます。
+     * 排他ロックを取った状態で呼び出してください。
+     */
+    private void remove(Collection<Integer> deleteCodes) throws IOException {
+        // リストのまま確かめると、タスクの数×削除する数の時間がかかる
+        IntSet deleted = IntSet.of(deleteCodes);
+        TaskSnapshot before = snapshot();
+        List<Task> tasks = new ArrayList<>();
+        List<Task> removed = new ArrayList<>();
+        TaskCounts counts = before.counts();
+        for (Task task : before.tasks()) {
+            if (deleted.contains(task.getCode())) {
+                counts = counts.minus(task);
+                removed.add(task);
+            } else {
+                tasks.add(task);
+            }
+        }
+        tombstones.add(deleteCodes);
+        deferredUpdates.keySet().removeIf(deleted::contains);
+        publish(tasks, counts, removed, List.of());
+    }
+
+    /**
+     * 作業単位のコミットで、タスクを削除済みとして記録します。
+     * 版からは{@link #publish(List, TaskCounts, List, List)}で取り除くため、ここでは記録だけを書き込みます。
+     * 排他ロックを取った状態で呼び出してください。
+     *
+     * @param deleteCodes 削除するタスクのコード
+     * @throws IOException 書き込めなかった場合
+     */
+    void addTombstones(Collection<Integer> deleteCodes) throws IOException {
+        tombstones.add(deleteCodes);
+    }
+
+    /**
+     * 作業単位のコミットが終わった後に、削除したタスクの遅らせていた更新を捨て、圧縮を依頼します。
+     * 排他ロックを取った状態で呼び出してください。
+     *
+     * @param deleted 削除したタスクのコード
+     */
+    void deleted(IntSet deleted) {
+        deferredUpdates.keySet().removeIf(deleted::contains);
+        compactor.request();
+    }
+
+    /**
+     * 削除済みのタスクの行を取り除いてCSVを書き直し、削除の記録を消します。
+     *
+     * @throws IOException 書き直せなかった場合
+     */
+    public void compact() throws IOException {
+        try (CsvFileLock.Handle lock = fileLock.exclusive()) {
+            IntSet deleted = tombstones.deletedCodes();
+            if (deleted.isEmpty()) {
+                return;
+            }
 
-    // } catch (IOException e) {
-    // e.printStackTrace();
-    // }
-    // }
+            // 削除済みのタスクは既に版から除かれている
+            TaskSnapshot before = snapshot();
+            CsvFiles.rewrite(Paths.get(filePath), line -> !deleted.contains(CsvFiles.firstColumn(line)));
+            tombstones.clear();
+            reader.invalidate();
+            publish(before.tasks(), before.counts(), List.of(), List.of());
+        }
+    }
 
     /**
      * タスクデータをCSVに書き込むためのフォーマットを作成します。
@@ -172,6 +611,106 @@ public class TaskDataAccess {
      * @param task フォーマットを作成するタスク
      * @return CSVに書き込むためのフォーマット文字列
      */
-    // private String createLine(Task task) {
-    // }
+    String createLine(Task task) {
+        return task.getCode() + "," +
+                task.getName() + "," +
+                task.getStatus() + "," +
+                task.getRepUser().getCode();
+    }
+
+    Path path() {
+        return Paths.get(filePath);
+    }
+
+    CsvFileLock fileLock() {
+        return fileLock;
+    }
+
+    Path tombstonePath() {
+        return Paths.get(filePath + ".del");
+    }
+
+    private TaskSnapshot currentSnapshot() {
+        try {
+            return snapshot();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return TaskSnapshot.EMPTY;
+    }
+
+    /**
+     * 前回のプロセスが作業単位のコミット中に終了していた場合、書き込み前の状態に戻します。
+     */
+    private void recover() {
+        try {
+            UnitOfWork.recover(UnitOfWork.journalPath(path()));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * CSVの行のうち、削除済みの行が占める割合を返します。
+     */
+    private double garbageRatio() {
+        try (CsvFileLock.Handle lock = fileLock.shared()) {
+            IntSet deleted = tombstones.deletedCodes();
+            List<Task> tasks = loadTasks();
+            if (tasks.isEmpty()) {
+                return 0;
+            }
+            long garbage = tasks.stream().filter(task -> deleted.contains(task.getCode())).count();
+            return (double) garbage / tasks.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * ファイルのロックを取った状態で呼び出してください。
+     */
+    private synchronized List<Task> loadTasks() throws IOException {
+        users.clear();
+        return reader.readAll();
+    }
+
+    /**
+     * CSVの1行をタスクに変換します。
+     *
+     * @param line CSVの1行
+     * @return タスク
+     */
+    private Task parseLine(String line) {
+        String[] value1 = line.split(",");
+
+        User user = users.computeIfAbsent(Integer.parseInt(value1[3]), userDataAccess::findByCode);
+
+        return new Task(
+                Integer.parseInt(value1[0]),
+                value1[1],
+                Integer.parseInt(value1[2]),
+                user);
+    }
+
+    /**
+     * 使用済みのタスクコードにファイルの内容を反映します。
+     * ファイルが書き換えられていた場合だけ全体から作り直します。
+     * ファイルのロックを取った状態で呼び出してください。
+     */
+    private synchronized TaskCodeRegistry syncCodes() throws IOException {
+        users.clear();
+        reader.refresh();
+
+        if (reader.generation() != codesGeneration) {
+            codes.clear();
+            codesGeneration = reader.generation();
+            codesRows = 0;
+        }
+        for (Task task : reader.rowsFrom(codesRows)) {
+            codes.add(task.getCode());
+        }
+        codesRows = reader.committedCount();
+        return codes;
+    }
 }
\ No newline at end of file
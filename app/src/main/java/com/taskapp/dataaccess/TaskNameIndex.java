@@ -0,0 +1,214 @@
+package com.taskapp.dataaccess;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.taskapp.model.Task;
+
+/**
+ * タスク名の一部からタスクを探すための索引です。
+ *
+ * <p>
+ * タスク名の1文字と連続する2文字（n-gram）ごとに、その文字を含むタスクのコードを昇順に持ちます。
+ * 検索する時は、検索する文字列の中で最もタスクの少ないn-gramのコードだけを確かめるため、
+ * タスクが増えても全てのタスクを調べません。
+ * 英字は大文字・小文字を区別せず、全角の英数字は半角として扱います。
+ * </p>
+ *
+ * <p>
+ * 索引はタスクの版と対応していて、書き込みで公開された差分を反映して次の版に進みます。
+ * 差分が分からない版（他のプロセスによる書き込みを読み込んだ場合など）になった時は、次に検索する時に作り直します。
+ * </p>
+ */
+final class TaskNameIndex {
+    /** 索引が対応している版（まだ作っていない場合は-1） */
+    private long version = -1;
+
+    /** コードごとのタスクと、正規化したタスク名 */
+    private final Map<Integer, Task> tasks = new HashMap<>();
+    private final Map<Integer, String> names = new HashMap<>();
+
+    /** n-gramごとの、そのn-gramを含むタスクのコード */
+    private final Map<String, Postings> grams = new HashMap<>();
+
+    /**
+     * 版に差分を反映します。
+     * 索引が前の版に対応していない場合は、何もしません。
+     *
+     * @param from    差分を反映する前の版
+     * @param to      差分を反映した後の版
+     * @param removed 取り除かれたタスク（nullの場合は差分が分からない）
+     * @param added   加えられたタスク
+     */
+    synchronized void changed(long from, long to, Collection<Task> removed, Collection<Task> added) {
+        if (version != from) {
+            return;
+        }
+        if (removed == null) {
+            version = -1;
+            return;
+        }
+        for (Task task : removed) {
+            remove(task);
+        }
+        for (Task task : added) {
+            add(task);
+        }
+        version = to;
+    }
+
+    /**
+     * 名前に文字列を含むタスクを、コードの昇順で探します。
+     * 上限の件数が見つかった時点で探すのをやめます。
+     *
+     * @param snapshot 検索するタスクの版
+     * @param query    探す文字列
+     * @param limit    返す件数の上限
+     * @return 見つかったタスク
+     */
+    synchronized List<Task> search(TaskSnapshot snapshot, String query, int limit) {
+        if (version != snapshot.version()) {
+            rebuild(snapshot);
+        }
+
+        List<Task> found = new ArrayList<>();
+        String normalized = normalize(query);
+        if (normalized.isEmpty()) {
+            return found;
+        }
+
+        // 最もタスクの少ないn-gramのコードだけを確かめる
+        Postings candidates = null;
+        for (String gram : queryGrams(normalized)) {
+            Postings postings = grams.get(gram);
+            if (postings == null) {
+                return found;
+            }
+            if (candidates == null || postings.size < candidates.size) {
+                candidates = postings;
+            }
+        }
+
+        for (int i = 0; i < candidates.size && found.size() < limit; i++) {
+            int code = candidates.codes[i];
+            if (names.get(code).contains(normalized)) {
+                found.add(tasks.get(code));
+            }
+        }
+        return found;
+    }
+
+    private void rebuild(TaskSnapshot snapshot) {
+        tasks.clear();
+        names.clear();
+        grams.clear();
+        for (Task task : snapshot.tasks()) {
+            add(task);
+        }
+        version = snapshot.version();
+    }
+
+    /**
+     * タスクを加えます。同じコードのタスクがある場合は置き換えます。
+     */
+    private void add(Task task) {
+        Task current = tasks.get(task.getCode());
+        if (current != null) {
+            remove(current);
+        }
+        String name = normalize(task.getName());
+        tasks.put(task.getCode(), task);
+        names.put(task.getCode(), name);
+        for (String gram : grams(name)) {
+            grams.computeIfAbsent(gram, key -> new Postings()).add(task.getCode());
+        }
+    }
+
+    private void remove(Task task) {
+        String name = names.remove(task.getCode());
+        if (name == null) {
+            return;
+        }
+        tasks.remove(task.getCode());
+        for (String gram : grams(name)) {
+            Postings postings = grams.get(gram);
+            if (postings != null && postings.remove(task.getCode()) && postings.size == 0) {
+                grams.remove(gram);
+            }
+        }
+    }
+
+    /**
+     * タスク名を索引に登録するn-gram（1文字と連続する2文字）を、重複なしで返します。
+     */
+    private static List<String> grams(String name) {
+        List<String> result = grams(name, 1);
+        result.addAll(grams(name, 2));
+        return result;
+    }
+
+    /**
+     * 検索に使うn-gramを返します。1文字の場合はその1文字、2文字以上の場合は連続する2文字です。
+     */
+    private static List<String> queryGrams(String query) {
+        return query.codePointCount(0, query.length()) == 1 ? grams(query, 1) : grams(query, 2);
+    }
+
+    private static List<String> grams(String text, int n) {
+        int[] codePoints = text.codePoints().toArray();
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i + n <= codePoints.length; i++) {
+            String gram = new String(codePoints, i, n);
+            if (!result.contains(gram)) {
+                result.add(gram);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 全角の英数字を半角に、英字を小文字にそろえます。
+     */
+    private static String normalize(String text) {
+        return text == null ? "" : Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * コードを昇順に並べた配列です。
+     */
+    private static final class Postings {
+        private int[] codes = new int[4];
+        private int size;
+
+        void add(int code) {
+            // 多くの場合コードは昇順に加えられるため、末尾に追加するだけで済む
+            int index = size == 0 || codes[size - 1] < code ? size : Arrays.binarySearch(codes, 0, size, code);
+            if (index >= 0 && index < size) {
+                return;
+            }
+            int insert = index < 0 ? -index - 1 : index;
+            if (size == codes.length) {
+                codes = Arrays.copyOf(codes, size * 2);
+            }
+            System.arraycopy(codes, insert, codes, insert + 1, size - insert);
+            codes[insert] = code;
+            size++;
+        }
+
+        boolean remove(int code) {
+            int index = Arrays.binarySearch(codes, 0, size, code);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(codes, index + 1, codes, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.taskapp.dataaccess;
+
+import java.util.Comparator;
+
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+/**
+ * タスクを並べる順番です。
+ * 同じ値のタスクはコードの昇順に並べます。
+ *
+ * @see TaskSnapshot#sorted(TaskOrder, int, int)
+ */
+public enum TaskOrder {
+    /** コードの昇順 */
+    CODE(Comparator.comparingInt(Task::getCode)),
+
+    /** ステータスの昇順（未着手・着手中・完了の順） */
+    STATUS(Comparator.comparingInt(Task::getStatus).thenComparingInt(Task::getCode)),
+
+    /** 担当ユーザー名の昇順 */
+    REP_USER_NAME(Comparator.comparing(TaskOrder::repUserName).thenComparingInt(Task::getCode));
+
+    private final Comparator<Task> comparator;
+
+    TaskOrder(Comparator<Task> comparator) {
+        this.comparator = comparator;
+    }
+
+    /**
+     * この順番でタスクを比べます。
+     *
+     * @return タスクを比べるComparator
+     */
+    Comparator<Task> comparator() {
+        return comparator;
+    }
+
+    private static String repUserName(Task task) {
+        User user = task.getRepUser();
+        return user == null || user.getName() == null ? "" : user.getName();
+    }
+}
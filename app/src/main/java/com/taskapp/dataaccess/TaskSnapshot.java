@@ -0,0 +1,193 @@
+package com.taskapp.dataaccess;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.taskapp.model.Task;
+
+/**
+ * ある時点の全てのタスクを表す、変更できない版です。
+ *
+ * <p>
+ * 書き込みのたびに新しい版を作って置き換えるため、読み込み側はロックを取らずに版を参照でき、
+ * 書きかけのファイルを読むこともありません。
+ * 版に含まれるタスクは他の読み込みと共有しているため、変更しないでください。
+ * </p>
+ *
+ * <p>
+ * 画面のセッションは表示した版を持っておき、続けて行う操作でタスクを探し直さずに使います。
+ * 書き込む時は{@link TaskDataAccess#isCurrent(TaskSnapshot)}で、表示した後に変更されていないかを確かめます。
+ * </p>
+ */
+public final class TaskSnapshot {
+    /** まだ読み込んでいないことを表す版 */
+    static final TaskSnapshot EMPTY = new TaskSnapshot(0, Collections.emptyList(), TaskCounts.EMPTY, null, null);
+
+    private final long version;
+
+    private final List<Task> tasks;
+
+    /** 担当ユーザー・ステータスごとのタスク数 */
+    private final TaskCounts counts;
+
+    /** 版を作った時のCSVのスタンプ */
+    private final FileStamp stamp;
+
+    /** 版を作った時の削除の記録のスタンプ */
+    private final FileStamp deletedStamp;
+
+    /** タスクコードのブルームフィルター（まだ作っていない場合はnull） */
+    private volatile CodeBloomFilter codeFilter;
+
+    /** 並び順ごとの並べ替えの結果（まだ作っていない場合はnull） */
+    private volatile TaskSortIndex sortIndex;
+
+    private TaskSnapshot(long version, List<Task> tasks, TaskCounts counts, FileStamp stamp,
+            FileStamp deletedStamp) {
+        this.version = version;
+        this.tasks = tasks;
+        this.counts = counts;
+        this.stamp = stamp;
+        this.deletedStamp = deletedStamp;
+    }
+
+    /**
+     * この版を基に、次の版を作ります。
+     *
+     * @param tasks        次の版のタスク（コピーして保持します）
+     * @param counts       次の版のタスク数
+     * @param stamp        CSVのスタンプ
+     * @param deletedStamp 削除の記録のスタンプ
+     * @return 次の版
+     */
+    TaskSnapshot next(List<Task> tasks, TaskCounts counts, FileStamp stamp, FileStamp deletedStamp) {
+        return new TaskSnapshot(version + 1, Collections.unmodifiableList(new ArrayList<>(tasks)), counts, stamp,
+                deletedStamp);
+    }
+
+    /**
+     * ファイルがこの版を作った時から変わっていないかを確認します。
+     *
+     * @param currentStamp        CSVの現在のスタンプ
+     * @param currentDeletedStamp 削除の記録の現在のスタンプ
+     * @return 変わっていなければtrue
+     */
+    boolean isCurrent(FileStamp currentStamp, FileStamp currentDeletedStamp) {
+        return currentStamp.equals(stamp) && currentDeletedStamp.equals(deletedStamp);
+    }
+
+    /**
+     * 版の番号を返します。書き込むたびに1つ増えます。
+     *
+     * @return 版の番号
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * 版に含まれるタスクを返します。
+     *
+     * @return 変更できないタスクのリスト
+     */
+    public List<Task> tasks() {
+        return tasks;
+    }
+
+    /**
+     * 版に含まれるタスクをコードで探します。
+     * 同じコードのタスクが複数ある場合は、最後に登録されたものを返します。
+     *
+     * @param code 探すタスクのコード
+     * @return 見つかったタスク（ない場合はnull）
+     */
+    public Task find(int code) {
+        // 最後に登録されたものを返すため、後ろから探す
+        for (int i = tasks.size() - 1; i >= 0; i--) {
+            if (tasks.get(i).getCode() == code) {
+                return tasks.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 版に含まれるタスクを並び順に並べ、指定した範囲を返します。
+     * 並べ替えの結果は版ごとに保持し、前の版から変わったタスクだけを並べ替えて作ります。
+     *
+     * @see TaskSortIndex
+     * @param order  並び順
+     * @param offset 最初のタスクの、並べた中での位置
+     * @param limit  返す件数の上限
+     * @return 並べたタスク
+     */
+    public List<Task> sorted(TaskOrder order, int offset, int limit) {
+        TaskSortIndex index = sortIndex;
+        if (index == null) {
+            index = new TaskSortIndex(tasks);
+            sortIndex = index;
+        }
+        return index.page(order, offset, limit);
+    }
+
+    TaskCounts counts() {
+        return counts;
+    }
+
+    /**
+     * 版に含まれるタスクコードのブルームフィルターを返します。
+     * 初めて呼び出された時に作ります。
+     *
+     * @return タスクコードのブルームフィルター
+     */
+    CodeBloomFilter codeFilter() {
+        CodeBloomFilter filter = codeFilter;
+        if (filter == null) {
+            // 追加されても作り直さずに済むように、余裕を持たせる
+            filter = new CodeBloomFilter(tasks.size() * 2);
+            for (Task task : tasks) {
+                filter.add(task.getCode());
+            }
+            codeFilter = filter;
+        }
+        return filter;
+    }
+
+    /**
+     * 前の版のブルームフィルターに追加されたタスクのコードを加えて、この版のフィルターにします。
+     * 取り除かれたタスクのコードはフィルターに残りますが、含まれている可能性があると判定されるだけで、結果は変わりません。
+     * 前の版のフィルターがない場合や、想定した件数に達した場合は、次に使う時に作り直します。
+     *
+     * @param previous 前の版
+     * @param added    追加されたタスク
+     */
+    void inheritCodeFilter(TaskSnapshot previous, List<Task> added) {
+        CodeBloomFilter filter = previous.codeFilter;
+        if (filter == null || added == null) {
+            return;
+        }
+        if (!added.isEmpty()) {
+            filter = filter.copy();
+            for (Task task : added) {
+                filter.add(task.getCode());
+            }
+        }
+        if (!filter.isFull()) {
+            codeFilter = filter;
+        }
+    }
+
+    /**
+     * 前の版の並べ替えの結果を、この版に引き継ぎます。
+     * 前の版で並べていない場合は、この版で初めて使う時に並べます。
+     *
+     * @param previous 前の版（この版のタスクのうち、変わっていないものは同じインスタンスであること）
+     */
+    void inheritSortIndex(TaskSnapshot previous) {
+        TaskSortIndex index = previous.sortIndex;
+        if (index != null) {
+            sortIndex = index.next(tasks);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.taskapp.dataaccess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.taskapp.model.Task;
+
+/**
+ * タスクの版を並び順ごとに並べた結果を、版の中の位置の配列（並べ替えの順列）として保持します。
+ *
+ * <p>
+ * 順列はその並び順で初めて取得する時に作ります。
+ * 次の版には、前の版の順列と、前の版から変わった位置（登録・更新されたタスク）だけを引き継ぎます。
+ * 次の版で順列を取得する時は、変わった位置のタスクだけを並べ替えて前の順列に合わせるため、
+ * 書き込みのたびに全てのタスクを並べ替え直すことはありません。
+ * タスクが取り除かれただけの版では、残ったタスクの新しい位置に置き換えて引き継ぎます。
+ * </p>
+ *
+ * <p>
+ * 同じ値のタスクは、コード・版の中の位置の順に並べます。
+ * </p>
+ */
+final class TaskSortIndex {
+    private static final int ORDERS = TaskOrder.values().length;
+
+    private final List<Task> tasks;
+
+    /** この版の順列（まだ作っていない並び順はnull） */
+    private final AtomicReferenceArray<int[]> permutations = new AtomicReferenceArray<>(ORDERS);
+
+    /** 前の版から引き継いだ順列（引き継いでいない並び順はnull） */
+    private final int[][] bases;
+
+    /** bases[i]を作った版から、この版までに変わった位置 */
+    private final BitSet[] changes;
+
+    /**
+     * @param tasks 版に含まれるタスク
+     */
+    TaskSortIndex(List<Task> tasks) {
+        this(tasks, new int[ORDERS][], new BitSet[ORDERS]);
+    }
+
+    private TaskSortIndex(List<Task> tasks, int[][] bases, BitSet[] changes) {
+        this.tasks = tasks;
+        this.bases = bases;
+        this.changes = changes;
+    }
+
+    /**
+     * 並び順に並べたタスクのうち、指定した範囲を返します。
+     *
+     * @param order  並び順
+     * @param offset 最初のタスクの、並べた中での位置
+     * @param limit  返す件数の上限
+     * @return 並べたタスク
+     */
+    List<Task> page(TaskOrder order, int offset, int limit) {
+        int[] permutation = permutation(order);
+        int from = Math.min(Math.max(offset, 0), permutation.length);
+        int to = (int) Math.min((long) from + Math.max(limit, 0), permutation.length);
+        List<Task> page = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            page.add(tasks.get(permutation[i]));
+        }
+        return page;
+    }
+
+    /**
+     * 並び順の順列を返します。まだ作っていない場合は、引き継いだ順列に合わせるか、全体を並べ替えて作ります。
+     *
+     * @param order 並び順
+     * @return 版の中の位置を並び順に並べた配列（変更しないでください）
+     */
+    int[] permutation(TaskOrder order) {
+        int i = order.ordinal();
+        int[] permutation = permutations.get(i);
+        if (permutation == null) {
+            // 同時に作っても同じ結果になるため、ロックは取らない
+            permutation = bases[i] == null ? build(order) : merge(bases[i], changes[i], order);
+            permutations.set(i, permutation);
+        }
+        return permutation;
+    }
+
+    /**
+     * 次の版の索引を作ります。
+     * 作成済みまたは引き継いだ順列と、次の版までに変わった位置を引き継ぎます。
+     *
+     * @param nextTasks 次の版のタスク（変わっていない位置は、この版と同じインスタンスであること）
+     * @return 次の版の索引
+     */
+    TaskSortIndex next(List<Task> nextTasks) {
+        if (nextTasks.size() < tasks.size()) {
+            return removed(nextTasks);
+        }
+
+        int[][] nextBases = new int[ORDERS][];
+        BitSet[] nextChanges = new BitSet[ORDERS];
+
+        BitSet changed = null;
+        for (int i = 0; i < ORDERS; i++) {
+            int[] permutation = permutations.get(i);
+            if (permutation == null && bases[i] == null) {
+                continue;
+            }
+            if (changed == null) {
+                changed = changedPositions(nextTasks);
+            }
+            if (permutation != null) {
+                nextBases[i] = permutation;
+                nextChanges[i] = changed;
+            } else {
+                nextBases[i] = bases[i];
+                nextChanges[i] = (BitSet) changes[i].clone();
+                nextChanges[i].or(changed);
+            }
+        }
+        return new TaskSortIndex(nextTasks, nextBases, nextChanges);
+    }
+
+    /**
+     * タスクが取り除かれただけの次の版に、残ったタスクの新しい位置に置き換えた順列を引き継ぎます。
+     * 取り除かれた以外の変更もある場合は、引き継ぎません。
+     */
+    private TaskSortIndex removed(List<Task> nextTasks) {
+        int[][] nextBases = new int[ORDERS][];
+        BitSet[] nextChanges = new BitSet[ORDERS];
+
+        // この版の位置ごとの、次の版での位置（取り除かれた場合は-1）
+        int[] moved = new int[tasks.size()];
+        int kept = 0;
+        for (int i = 0; i < tasks.size(); i++) {
+            if (kept < nextTasks.size() && tasks.get(i) == nextTasks.get(kept)) {
+                moved[i] = kept++;
+            } else {
+                moved[i] = -1;
+            }
+        }
+        if (kept != nextTasks.size()) {
+            return new TaskSortIndex(nextTasks, nextBases, nextChanges);
+        }
+
+        for (int i = 0; i < ORDERS; i++) {
+            int[] permutation = permutations.get(i);
+            if (permutation != null) {
+                nextBases[i] = move(permutation, moved);
+                nextChanges[i] = new BitSet();
+            } else if (bases[i] != null) {
+                BitSet changed = new BitSet();
+                changes[i].stream()
+                        .filter(position -> position < moved.length && moved[position] >= 0)
+                        .forEach(position -> changed.set(moved[position]));
+                nextBases[i] = move(bases[i], moved);
+                nextChanges[i] = changed;
+            }
+        }
+        return new TaskSortIndex(nextTasks, nextBases, nextChanges);
+    }
+
+    private static int[] move(int[] positions, int[] moved) {
+        return Arrays.stream(positions)
+                .map(position -> moved[position])
+                .filter(position -> position >= 0)
+                .toArray();
+    }
+
+    /**
+     * この版と次の版で、タスクが入れ替わった位置と追加された位置を返します。
+     */
+    private BitSet changedPositions(List<Task> nextTasks) {
+        BitSet changed = new BitSet(nextTasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.get(i) != nextTasks.get(i)) {
+                changed.set(i);
+            }
+        }
+        changed.set(tasks.size(), nextTasks.size());
+        return changed;
+    }
+
+    private int[] build(TaskOrder order) {
+        Integer[] positions = new Integer[tasks.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = i;
+        }
+        Arrays.sort(positions, comparator(order));
+        return Arrays.stream(positions).mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * 変わっていない位置は前の順列の順番のまま残し、変わった位置だけを並べ替えて合わせます。
+     */
+    private int[] merge(int[] base, BitSet changed, TaskOrder order) {
+        Comparator<Integer> comparator = comparator(order);
+
+        Integer[] inserted = changed.stream().boxed().toArray(Integer[]::new);
+        Arrays.sort(inserted, comparator);
+
+        int[] merged = new int[tasks.size()];
+        int count = 0;
+        int next = 0;
+        for (int position : base) {
+            if (changed.get(position)) {
+                continue;
+            }
+            while (next < inserted.length && comparator.compare(inserted[next], position) < 0) {
+                merged[count++] = inserted[next++];
+            }
+            merged[count++] = position;
+        }
+        while (next < inserted.length) {
+            merged[count++] = inserted[next++];
+        }
+        return merged;
+    }
+
+    private Comparator<Integer> comparator(TaskOrder order) {
+        Comparator<Task> byTask = order.comparator();
+        return (a, b) -> {
+            int result = byTask.compare(tasks.get(a), tasks.get(b));
+            return result != 0 ? result : Integer.compare(a, b);
+        };
+    }
+}
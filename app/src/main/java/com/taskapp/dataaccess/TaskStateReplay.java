@@ -0,0 +1,292 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+import com.taskapp.model.Log;
+import com.taskapp.model.LogSummary;
+import com.taskapp.model.TaskState;
+
+/**
+ * ログを最初から適用し直して、タスクの状態を求めます。
+ *
+ * <p>
+ * ログはタスクコードごとに分けて並列に適用します。同じタスクのログは同じ区分に入るため、適用する順番は変わりません。
+ * 一定の行数を適用するたびに、その時点の状態をチェックポイントファイルに保存し、
+ * 次回はチェックポイント以降に追記されたログだけを読み込んで適用します。
+ * </p>
+ *
+ * <p>
+ * チェックポイントは、含むログの最も新しい日付ごとに最大{@link #MAX_CHECKPOINTS}個まで残します。
+ * 指定した日の時点の状態を求める場合は、その日より後のログを含まない最新のチェックポイントから適用するため、
+ * 過去の日を指定しても最初から適用し直さずに済みます。
+ * </p>
+ *
+ * <p>
+ * チェックポイントファイルの1行目はタイトル行で、その後にチェックポイントごとに、
+ * 保存した時点のログの行数・最後のログ・最も新しい日付・状態の数の行と、タスクごとの状態の行が続きます。
+ * ログが書き直されて最後のログが一致しなくなったチェックポイントは使わず、次に保存する時に捨てます。
+ * </p>
+ */
+class TaskStateReplay {
+    /** チェックポイントを保存する間隔（ログの行数） */
+    static final int CHECKPOINT_INTERVAL = Integer.getInteger("taskapp.replay.checkpointInterval", 1000);
+
+    /** この行数より少なければ並列にしない */
+    private static final int PARALLEL_THRESHOLD = 10_000;
+
+    /** 残すチェックポイントの数 */
+    static final int MAX_CHECKPOINTS = Integer.getInteger("taskapp.replay.checkpoints", 16);
+
+    private static final String HEADER = "Rows,Last_Task_Code,Last_Change_User_Code,Last_Status,Last_Change_Date,Max_Change_Date,States";
+
+    private final Path path;
+
+    private final int interval;
+
+    /** 読み込んだチェックポイント（ログの行数順。読み込んでいない場合はnull） */
+    private List<Checkpoint> checkpoints;
+
+    /**
+     * @param path チェックポイントファイル
+     */
+    TaskStateReplay(Path path) {
+        this(path, CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * @param path     チェックポイントファイル
+     * @param interval チェックポイントを保存する間隔（ログの行数）
+     */
+    TaskStateReplay(Path path, int interval) {
+        this.path = path;
+        this.interval = interval;
+    }
+
+    /**
+     * ログを適用してタスクの状態を求めます。
+     * ログはチェックポイント以降の行だけを読み込みます。
+     *
+     * @param reader    ログファイル（読み込み済みの状態で、書かれた順）
+     * @param summaries 保存期間を過ぎて削除されたログのまとめ
+     * @param asOf      この日までのログを適用する（nullの場合は全て）
+     * @return タスクコード順の状態
+     * @throws IOException チェックポイントを読み書きできなかった場合
+     */
+    synchronized Map<Integer, TaskState> replay(IncrementalCsvReader<Log> reader, List<LogSummary> summaries,
+            LocalDate asOf) throws IOException {
+        List<Checkpoint> valid = validCheckpoints(reader);
+
+        // 指定した日より後のログを含むチェックポイントは使えない
+        Checkpoint base = null;
+        for (Checkpoint checkpoint : valid) {
+            if (asOf == null || checkpoint.maxDate == null || !checkpoint.maxDate.isAfter(asOf)) {
+                base = checkpoint;
+            }
+        }
+
+        Map<Integer, TaskState> states;
+        int from;
+        if (base == null) {
+            states = seed(summaries, asOf);
+            from = 0;
+        } else {
+            states = new HashMap<>();
+            base.states.forEach((code, state) -> states.put(code, state.copy()));
+            from = base.rows;
+        }
+
+        List<Log> logs = reader.rowsFrom(from);
+        apply(states, logs, asOf);
+
+        // 全てのログを適用した時だけ、チェックポイントを進める
+        if (asOf == null && logs.size() >= interval) {
+            save(valid, new Checkpoint(from + logs.size(), logs.get(logs.size() - 1), maxDate(base, logs), states));
+        }
+        return new TreeMap<>(states);
+    }
+
+    /**
+     * ログを区分ごとに並列で適用します。
+     */
+    private static void apply(Map<Integer, TaskState> states, List<Log> logs, LocalDate asOf) {
+        int size = logs.size();
+        if (size <= 0) {
+            return;
+        }
+
+        int partitions = size < PARALLEL_THRESHOLD ? 1 : Runtime.getRuntime().availableProcessors();
+        List<List<Log>> buckets = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            buckets.add(new ArrayList<>(size / partitions + 1));
+        }
+        for (Log log : logs) {
+            if (asOf == null || !log.getChangeDate().isAfter(asOf)) {
+                buckets.get(Math.floorMod(log.getTaskCode(), partitions)).add(log);
+            }
+        }
+
+        List<Map<Integer, TaskState>> results = IntStream.range(0, partitions)
+                .parallel()
+                .mapToObj(partition -> {
+                    Map<Integer, TaskState> partial = new HashMap<>();
+                    for (Log log : buckets.get(partition)) {
+                        TaskState state = partial.get(log.getTaskCode());
+                        if (state == null) {
+                            TaskState previous = states.get(log.getTaskCode());
+                            state = previous == null
+                                    ? new TaskState(log.getTaskCode(), 0, 0, null, null)
+                                    : previous.copy();
+                            partial.put(log.getTaskCode(), state);
+                        }
+                        state.apply(log);
+                    }
+                    return partial;
+                })
+                .toList();
+
+        // 区分ごとにタスクコードが重ならないため、そのまま合わせられる
+        results.forEach(states::putAll);
+    }
+
+    /**
+     * 削除されたログのまとめから、最初の状態を作ります。
+     */
+    private static Map<Integer, TaskState> seed(List<LogSummary> summaries, LocalDate asOf) {
+        Map<Integer, TaskState> states = new HashMap<>();
+        for (LogSummary summary : summaries) {
+            if (asOf == null || !summary.getLastChangeDate().isAfter(asOf)) {
+                states.put(summary.getTaskCode(), new TaskState(summary.getTaskCode(), summary.getLastStatus(), 0,
+                        summary.getFirstChangeDate(), summary.getLastChangeDate()));
+            }
+        }
+        return states;
+    }
+
+    private static LocalDate maxDate(Checkpoint base, List<Log> logs) {
+        LocalDate max = base == null ? null : base.maxDate;
+        for (Log log : logs) {
+            if (max == null || log.getChangeDate().isAfter(max)) {
+                max = log.getChangeDate();
+            }
+        }
+        return max;
+    }
+
+    /**
+     * 現在のログに対して使えるチェックポイントを、ログの行数順に返します。
+     */
+    private List<Checkpoint> validCheckpoints(IncrementalCsvReader<Log> reader) throws IOException {
+        if (checkpoints == null) {
+            checkpoints = load();
+        }
+        int size = reader.size();
+        List<Checkpoint> valid = new ArrayList<>();
+        for (Checkpoint checkpoint : checkpoints) {
+            if (checkpoint.rows == 0 || checkpoint.rows > size) {
+                continue;
+            }
+            Log last = reader.get(checkpoint.rows - 1);
+            if (last.getTaskCode() == checkpoint.last.getTaskCode()
+                    && last.getChangeUserCode() == checkpoint.last.getChangeUserCode()
+                    && last.getStatus() == checkpoint.last.getStatus()
+                    && last.getChangeDate().equals(checkpoint.last.getChangeDate())) {
+                valid.add(checkpoint);
+            }
+        }
+        return valid;
+    }
+
+    private List<Checkpoint> load() throws IOException {
+        List<Checkpoint> loaded = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return loaded;
+        }
+
+        List<String> lines = Files.readAllLines(path);
+        int index = 1;
+        while (index < lines.size()) {
+            String[] meta = lines.get(index++).split(",");
+            if (meta.length < 6) {
+                continue;
+            }
+            Log last = new Log(Integer.parseInt(meta[1]), Integer.parseInt(meta[2]), Integer.parseInt(meta[3]),
+                    LocalDate.parse(meta[4]));
+
+            // 状態の数がない場合は、残りの行が全て状態
+            int count = meta.length > 6 ? Integer.parseInt(meta[6]) : lines.size() - index;
+            Map<Integer, TaskState> states = new HashMap<>();
+            for (String line : lines.subList(index, Math.min(index + count, lines.size()))) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] values = line.split(",");
+                TaskState state = new TaskState(Integer.parseInt(values[0]), Integer.parseInt(values[1]),
+                        Integer.parseInt(values[2]), LocalDate.parse(values[3]), LocalDate.parse(values[4]));
+                states.put(state.getTaskCode(), state);
+            }
+            index += count;
+            loaded.add(new Checkpoint(Integer.parseInt(meta[0]), last,
+                    meta[5].equals("null") ? null : LocalDate.parse(meta[5]), states));
+        }
+        return loaded;
+    }
+
+    /**
+     * 使えるチェックポイントに新しいチェックポイントを加えて保存します。
+     * 最も新しい日付が同じチェックポイントは、ログの行数が多い方だけを残します。
+     */
+    private void save(List<Checkpoint> valid, Checkpoint next) throws IOException {
+        // 保持するチェックポイントは、呼び出し元に返す状態と共有しない
+        Map<Integer, TaskState> copied = new HashMap<>();
+        next.states.forEach((code, state) -> copied.put(code, state.copy()));
+
+        List<Checkpoint> kept = new ArrayList<>(valid);
+        if (!kept.isEmpty() && Objects.equals(kept.get(kept.size() - 1).maxDate, next.maxDate)) {
+            kept.remove(kept.size() - 1);
+        }
+        kept.add(new Checkpoint(next.rows, next.last, next.maxDate, copied));
+        while (kept.size() > MAX_CHECKPOINTS) {
+            kept.remove(0);
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (Checkpoint checkpoint : kept) {
+            lines.add(checkpoint.rows + "," + checkpoint.last.getTaskCode() + ","
+                    + checkpoint.last.getChangeUserCode() + "," + checkpoint.last.getStatus() + ","
+                    + checkpoint.last.getChangeDate() + "," + checkpoint.maxDate + "," + checkpoint.states.size());
+            for (TaskState state : new TreeMap<>(checkpoint.states).values()) {
+                lines.add(state.getTaskCode() + "," + state.getStatus() + "," + state.getLastChangeUserCode() + ","
+                        + state.getCreatedDate() + "," + state.getLastChangeDate());
+            }
+        }
+        CsvFiles.writeAll(path, HEADER, lines);
+        checkpoints = kept;
+    }
+
+    /**
+     * ある行数までのログを適用した状態です。
+     */
+    private static final class Checkpoint {
+        private final int rows;
+        private final Log last;
+        private final LocalDate maxDate;
+        private final Map<Integer, TaskState> states;
+
+        private Checkpoint(int rows, Log last, LocalDate maxDate, Map<Integer, TaskState> states) {
+            this.rows = rows;
+            this.last = last;
+            this.maxDate = maxDate;
+            this.states = states;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.taskapp.dataaccess;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+/**
+ * 削除されたタスクコードを記録するジャーナルです。
+ *
+ * <p>
+ * 削除のたびにCSV全体を書き直す代わりに、削除したコードをジャーナルファイルに追記します。
+ * 読み込み時はここに記録されたコードの行を除外し、
+ * 実際にCSVから取り除くのは{@link CsvCompactor}による圧縮の時だけです。
+ * </p>
+ */
+class TombstoneJournal {
+    private final Path path;
+
+    private final IntSet codes = new IntSet();
+
+    private FileStamp stamp;
+
+    /**
+     * @param path ジャーナルファイル
+     */
+    TombstoneJournal(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * 削除されたコードを返します。
+     *
+     * @return 削除されたコードの集合（コピー）
+     * @throws IOException ジャーナルを読み込めなかった場合
+     */
+    synchronized IntSet deletedCodes() throws IOException {
+        refresh();
+        return codes.copy();
+    }
+
+    /**
+     * コードが削除済みとして記録されているかを返します。
+     *
+     * @param code 確認するコード
+     * @return 記録されていればtrue
+     * @throws IOException ジャーナルを読み込めなかった場合
+     */
+    synchronized boolean contains(int code) throws IOException {
+        refresh();
+        return codes.contains(code);
+    }
+
+    /**
+     * 削除されたコードを追記します。
+     *
+     * @param deleted 削除されたコード
+     * @throws IOException ジャーナルに書き込めなかった場合
+     */
+    synchronized void add(Collection<Integer> deleted) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (int code : deleted) {
+                writer.write(String.valueOf(code));
+                writer.newLine();
+                codes.add(code);
+            }
+        }
+        // 他のプロセスが追記した分も読み直すため、次回は必ず読み込む
+        stamp = null;
+    }
+
+    /**
+     * 圧縮が終わったジャーナルを空にします。
+     *
+     * @throws IOException ジャーナルを削除できなかった場合
+     */
+    synchronized void clear() throws IOException {
+        Files.deleteIfExists(path);
+        codes.clear();
+        stamp = FileStamp.MISSING;
+    }
+
+    private void refresh() throws IOException {
+        FileStamp current = FileStamp.of(path);
+        if (current.equals(stamp)) {
+            return;
+        }
+
+        codes.clear();
+        if (current != FileStamp.MISSING) {
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                if (!line.isBlank()) {
+                    codes.add(Integer.parseInt(line.strip()));
+                }
+            }
+        }
+        stamp = current;
+    }
+}
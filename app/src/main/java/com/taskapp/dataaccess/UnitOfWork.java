@@ -0,0 +1,677 @@
+package com.taskapp.dataaccess;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import com.taskapp.model.Log;
+import com.taskapp.model.Task;
+
+/**
+ * タスクとログへの書き込みをまとめて反映するための作業単位です。
+ *
+ * <p>
+ * 作業単位を開始したスレッドで{@link TaskDataAccess#save(Task)}・{@link TaskDataAccess#update(Task)}・
+ * {@link TaskDataAccess#markDeleted(Collection)}・{@link LogDataAccess#save(Log)}・
+ * {@link LogDataAccess#markDeletedByTaskCodes(Collection)}を呼び出すと、ファイルには書き込まずに溜めておき、
+ * {@link #commit()}で全てを一度に書き込みます。コミットせずに閉じた場合は溜めた書き込みを破棄します。
+ * </p>
+ *
+ * <p>
+ * コミットでは、書き込む前のファイルの状態を復旧用のジャーナルに記録してから書き込みます。
+ * ディスクへの同期は{@link Durability}の方法に従い、SYNCの場合はジャーナル・CSVの順に同期します。
+ * 書き込みの途中でプロセスが終了した場合は、次にタスクのファイルを開いた時にジャーナルを基に元に戻すため、
+ * タスクだけが書き込まれてログが残らない、といった状態にはなりません。
+ * </p>
+ *
+ * <p>
+ * 作業単位の中で更に作業単位を開始すると、外側の作業単位の一部になります。
+ * 内側の作業単位をコミットせずに閉じた場合は、内側で溜めた書き込みだけを破棄します。
+ * 外側の作業単位をコミットするまでファイルには書き込まれないため、多くの処理を1回の書き込みにまとめられます。
+ * </p>
+ */
+public final class UnitOfWork implements AutoCloseable {
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private final TaskDataAccess taskDataAccess;
+
+    private final LogDataAccess logDataAccess;
+
+    /** 一番外側の作業単位（自身が一番外側の場合はnull） */
+    private final UnitOfWork root;
+
+    /** このスレッドで前に開始されていた別の作業単位 */
+    private final UnitOfWork previous;
+
+    /** 溜めている書き込み（一番外側の作業単位だけが持つ） */
+    private final List<Change> changes;
+
+    /** コミット後に実行する処理（一番外側の作業単位だけが持つ） */
+    private final List<Runnable> afterCommit;
+
+    /** 内側の作業単位を開始した時点の書き込みの数 */
+    private final int changeMark;
+
+    private final int afterCommitMark;
+
+    /** コミットする時に最新であるべきタスクの版（一番外側の作業単位だけが持ち、確かめない場合はnull） */
+    private TaskSnapshot expected;
+
+    private boolean committed;
+
+    private boolean closed;
+
+    private UnitOfWork(TaskDataAccess taskDataAccess, LogDataAccess logDataAccess, UnitOfWork root,
+            UnitOfWork previous) {
+        this.taskDataAccess = taskDataAccess;
+        this.logDataAccess = logDataAccess;
+        this.root = root;
+        this.previous = previous;
+        if (root == null) {
+            this.changes = new ArrayList<>();
+            this.afterCommit = new ArrayList<>();
+            this.changeMark = 0;
+            this.afterCommitMark = 0;
+        } else {
+            this.changes = root.changes;
+            this.afterCommit = root.afterCommit;
+            this.changeMark = changes.size();
+            this.afterCommitMark = afterCommit.size();
+        }
+    }
+
+    /**
+     * このスレッドで作業単位を開始します。
+     * 既に同じデータアクセスの作業単位が開始されている場合は、その一部になります。
+     *
+     * @param taskDataAccess タスクのデータアクセス
+     * @param logDataAccess  ログのデータアクセス
+     * @return 開始した作業単位
+     */
+    public static UnitOfWork begin(TaskDataAccess taskDataAccess, LogDataAccess logDataAccess) {
+        UnitOfWork current = CURRENT.get();
+        if (current != null && current.taskDataAccess == taskDataAccess
+                && current.logDataAccess == logDataAccess) {
+            return new UnitOfWork(taskDataAccess, logDataAccess, current, null);
+        }
+
+        UnitOfWork work = new UnitOfWork(taskDataAccess, logDataAccess, null, current);
+        CURRENT.set(work);
+        return work;
+    }
+
+    /**
+     * このスレッドで開始されている一番外側の作業単位を返します。
+     *
+     * @return 作業単位（開始されていない場合はnull）
+     */
+    public static UnitOfWork current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * データアクセスが参加している作業単位を返します。
+     *
+     * @param dataAccess タスクまたはログのデータアクセス
+     * @return 作業単位（参加していない場合はnull）
+     */
+    static UnitOfWork current(Object dataAccess) {
+        UnitOfWork work = CURRENT.get();
+        if (work != null && (work.taskDataAccess == dataAccess || work.logDataAccess == dataAccess)) {
+            return work;
+        }
+        return null;
+    }
+
+    /**
+     * コミットした後に実行する処理を登録します。
+     * 作業単位が破棄された場合は実行しません。
+     *
+     * @param action 実行する処理
+     */
+    public void afterCommit(Runnable action) {
+        afterCommit.add(action);
+    }
+
+    /**
+     * コミットする時に、タスクの版が指定した版から変わっていないことを確かめます。
+     * 変わっていた場合、コミットは何も書き込まずに{@link StaleSnapshotException}をスローします。
+     * 画面に表示した版を基に判断した書き込みを、ファイルを読み直さずに行うために使います。
+     *
+     * @param taskSnapshot 画面に表示したタスクの版
+     */
+    public void expect(TaskSnapshot taskSnapshot) {
+        (root == null ? this : root).expected = taskSnapshot;
+    }
+
+    /**
+     * コミットする時に、タスクコードがまだ使われていないことを確かめます。
+     * 使われていた場合や、タスク・ログが削除済みとして記録されている場合、
+     * コミットは何も書き込まずに{@link DuplicateTaskCodeException}をスローします。
+     * 書き込む前に行った{@link TaskDataAccess#existsByCode(int)}の確認と書き込みの間に、
+     * 他のスレッド・プロセスが同じコードを登録した場合に備えて使います。
+     *
+     * @param code 新しく登録するタスクのコード
+     */
+    public void expectNewCode(int code) {
+        changes.add(new Change(Kind.NEW_CODE, null, null, code));
+    }
+
+    /**
+     * コミットする時に、タスクが全て指定したステータスであることを確かめます。
+     * 1つでも見つからないか、ステータスが違っていた場合、
+     * コミットは何も書き込まずに{@link StaleSnapshotException}をスローします。
+     * 確認はロックを取った後、この呼び出しより前に溜めた書き込みを反映した状態に対して行います。
+     *
+     * @param codes  確かめるタスクのコード
+     * @param status あるべきステータス
+     */
+    public void expectStatus(Collection<Integer> codes, int status) {
+        changes.add(new Change(Kind.EXPECT_STATUS, codes, status));
+    }
+
+    /**
+     * 溜めている書き込みをファイルに反映します。
+     * 内側の作業単位の場合は、外側の作業単位のコミットまで書き込みません。
+     *
+     * @throws StaleSnapshotException {@link #expect(TaskSnapshot)}で指定した版から変わっていた場合や、
+     *                                {@link #expectStatus(Collection, int)}で指定したステータスと違っていた場合
+     * @throws DuplicateTaskCodeException {@link #expectNewCode(int)}で指定したコードが使われていた場合
+     * @throws IOException            書き込めなかった場合（書き込み前の状態に戻します）
+     */
+    public void commit() throws IOException {
+        committed = true;
+        if (root != null) {
+            return;
+        }
+
+        write();
+
+        List<Runnable> actions = new ArrayList<>(afterCommit);
+        changes.clear();
+        afterCommit.clear();
+        actions.forEach(Runnable::run);
+    }
+
+    /**
+     * 作業単位を終了します。
+     * コミットしていない場合は、この作業単位で溜めた書き込みを破棄します。
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        if (!committed) {
+            changes.subList(changeMark, changes.size()).clear();
+            afterCommit.subList(afterCommitMark, afterCommit.size()).clear();
+        }
+        if (root == null) {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    void stageSave(Task task) {
+        changes.add(new Change(Kind.SAVE_TASK, task, null));
+    }
+
+    void stageUpdate(Task task) {
+        changes.add(new Change(Kind.UPDATE_TASK, task, null));
+    }
+
+    void stageSave(Log log) {
+        changes.add(new Change(Kind.SAVE_LOG, null, log));
+    }
+
+    void stageDelete(Collection<Integer> codes) {
+        changes.add(new Change(Kind.DELETE_TASK, codes, 0));
+    }
+
+    void stageDeleteLogs(Collection<Integer> taskCodes) {
+        changes.add(new Change(Kind.DELETE_LOGS, taskCodes, 0));
+    }
+
+    /**
+     * 溜めている書き込みを反映した後のタスクを返します。
+     *
+     * @param tasks ファイルから読み込んだタスク
+     * @return 書き込みを反映したタスク
+     */
+    List<Task> applyTo(List<Task> tasks) {
+        try {
+            apply(tasks, TaskCounts.EMPTY, new ArrayList<>(), new ArrayList<>(), false);
+        } catch (StaleSnapshotException e) {
+            // 確かめない場合はスローされない
+            throw new IllegalStateException(e);
+        }
+        return tasks;
+    }
+
+    /**
+     * 溜めている書き込みをタスクに反映し、タスク数にも差分を反映します。
+     *
+     * @param tasks   書き込みを反映するタスク
+     * @param counts  書き込み前のタスク数
+     * @param removed 更新する前のタスクや削除したタスクを加える
+     * @param added   加えた、または更新した後のタスクを加える
+     * @param verify  {@link #expectStatus(Collection, int)}の確認を行う場合はtrue
+     * @return 書き込み後のタスク数
+     * @throws StaleSnapshotException 確認したタスクのステータスが違っていた場合
+     */
+    private TaskCounts apply(List<Task> tasks, TaskCounts counts, List<Task> removed, List<Task> added,
+            boolean verify) throws StaleSnapshotException {
+        for (Change change : changes) {
+            if (change.kind == Kind.SAVE_TASK) {
+                tasks.add(change.task);
+                counts = counts.plus(change.task);
+                added.add(change.task);
+            } else if (change.kind == Kind.UPDATE_TASK) {
+                for (int i = 0; i < tasks.size(); i++) {
+                    if (tasks.get(i).getCode() == change.task.getCode()) {
+                        counts = counts.minus(tasks.get(i)).plus(change.task);
+                        removed.add(tasks.get(i));
+                        added.add(change.task);
+                        tasks.set(i, change.task);
+                    }
+                }
+            } else if (change.kind == Kind.DELETE_TASK) {
+                Iterator<Task> iterator = tasks.iterator();
+                while (iterator.hasNext()) {
+                    Task task = iterator.next();
+                    if (change.codeSet.contains(task.getCode())) {
+                        counts = counts.minus(task);
+                        removed.add(task);
+                        iterator.remove();
+                    }
+                }
+            } else if (change.kind == Kind.EXPECT_STATUS && verify) {
+                int matched = 0;
+                for (Task task : tasks) {
+                    if (change.codeSet.contains(task.getCode()) && task.getStatus() == change.code) {
+                        matched++;
+                    }
+                }
+                if (matched != change.codeSet.size()) {
+                    throw new StaleSnapshotException("タスクのステータスが他の操作で変更されています");
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * 溜めている書き込みを反映した後のログを返します。
+     *
+     * @param logs ファイルから読み込んだログ
+     * @return 書き込みを反映したログ
+     */
+    List<Log> applyToLogs(List<Log> logs) {
+        for (Change change : changes) {
+            if (change.kind == Kind.SAVE_LOG) {
+                logs.add(change.log);
+            } else if (change.kind == Kind.DELETE_LOGS) {
+                logs.removeIf(log -> change.codeSet.contains(log.getTaskCode()));
+            }
+        }
+        return logs;
+    }
+
+    /**
+     * 溜めている書き込みにタスクコードが含まれているかを確認します。
+     *
+     * @param code タスクコード
+     * @return 含まれていればtrue
+     */
+    boolean containsTask(int code) {
+        for (Change change : changes) {
+            if (change.kind == Kind.SAVE_TASK && change.task.getCode() == code) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 復旧用のジャーナルのパスを返します。
+     *
+     * @param tasksPath タスクのCSVファイル
+     * @return ジャーナルのパス
+     */
+    static Path journalPath(Path tasksPath) {
+        return tasksPath.resolveSibling(tasksPath.getFileName() + ".txn");
+    }
+
+    /**
+     * 途中で終了したコミットがあれば、書き込み前の状態に戻します。
+     *
+     * @param journal 復旧用のジャーナル
+     * @throws IOException 元に戻せなかった場合
+     */
+    static void recover(Path journal) throws IOException {
+        if (!Files.exists(journal)) {
+            return;
+        }
+
+        Path tasksPath = null;
+        Path logsPath = null;
+        Path replacement = null;
+        Path tasksTombstonePath = null;
+        Path logsTombstonePath = null;
+        long tasksSize = -1;
+        long logsSize = -1;
+        long tasksTombstoneSize = -1;
+        long logsTombstoneSize = -1;
+        boolean complete = false;
+        for (String line : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+            String[] values = line.split(",", 3);
+            switch (values[0]) {
+                case "tasks":
+                    tasksSize = Long.parseLong(values[1]);
+                    tasksPath = Paths.get(values[2]);
+                    break;
+                case "logs":
+                    logsSize = Long.parseLong(values[1]);
+                    logsPath = Paths.get(values[2]);
+                    break;
+                case "replace":
+                    replacement = Paths.get(values[2]);
+                    break;
+                case "tasksdel":
+                    tasksTombstoneSize = Long.parseLong(values[1]);
+                    tasksTombstonePath = Paths.get(values[2]);
+                    break;
+                case "logsdel":
+                    logsTombstoneSize = Long.parseLong(values[1]);
+                    logsTombstonePath = Paths.get(values[2]);
+                    break;
+                case "end":
+                    complete = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // ジャーナルを書き終える前に終了した場合は、まだ何も書き込んでいない
+        if (!complete) {
+            Files.deleteIfExists(journal);
+            return;
+        }
+
+        try (CsvFileLock.Handle tasksLock = CsvFileLock.forFile(tasksPath.toString()).exclusive();
+                CsvFileLock.Handle logsLock = CsvFileLock.forFile(logsPath.toString()).exclusive()) {
+            if (replacement == null) {
+                truncate(tasksPath, tasksSize);
+                truncate(logsPath, logsSize);
+                truncateTombstones(tasksTombstonePath, tasksTombstoneSize);
+                truncateTombstones(logsTombstonePath, logsTombstoneSize);
+            } else if (Files.exists(replacement)) {
+                // タスクのファイルを置き換える前に終了した
+                Files.delete(replacement);
+                truncate(logsPath, logsSize);
+                truncateTombstones(tasksTombstonePath, tasksTombstoneSize);
+                truncateTombstones(logsTombstonePath, logsTombstoneSize);
+            }
+            // 置き換えが済んでいれば、コミットは完了している
+            Files.deleteIfExists(journal);
+        }
+    }
+
+    /**
+     * 溜めている書き込みを、タスク・ログの順にロックを取って書き込みます。
+     */
+    private void write() throws IOException {
+        List<String> taskLines = new ArrayList<>();
+        List<String> logLines = new ArrayList<>();
+        List<Log> logs = new ArrayList<>();
+        List<Task> updates = new ArrayList<>();
+        List<Integer> newCodes = new ArrayList<>();
+        List<Integer> deletes = new ArrayList<>();
+        List<Integer> logDeletes = new ArrayList<>();
+        for (Change change : changes) {
+            switch (change.kind) {
+                case SAVE_TASK:
+                    taskLines.add(taskDataAccess.createLine(change.task));
+                    break;
+                case UPDATE_TASK:
+                    updates.add(change.task);
+                    break;
+                case SAVE_LOG:
+                    logLines.add(logDataAccess.createLine(change.log));
+                    logs.add(change.log);
+                    break;
+                case NEW_CODE:
+                    newCodes.add(change.code);
+                    break;
+                case DELETE_TASK:
+                    deletes.addAll(change.codes);
+                    break;
+                case DELETE_LOGS:
+                    logDeletes.addAll(change.codes);
+                    break;
+                case EXPECT_STATUS:
+                    break;
+            }
+        }
+        boolean updated = !updates.isEmpty();
+        if (taskLines.isEmpty() && logLines.isEmpty() && !updated && deletes.isEmpty() && logDeletes.isEmpty()) {
+            return;
+        }
+        // まとめて書き込む場合は、更新をタスクの版にだけ反映し、ファイルの書き直しを遅らせる
+        boolean deferred = updated && WriteCoalescing.enabled();
+
+        Path tasksPath = taskDataAccess.path();
+        Path logsPath = logDataAccess.path();
+        Path journal = journalPath(tasksPath);
+
+        try (CsvFileLock.Handle tasksLock = taskDataAccess.fileLock().exclusive();
+                CsvFileLock.Handle logsLock = logDataAccess.fileLock().exclusive()) {
+            recover(journal);
+            TaskSnapshot before = taskDataAccess.snapshot();
+            if (expected != null && expected != before) {
+                throw new StaleSnapshotException("タスクが他の操作で変更されています");
+            }
+            // 確認してからロックを取るまでに、他のスレッド・プロセスが登録していないかを確かめ直す
+            for (int code : newCodes) {
+                if (taskDataAccess.isCodeUsed(code) || logDataAccess.isDeletedTaskCode(code)) {
+                    throw new DuplicateTaskCodeException("タスクコード" + code + "は既に使われています");
+                }
+            }
+            List<Task> tasks = new ArrayList<>(before.tasks());
+            List<Task> removed = new ArrayList<>();
+            List<Task> added = new ArrayList<>();
+            TaskCounts counts = apply(tasks, before.counts(), removed, added, true);
+
+            // 更新がある場合は、タスクのファイル全体を一時ファイルに書き出して置き換える
+            Path replacement = null;
+            if (updated && !deferred) {
+                replacement = tasksPath.resolveSibling(tasksPath.getFileName() + ".new");
+                List<String> lines = new ArrayList<>();
+                lines.add("Code,Name,Status,Rep_User_Code");
+                for (Task task : tasks) {
+                    lines.add(taskDataAccess.createLine(task));
+                }
+                writeFile(replacement, String.join("\n", lines));
+            }
+
+            StringBuilder record = new StringBuilder();
+            record.append("tasks,").append(Files.size(tasksPath)).append(',').append(tasksPath).append('\n');
+            record.append("logs,").append(Files.size(logsPath)).append(',').append(logsPath).append('\n');
+            if (replacement != null) {
+                record.append("replace,0,").append(replacement).append('\n');
+            }
+            // 削除の記録も、タスクとログの両方を同じコミットで書き込む
+            Path tasksTombstonePath = taskDataAccess.tombstonePath();
+            Path logsTombstonePath = logDataAccess.tombstonePath();
+            if (!deletes.isEmpty()) {
+                record.append("tasksdel,").append(sizeOf(tasksTombstonePath)).append(',')
+                        .append(tasksTombstonePath).append('\n');
+            }
+            if (!logDeletes.isEmpty()) {
+                record.append("logsdel,").append(sizeOf(logsTombstonePath)).append(',')
+                        .append(logsTombstonePath).append('\n');
+            }
+            record.append("end\n");
+            writeFile(journal, record.toString());
+
+            try {
+                append(logsPath, logLines);
+                if (!logDeletes.isEmpty()) {
+                    logDataAccess.addTombstones(logDeletes);
+                }
+                if (!deletes.isEmpty()) {
+                    taskDataAccess.addTombstones(deletes);
+                }
+                if (replacement != null) {
+                    Files.move(replacement, tasksPath, StandardCopyOption.REPLACE_EXISTING,
+                            StandardCopyOption.ATOMIC_MOVE);
+                    // SYNCでは置き換える前に内容を同期済みのため、ディレクトリだけを同期する
+                    if (Durability.mode() != Durability.Mode.SYNC) {
+                        Durability.written(tasksPath, changes.size());
+                    } else {
+                        Durability.forceDirectoryIfSync(tasksPath);
+                    }
+                } else if (!taskLines.isEmpty()) {
+                    FileStamp stamp = FileStamp.of(tasksPath);
+                    append(tasksPath, taskLines);
+                    taskDataAccess.appended(stamp);
+                }
+            } catch (IOException e) {
+                recover(journal);
+                throw e;
+            }
+            Files.delete(journal);
+            taskDataAccess.publish(tasks, counts, removed, added);
+            if (deferred) {
+                taskDataAccess.defer(updates);
+            } else if (replacement != null) {
+                taskDataAccess.written();
+            }
+            logDataAccess.rollUp(logs);
+            if (!deletes.isEmpty()) {
+                taskDataAccess.deleted(IntSet.of(deletes));
+            }
+            if (!logDeletes.isEmpty()) {
+                logDataAccess.deleted();
+            }
+        }
+    }
+
+    /**
+     * ジャーナルや置き換え用のファイルを書き出します。
+     * SYNCの場合は、CSVに書き込む前にディスクに同期します。
+     */
+    private static void writeFile(Path path, String content) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+            Durability.forceIfSync(channel);
+        }
+    }
+
+    private static void append(Path path, List<String> lines) throws IOException {
+        if (lines.isEmpty()) {
+            return;
+        }
+        StringBuilder content = new StringBuilder();
+        for (String line : lines) {
+            content.append('\n').append(line);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8)));
+            Durability.written(channel, path, lines.size());
+        }
+    }
+
+    private static long sizeOf(Path path) throws IOException {
+        return Files.exists(path) ? Files.size(path) : 0;
+    }
+
+    /**
+     * 削除の記録をコミット前の大きさに戻します。コミット前に無かった場合は削除します。
+     */
+    private static void truncateTombstones(Path path, long size) throws IOException {
+        if (path == null) {
+            return;
+        }
+        if (size == 0) {
+            Files.deleteIfExists(path);
+        } else if (Files.exists(path)) {
+            truncate(path, size);
+        }
+    }
+
+    private static void truncate(Path path, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            if (channel.size() > size) {
+                channel.truncate(size);
+                channel.force(false);
+            }
+        }
+    }
+
+    private enum Kind {
+        SAVE_TASK, UPDATE_TASK, SAVE_LOG,
+
+        /** タスク・ログを削除済みとして記録する */
+        DELETE_TASK, DELETE_LOGS,
+
+        /** 書き込みではなく、コミットする時にタスクコードが使われていないことを確かめる */
+        NEW_CODE,
+
+        /** 書き込みではなく、コミットする時にタスクのステータスを確かめる */
+        EXPECT_STATUS
+    }
+
+    /**
+     * 溜めている1件の書き込みです。
+     */
+    private static final class Change {
+        private final Kind kind;
+        private final Task task;
+        private final Log log;
+        /** 確かめるタスクコード（NEW_CODEの場合）、またはあるべきステータス（EXPECT_STATUSの場合） */
+        private final int code;
+        /** 削除する、または確かめるタスクコード（DELETE_TASK・DELETE_LOGS・EXPECT_STATUSの場合） */
+        private final List<Integer> codes;
+        private final IntSet codeSet;
+
+        private Change(Kind kind, Task task, Log log) {
+            this(kind, task, log, 0);
+        }
+
+        private Change(Kind kind, Task task, Log log, int code) {
+            this.kind = kind;
+            this.task = task;
+            this.log = log;
+            this.code = code;
+            this.codes = List.of();
+            this.codeSet = null;
+        }
+
+        private Change(Kind kind, Collection<Integer> codes, int code) {
+            this.kind = kind;
+            this.task = null;
+            this.log = null;
+            this.code = code;
+            this.codes = List.copyOf(codes);
+            this.codeSet = IntSet.of(codes);
+        }
+    }
+}
@@ -3,14 +3,29 @@ package com.taskapp.dataaccess;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
 
 import com.taskapp.model.User;
 
 public class UserDataAccess {
     private final String filePath;
 
+    /** メールアドレス・ユーザーコードの索引とユーザーコードのブルームフィルター（まだ作っていない場合はnull） */
+    private UserIndex index;
+
+    /** 索引を作った時のファイルのスタンプ */
+    private FileStamp indexStamp;
+
     public UserDataAccess() {
-        filePath = "app/src/main/resources/users.csv";
+        this("app/src/main/resources/users.csv");
     }
 
     /**
@@ -24,51 +39,152 @@ public class UserDataAccess {
 
     /**
      * メールアドレスとパスワードを基にユーザーデータを探します。
-     * 
+     * メールアドレスは索引から探し、パスワードはハッシュ（ハッシュ化する前の平文も可）と照合します。
+     * 平文のパスワードで照合に成功した場合は、そのユーザーのパスワードをハッシュに書き換えます。
+     * {@link LoginCache}でセッションを開始している場合、そのセッションで一度照合に成功したパスワードは、
+     * しばらくの間ハッシュの計算を省いて照合します。
+     *
+     * @see LoginCache#begin()
      * @param email    メールアドレス
      * @param password パスワード
      * @return 見つかったユーザー
      */
     public User findByEmailAndPassword(String email, String password) {
+        UserIndex current;
+        try {
+            current = index();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
 
-        User user = null;
+        User user = current.byEmail.get(email);
+        if (user == null) {
+            return null;
+        }
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
+        LoginCache cache = LoginCache.current();
+        if (cache != null && cache.matches(email, user.getPassword(), password)) {
+            return user;
+        }
 
-            // タイトル飛ばし
-            reader.readLine();
+        if (!PasswordHasher.verify(password, user.getPassword())) {
+            return null;
+        }
+        if (!PasswordHasher.isHashed(user.getPassword())) {
+            // 書き換えると保存されている値が変わるため、照合結果は覚えない
+            rehash(user);
+            return user;
+        }
+        if (cache != null) {
+            cache.verified(email, user.getPassword(), password);
+        }
+        return user;
+    }
 
-            while ((line = reader.readLine()) != null) {
-                String[] value1 = line.split(",");
+    /**
+     * コードを基にユーザーデータを取得します。
+     * ファイルが変わっていなければ、ファイルを読まずに索引から探します。
+     * 存在しないコードはブルームフィルターで判定し、索引を引かずにnullを返します。
+     *
+     * @param code 取得するユーザーのコード
+     * @return 見つかったユーザー
+     */
+    public User findByCode(int code) {
+        UserIndex current;
+        try {
+            current = index();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
 
-                if (!(value1[2].equals(email) && value1[3].equals(password))) {// 一致しなかったらやり直し
-                    continue;
-                }
+        if (!current.codes.mightContain(code)) {
+            return null;
+        }
+        return current.byCode.get(code);
+    }
+
+    /**
+     * 平文のまま保存されているパスワードを、ソルト付きのハッシュに書き換えます。
+     * ハッシュ化済みのパスワードはそのまま残します。
+     *
+     * @return 書き換えたパスワードの数
+     */
+    public int hashPasswords() {
+        return hashPlaintext(values -> true);
+    }
 
-                user = new User(
-                        Integer.parseInt(value1[0]),
-                        value1[1],
-                        value1[2],
-                        value1[3]);
+    /**
+     * 平文のパスワードでログインしたユーザーのパスワードを、ハッシュに書き換えます。
+     * 照合してから書き換えるまでに、他の利用者がパスワードを変えていた場合は書き換えません。
+     *
+     * @param user 平文のパスワードで照合に成功したユーザー
+     */
+    private void rehash(User user) {
+        String code = String.valueOf(user.getCode());
+        hashPlaintext(values -> values[0].equals(code) && values[3].equals(user.getPassword()));
+    }
 
+    /**
+     * 平文のまま保存されているパスワードのうち、対象の行のものをハッシュに書き換えます。
+     * ファイルは排他ロックを取って読み直し、一時ファイルに書き出してから置き換えます。
+     *
+     * @param target 書き換える行か（引数は行を区切った値）
+     * @return 書き換えたパスワードの数
+     */
+    private int hashPlaintext(Predicate<String[]> target) {
+        Path path = Paths.get(filePath);
+        int hashed = 0;
+
+        try (CsvFileLock.Handle lock = CsvFileLock.forFile(filePath).exclusive()) {
+            List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+            if (lines.isEmpty()) {
+                return 0;
             }
 
+            List<String> rows = new ArrayList<>();
+            for (String line : lines.subList(1, lines.size())) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] values = line.split(",");
+                if (values.length == 4 && !PasswordHasher.isHashed(values[3]) && target.test(values)) {
+                    line = values[0] + "," + values[1] + "," + values[2] + "," + PasswordHasher.hash(values[3]);
+                    hashed++;
+                }
+                rows.add(line);
+            }
+
+            if (hashed > 0) {
+                CsvFiles.writeAll(path, lines.get(0), rows);
+            }
         } catch (IOException e) {
             e.printStackTrace();
+            return 0;
         }
-        return user;
+        return hashed;
     }
 
     /**
-     * コードを基にユーザーデータを取得します。
-     * 
-     * @param code 取得するユーザーのコード
-     * @return 見つかったユーザー
+     * 索引を返します。ファイルが変わっていた場合は作り直します。
+     * 平文のパスワードが残っている間は、作り直すたびに警告を出します。
      */
-    public User findByCode(int code) {
-        User user = null;
+    private synchronized UserIndex index() throws IOException {
+        FileStamp stamp = FileStamp.of(Paths.get(filePath));
+        if (index == null || !stamp.equals(indexStamp)) {
+            index = loadIndex();
+            indexStamp = stamp;
+            if (index.plaintext > 0) {
+                System.err.println("警告：" + filePath + "に平文のパスワードが" + index.plaintext
+                        + "件残っています（ログインした時、またはhashpasswordsでハッシュに書き換えます）");
+            }
+        }
+        return index;
+    }
 
+    private UserIndex loadIndex() throws IOException {
+        List<User> users = new ArrayList<>();
         try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
             String line;
 
@@ -76,23 +192,39 @@ public class UserDataAccess {
             reader.readLine();
 
             while ((line = reader.readLine()) != null) {
-                String[] value1 = line.split(",");
-
-                if (Integer.parseInt(value1[0]) != code) {// 一致しなかったらやり直し
+                if (line.isBlank()) {
                     continue;
                 }
+                String[] values = line.split(",");
+                users.add(new User(Integer.parseInt(values[0]), values[1], values[2], values[3]));
+            }
+        }
 
-                user = new User(
-                        Integer.parseInt(value1[0]),
-                        value1[1],
-                        value1[2],
-                        value1[3]);
-
+        UserIndex loaded = new UserIndex(users.size());
+        for (User user : users) {
+            // 同じメールアドレス・コードが複数ある場合は、後の行を使う
+            loaded.byEmail.put(user.getEmail(), user);
+            loaded.byCode.put(user.getCode(), user);
+            loaded.codes.add(user.getCode());
+            if (!PasswordHasher.isHashed(user.getPassword())) {
+                loaded.plaintext++;
             }
+        }
+        return loaded;
+    }
 
-        } catch (IOException e) {
-            e.printStackTrace();
+    private static final class UserIndex {
+        final Map<String, User> byEmail = new HashMap<>();
+
+        final Map<Integer, User> byCode = new HashMap<>();
+
+        final CodeBloomFilter codes;
+
+        /** 平文のまま保存されているパスワードの数 */
+        int plaintext;
+
+        UserIndex(int size) {
+            codes = new CodeBloomFilter(size);
         }
-        return user;
     }
 }
@@ -0,0 +1,99 @@
+package com.taskapp.dataaccess;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 短い間に続けて行われたタスクの更新をまとめて、tasks.csvの書き直しを減らします。
+ *
+ * <p>
+ * 有効にすると、ステータス変更などの更新はメモリ上のタスクの版にだけすぐ反映し、
+ * tasks.csvの書き直しは最初の更新から最大 taskapp.coalesce.maxDelayMillis ミリ秒遅らせます。
+ * その間に同じタスクが続けて更新された場合は、最後の状態だけを書き込みます。
+ * ログは更新のたびにすぐ追記するため、全ての行が順番どおりに残ります。
+ * 書き直すまでの時間は最初の更新から数えるため、更新が続いても遅延は最大の時間を超えません。
+ * </p>
+ *
+ * <p>
+ * 既定は0で、まとめずに更新のたびに書き直します。
+ * 遅らせている間は、他のプロセスからはまだ更新前のタスクが見えます。
+ * プロセスが正常に終了する場合は終了する前に書き込みますが、異常終了した場合は遅らせていた更新がtasks.csvに残りません（ログには残ります）。
+ * </p>
+ */
+public final class WriteCoalescing {
+
+    private static volatile long maxDelayMillis = Long.getLong("taskapp.coalesce.maxDelayMillis", 0);
+
+    /** 遅らせた書き込みを実行するスレッド */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "csv-coalesce");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** 書き込みを遅らせている更新があるデータアクセス */
+    private static final Set<TaskDataAccess> PENDING = ConcurrentHashMap.newKeySet();
+
+    static {
+        // 遅らせている更新を、プロセスが終了する前に書き込む
+        Runtime.getRuntime().addShutdownHook(new Thread(WriteCoalescing::flushAll, "csv-coalesce-shutdown"));
+    }
+
+    private WriteCoalescing() {
+    }
+
+    /**
+     * 書き込みを遅らせる最大の時間を返します。
+     *
+     * @return 最大の時間（ミリ秒、0の場合はまとめない）
+     */
+    public static long maxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * 書き込みを遅らせる最大の時間を変更します。
+     * 負荷試験などで、まとめる場合とまとめない場合の性能を比べるために使います。
+     * 0にする前に遅らせていた更新は、予定どおりに書き込みます。
+     *
+     * @param millis 最大の時間（ミリ秒、0の場合はまとめない）
+     */
+    public static void setMaxDelayMillis(long millis) {
+        maxDelayMillis = Math.max(millis, 0);
+    }
+
+    /**
+     * 遅らせている全ての更新を、すぐにファイルに書き込みます。
+     */
+    public static void flushAll() {
+        for (TaskDataAccess dataAccess : PENDING) {
+            flush(dataAccess);
+        }
+    }
+
+    static boolean enabled() {
+        return maxDelayMillis > 0;
+    }
+
+    /**
+     * 書き込みを遅らせた更新があることを登録します。
+     * まだ書き込む予定がなければ、最大の時間の後に書き込む予定を立てます。
+     *
+     * @param dataAccess 更新を遅らせているデータアクセス
+     */
+    static void deferred(TaskDataAccess dataAccess) {
+        if (PENDING.add(dataAccess)) {
+            SCHEDULER.schedule(() -> flush(dataAccess), Math.max(maxDelayMillis, 1), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void flush(TaskDataAccess dataAccess) {
+        // 先に登録を外し、書き込んでいる間に遅らせた更新は次の予定で書き込む
+        if (PENDING.remove(dataAccess)) {
+            dataAccess.flush();
+        }
+    }
+}
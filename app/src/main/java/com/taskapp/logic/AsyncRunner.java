@@ -0,0 +1,110 @@
+package com.taskapp.logic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * ロジックの処理を仮想スレッド上で非同期に実行します。
+ * CSVファイルごとに同時アクセス数の上限を設け、1つのファイルに処理が集中しすぎないようにします。
+ */
+public class AsyncRunner {
+    /** tasks.csvを表すキー */
+    public static final String TASKS = "tasks";
+
+    /** logs.csvを表すキー */
+    public static final String LOGS = "logs";
+
+    /** users.csvを表すキー */
+    public static final String USERS = "users";
+
+    /** 1ファイルあたりの同時アクセス数の上限 */
+    private static final int PERMITS_PER_FILE = Integer.getInteger("taskapp.async.permitsPerFile", 4);
+
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private static final Map<String, Semaphore> PERMITS = new ConcurrentHashMap<>();
+
+    private AsyncRunner() {
+    }
+
+    /**
+     * 仮想スレッドで処理を実行するExecutorを返します。
+     *
+     * @return 仮想スレッドのExecutor
+     */
+    static Executor executor() {
+        return EXECUTOR;
+    }
+
+    /**
+     * 処理を仮想スレッド上で実行し、結果をCompletableFutureで返します。
+     * 処理中にスローされた例外（AppExceptionを含む）はFutureの例外として返されます。
+     *
+     * @param action 実行する処理
+     * @param files  処理がアクセスするファイルのキー
+     * @return 処理結果のFuture
+     */
+    public static <T> CompletableFuture<T> supply(Callable<T> action, String... files) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+
+        EXECUTOR.execute(() -> {
+            List<Semaphore> acquired = new ArrayList<>();
+            try {
+                // デッドロックを避けるため、常に同じ順番で許可を取る
+                String[] keys = files.clone();
+                Arrays.sort(keys);
+                for (String key : keys) {
+                    Semaphore semaphore = PERMITS.computeIfAbsent(key, k -> new Semaphore(PERMITS_PER_FILE, true));
+                    semaphore.acquire();
+                    acquired.add(semaphore);
+                }
+
+                future.complete(action.call());
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.completeExceptionally(e);
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            } finally {
+                for (int i = acquired.size() - 1; i >= 0; i--) {
+                    acquired.get(i).release();
+                }
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * 戻り値のない処理を仮想スレッド上で実行します。
+     *
+     * @see #supply(Callable, String...)
+     * @param action 実行する処理
+     * @param files  処理がアクセスするファイルのキー
+     * @return 処理完了のFuture
+     */
+    public static CompletableFuture<Void> run(Action action, String... files) {
+        return supply(() -> {
+            action.run();
+            return null;
+        }, files);
+    }
+
+    /**
+     * 例外をスローできる戻り値のない処理です。
+     */
+    @FunctionalInterface
+    public interface Action {
+        void run() throws Exception;
+    }
+}
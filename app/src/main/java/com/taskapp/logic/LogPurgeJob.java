@@ -0,0 +1,66 @@
+package com.taskapp.logic;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.taskapp.dataaccess.LogDataAccess;
+import com.taskapp.dataaccess.LogRetentionPolicy;
+
+/**
+ * 保存方針に従って古いログを定期的に削除するジョブです。
+ * logs.csvが際限なく大きくなり、ログの読み込みが遅くなるのを防ぎます。
+ */
+public class LogPurgeJob implements AutoCloseable {
+    private final LogDataAccess logDataAccess;
+
+    private final LogRetentionPolicy policy;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "log-purge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public LogPurgeJob(LogDataAccess logDataAccess, LogRetentionPolicy policy) {
+        this.logDataAccess = logDataAccess;
+        this.policy = policy;
+    }
+
+    /**
+     * ジョブを開始します。初回はすぐに実行し、その後は指定した間隔で実行します。
+     *
+     * @param interval 実行する間隔
+     * @return このジョブ
+     */
+    public LogPurgeJob start(Duration interval) {
+        scheduler.scheduleWithFixedDelay(this::runOnce, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * 古いログの削除を1回実行します。
+     *
+     * @see com.taskapp.dataaccess.LogDataAccess#purge(LogRetentionPolicy, LocalDate)
+     * @return 削除したログの件数
+     */
+    public int runOnce() {
+        try {
+            return logDataAccess.purge(policy, LocalDate.now());
+        } catch (RuntimeException e) {
+            // 例外で定期実行が止まらないようにする
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * ジョブを終了します。
+     */
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,108 @@
+package com.taskapp.logic;
+
+import java.util.concurrent.Flow;
+
+import com.taskapp.model.TaskEvent;
+
+/**
+ * タスクイベントを受け取るサブスクライバーの基底クラスです。
+ * 一度に要求するイベント数を制限し、処理が終わった分だけ次を要求することで
+ * 発行側に対してバックプレッシャーをかけます。
+ *
+ * <p>
+ * {@link #onEvent(TaskEvent)}が例外を投げると、発行側はこのサブスクライバーの購読を解除します。
+ * {@link #subscribeTo(Flow.Publisher)}で購読した場合は、エラーを出力したうえで同じパブリッシャーを購読し直し、
+ * 以降のイベントを受け取り続けます。
+ * </p>
+ */
+public abstract class TaskEventSubscriber implements Flow.Subscriber<TaskEvent> {
+    private final int batchSize;
+
+    private Flow.Subscription subscription;
+
+    private int remaining;
+
+    /** 購読し直す先のパブリッシャー（{@link #subscribeTo(Flow.Publisher)}で購読した場合のみ） */
+    private Flow.Publisher<TaskEvent> publisher;
+
+    /** 直前のエラーが{@link #onEvent(TaskEvent)}の例外によるものか */
+    private boolean failedInEvent;
+
+    public TaskEventSubscriber() {
+        this(16);
+    }
+
+    /**
+     * @param batchSize 一度に要求するイベント数
+     */
+    public TaskEventSubscriber(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * パブリッシャーを購読します。
+     * イベントの処理中に例外が発生して購読が解除された場合は、同じパブリッシャーを購読し直します。
+     *
+     * @param publisher 購読するパブリッシャー
+     */
+    public void subscribeTo(Flow.Publisher<TaskEvent> publisher) {
+        this.publisher = publisher;
+        publisher.subscribe(this);
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        failedInEvent = false;
+        remaining = batchSize;
+        subscription.request(batchSize);
+    }
+
+    @Override
+    public void onNext(TaskEvent event) {
+        try {
+            onEvent(event);
+        } catch (RuntimeException e) {
+            failedInEvent = true;
+            throw e;
+        }
+
+        // 要求分を処理し終えたら次をまとめて要求する
+        if (--remaining == 0) {
+            remaining = batchSize;
+            subscription.request(batchSize);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        System.err.println(getName() + "：タスクイベントを処理できませんでした：" + throwable);
+        throwable.printStackTrace();
+
+        // パブリッシャー自体が閉じられた場合は、購読し直しても同じエラーになるため諦める
+        if (failedInEvent && publisher != null) {
+            System.err.println(getName() + "：タスクイベントを購読し直します");
+            publisher.subscribe(this);
+        }
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    /**
+     * エラーの出力に使う、このサブスクライバーの名前を返します。
+     *
+     * @return サブスクライバーの名前
+     */
+    protected String getName() {
+        return getClass().getName();
+    }
+
+    /**
+     * イベントを1件処理します。
+     *
+     * @param event 受け取ったイベント
+     */
+    protected abstract void onEvent(TaskEvent event);
+}
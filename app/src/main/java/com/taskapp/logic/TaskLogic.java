@@ -1,22 +1,59 @@
 package com.taskapp.logic;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
 
+import com.taskapp.dataaccess.CsvFileWatcher;
+import com.taskapp.dataaccess.DuplicateTaskCodeException;
 import com.taskapp.dataaccess.LogDataAccess;
+import com.taskapp.dataaccess.LogRetentionPolicy;
+import com.taskapp.dataaccess.StaleSnapshotException;
+import com.taskapp.dataaccess.TaskCounts;
 import com.taskapp.dataaccess.TaskDataAccess;
+import com.taskapp.dataaccess.TaskOrder;
+import com.taskapp.dataaccess.TaskSnapshot;
+import com.taskapp.dataaccess.UnitOfWork;
 import com.taskapp.dataaccess.UserDataAccess;
 import com.taskapp.exception.AppException;
+import com.taskapp.model.CycleTimeReport;
+import com.taskapp.model.DailyActivity;
+import com.taskapp.model.DayHistogram;
 import com.taskapp.model.Log;
+import com.taskapp.model.RankingEntry;
 import com.taskapp.model.Task;
+import com.taskapp.model.TaskCreated;
+import com.taskapp.model.TaskDeleted;
+import com.taskapp.model.TaskEvent;
+import com.taskapp.model.TaskState;
+import com.taskapp.model.TaskStatusChanged;
 import com.taskapp.model.User;
 
 public class TaskLogic {
+    /** 検索結果として表示する件数の上限 */
+    private static final int SEARCH_LIMIT = 100;
+
+    /** 1ページに表示するタスクの件数 */
+    private static final int PAGE_SIZE = 100;
+
+    /** 完了したタスクの削除が他の操作と競合した時に、選び直す回数の上限 */
+    private static final int MAX_DELETE_ATTEMPTS = 10;
+
     private final TaskDataAccess taskDataAccess;
     private final LogDataAccess logDataAccess;
     private final UserDataAccess userDataAccess;
 
+    /** タスクの変更を購読者に配信するパブリッシャー */
+    private final SubmissionPublisher<TaskEvent> eventPublisher = new SubmissionPublisher<>(
+            AsyncRunner.executor(), Flow.defaultBufferSize());
+
     public TaskLogic() {
         taskDataAccess = new TaskDataAccess();
         logDataAccess = new LogDataAccess();
@@ -45,6 +82,311 @@ public class TaskLogic {
     public void showAll(User loginUser) {
         List<Task> tasks = taskDataAccess.findAll();// 一覧を持ってくる
 
+        print(tasks, loginUser);
+    }
+
+    /**
+     * 全てのタスクを表示し、表示したタスクの版を返します。
+     * 返した版を{@link #changeStatus(int, int, User, TaskSnapshot)}・{@link #delete(int, TaskSnapshot)}に渡すと、
+     * 続けて行う操作でタスクを探し直さずに済みます。
+     *
+     * @see #showCurrent(User, TaskOrder)
+     * @param loginUser ログインユーザー
+     * @return 表示したタスクの版
+     */
+    public TaskSnapshot showCurrent(User loginUser) {
+        return showCurrent(loginUser, null);
+    }
+
+    /**
+     * 全てのタスクを並び順に並べて表示し、表示したタスクの版を返します。
+     * 並べ替えの結果は版ごとに保持しているため、表示のたびに全てのタスクを並べ替えません。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#findSnapshot()
+     * @see com.taskapp.dataaccess.TaskSnapshot#sorted(TaskOrder, int, int)
+     * @param loginUser ログインユーザー
+     * @param order     並び順（nullの場合は登録順）
+     * @return 表示したタスクの版
+     */
+    public TaskSnapshot showCurrent(User loginUser, TaskOrder order) {
+        TaskSnapshot taskSnapshot = taskDataAccess.findSnapshot();
+        if (taskSnapshot == null) {
+            return null;
+        }
+
+        int size = taskSnapshot.tasks().size();
+        print(order == null ? taskSnapshot.tasks() : taskSnapshot.sorted(order, 0, size), loginUser);
+        return taskSnapshot;
+    }
+
+    /**
+     * タスクを並び順に並べ、指定したページの分だけ表示します。
+     * 1ページは100件です。
+     *
+     * @see com.taskapp.dataaccess.TaskSnapshot#sorted(TaskOrder, int, int)
+     * @param loginUser ログインユーザー
+     * @param order     並び順
+     * @param page      ページ（1から数える）
+     * @throws AppException ページが範囲外の場合にスローされます
+     */
+    public void showPage(User loginUser, TaskOrder order, int page) throws AppException {
+        TaskSnapshot taskSnapshot = taskDataAccess.findSnapshot();
+        if (taskSnapshot == null) {
+            return;
+        }
+
+        int size = taskSnapshot.tasks().size();
+        int pages = Math.max((size + PAGE_SIZE - 1) / PAGE_SIZE, 1);
+        if (page < 1 || page > pages) {
+            throw new AppException("ページは1~" + pages + "の中から指定してください");
+        }
+
+        print(taskSnapshot.sorted(order, (page - 1) * PAGE_SIZE, PAGE_SIZE), loginUser);
+        System.out.println(page + "/" + pages + "ページ（全" + size + "件）");
+    }
+
+    /**
+     * 条件に合うタスクを表示します。
+     *
+     * @see #findTasks(Integer, Integer)
+     * @param loginUser   ログインユーザー
+     * @param status      ステータス（nullの場合は絞り込まない）
+     * @param repUserCode 担当ユーザーコード（nullの場合は絞り込まない）
+     */
+    public void showFiltered(User loginUser, Integer status, Integer repUserCode) {
+        print(findTasks(status, repUserCode), loginUser);
+    }
+
+    /**
+     * 名前に文字列を含むタスクを表示します。
+     * 表示するのは、コードの小さい方から最大100件です。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#searchByName(String, int)
+     * @param query     探す文字列
+     * @param loginUser ログインユーザー
+     * @return 表示したタスクの件数
+     */
+    public int showSearchResult(String query, User loginUser) {
+        List<Task> tasks = taskDataAccess.searchByName(query, SEARCH_LIMIT);
+        print(tasks, loginUser);
+        return tasks.size();
+    }
+
+    /**
+     * 条件に合うタスクを取得します。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#findAll()
+     * @param status      ステータス（nullの場合は絞り込まない）
+     * @param repUserCode 担当ユーザーコード（nullの場合は絞り込まない）
+     * @return 条件に合うタスクのリスト
+     */
+    public List<Task> findTasks(Integer status, Integer repUserCode) {
+        List<Task> tasks = taskDataAccess.findAll();
+        tasks.removeIf(task -> (status != null && task.getStatus() != status)
+                || (repUserCode != null && task.getRepUser().getCode() != repUserCode));
+        return tasks;
+    }
+
+    /**
+     * 担当ユーザーごとに、ステータスごとのタスク数を表示します。
+     * 登録・ステータス変更のたびに更新している表を読むため、タスクの件数ではなくユーザー数に比例した時間で表示できます。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#countByUserAndStatus()
+     */
+    public void showSummary() {
+        print(taskDataAccess.countByUserAndStatus());
+    }
+
+    /**
+     * 全てのタスクを数え直してから、担当ユーザーごとのタスク数を表示します。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#rebuildCounts()
+     */
+    public void rebuildSummary() {
+        print(taskDataAccess.rebuildCounts());
+    }
+
+    /**
+     * 担当ユーザーごとのタスク数を表示します。
+     *
+     * @param counts タスク数の表
+     */
+    private void print(TaskCounts counts) {
+        for (int userCode : counts.getUserCodes()) {
+            System.out.println(userName(userCode) + "：" +
+                    "未着手 " + counts.get(userCode, 0) + "件, " +
+                    "着手中 " + counts.get(userCode, 1) + "件, " +
+                    "完了 " + counts.get(userCode, 2) + "件");
+        }
+        System.out.println("合計：" +
+                "未着手 " + counts.total(0) + "件, " +
+                "着手中 " + counts.total(1) + "件, " +
+                "完了 " + counts.total(2) + "件");
+    }
+
+    /**
+     * タスクの登録から着手・完了までにかかった日数を、全体・ユーザー別・週別に表示します。
+     * 週別の完了の件数は、その週に完了したタスクの数です。
+     *
+     * @see com.taskapp.dataaccess.LogDataAccess#analyzeCycleTimes()
+     */
+    public void showCycleTimes() {
+        CycleTimeReport report = logDataAccess.analyzeCycleTimes();
+        if (report == null) {
+            return;
+        }
+
+        System.out.println("全体");
+        System.out.println("  着手まで：" + format(report.getToStart()));
+        System.out.println("  完了まで：" + format(report.getToComplete()));
+
+        System.out.println("ユーザー別");
+        for (Map.Entry<Integer, DayHistogram> entry : report.getToStartByUser().entrySet()) {
+            System.out.println("  " + userName(entry.getKey()) + " 着手まで：" + format(entry.getValue()));
+        }
+        for (Map.Entry<Integer, DayHistogram> entry : report.getToCompleteByUser().entrySet()) {
+            System.out.println("  " + userName(entry.getKey()) + " 完了まで：" + format(entry.getValue()));
+        }
+
+        System.out.println("週別");
+        for (Map.Entry<LocalDate, DayHistogram> entry : report.getToCompleteByWeek().entrySet()) {
+            System.out.println("  " + entry.getKey() + "の週 完了まで：" + format(entry.getValue()));
+        }
+    }
+
+    /**
+     * 指定した期間の、日ごとのステータス変更の件数を、変更したユーザーごとの内訳と合わせて表示します。
+     *
+     * @see com.taskapp.dataaccess.LogDataAccess#findDailyActivity(LocalDate, LocalDate)
+     * @param from 期間の最初の日（nullの場合は指定なし）
+     * @param to   期間の最後の日（nullの場合は指定なし）
+     */
+    public void showDailyActivity(LocalDate from, LocalDate to) {
+        long[] totals = new long[3];
+        for (DailyActivity day : logDataAccess.findDailyActivity(
+                from == null ? LocalDate.MIN : from, to == null ? LocalDate.MAX : to)) {
+            System.out.println(day.getDate() + "：" +
+                    "登録 " + day.getCount(0) + "件, " +
+                    "着手 " + day.getCount(1) + "件, " +
+                    "完了 " + day.getCount(2) + "件");
+            for (int userCode : day.getChangeUserCodes()) {
+                System.out.println("  " + userName(userCode) + "：" +
+                        "登録 " + day.getCount(userCode, 0) + "件, " +
+                        "着手 " + day.getCount(userCode, 1) + "件, " +
+                        "完了 " + day.getCount(userCode, 2) + "件");
+            }
+            for (int status = 0; status < totals.length; status++) {
+                totals[status] += day.getCount(status);
+            }
+        }
+        System.out.println("合計：" +
+                "登録 " + totals[0] + "件, " +
+                "着手 " + totals[1] + "件, " +
+                "完了 " + totals[2] + "件");
+    }
+
+    /**
+     * 期間内にステータスを変更した件数が多いユーザーを、多い順に表示します。
+     *
+     * @see com.taskapp.dataaccess.LogDataAccess#findTopChangeUsers(int, LocalDate, LocalDate)
+     * @param limit 表示する件数
+     * @param from  期間の最初の日（nullの場合は指定なし）
+     * @param to    期間の最後の日（nullの場合は指定なし）
+     */
+    public void showTopChangeUsers(int limit, LocalDate from, LocalDate to) {
+        int rank = 1;
+        for (RankingEntry entry : logDataAccess.findTopChangeUsers(limit, from, to)) {
+            System.out.println(rank++ + "位 " + userName(entry.getCode()) + "：" + entry.getCount() + "件");
+        }
+    }
+
+    /**
+     * 期間内にステータスが変更された件数が多いタスクを、多い順に表示します。
+     *
+     * @see com.taskapp.dataaccess.LogDataAccess#findTopChangedTasks(int, LocalDate, LocalDate)
+     * @param limit 表示する件数
+     * @param from  期間の最初の日（nullの場合は指定なし）
+     * @param to    期間の最後の日（nullの場合は指定なし）
+     */
+    public void showTopChangedTasks(int limit, LocalDate from, LocalDate to) {
+        int rank = 1;
+        for (RankingEntry entry : logDataAccess.findTopChangedTasks(limit, from, to)) {
+            Task task = taskDataAccess.findByCode(entry.getCode());
+            System.out.println(rank++ + "位 " + entry.getCode() + ". " +
+                    "タスク名：" + (task == null ? "不明" : task.getName()) + "：" + entry.getCount() + "件");
+        }
+    }
+
+    /**
+     * 日数のヒストグラムを件数・平均・パーセンタイルの形式にします。
+     */
+    private static String format(DayHistogram histogram) {
+        if (histogram.getCount() == 0) {
+            return "0件";
+        }
+        return histogram.getCount() + "件, " +
+                "平均 " + String.format("%.1f", histogram.getMean()) + "日, " +
+                "中央値 " + histogram.percentile(0.5) + "日, " +
+                "90% " + histogram.percentile(0.9) + "日, " +
+                "99% " + histogram.percentile(0.99) + "日";
+    }
+
+    private String userName(int userCode) {
+        if (userCode == TaskCounts.UNKNOWN_USER) {
+            return "担当ユーザー不明";
+        }
+        User user = userDataAccess.findByCode(userCode);
+        return user == null ? "ユーザーコード" + userCode : user.getName();
+    }
+
+    /**
+     * ログを適用し直して求めた、指定した日の時点のタスクの状態を表示します。
+     * 現在の状態を表示する場合は、tasks.csvの内容と一致しないタスクに印を付けます。
+     *
+     * @see com.taskapp.dataaccess.LogDataAccess#findStates(LocalDate)
+     * @param asOf 表示する時点の日付（nullの場合は現在）
+     */
+    public void showStates(LocalDate asOf) {
+        Map<Integer, Task> tasks = new HashMap<>();
+        for (Task task : taskDataAccess.findAll()) {
+            tasks.put(task.getCode(), task);
+        }
+
+        for (TaskState state : logDataAccess.findStates(asOf).values()) {
+            Task task = tasks.get(state.getTaskCode());
+            String status = "未着手";
+            if (state.getStatus() == 1) {
+                status = "着手中";
+            } else if (state.getStatus() == 2) {
+                status = "完了";
+            }
+
+            String line = state.getTaskCode() + ". " +
+                    "タスク名：" + (task == null ? "不明" : task.getName()) + ", " +
+                    "ステータス：" + status + ", " +
+                    "最終更新日：" + state.getLastChangeDate();
+            if (asOf == null && task != null && task.getStatus() != state.getStatus()) {
+                line += "（tasks.csvと不一致）";
+            }
+            System.out.println(line);
+        }
+    }
+
+    /**
+     * 画面に表示した版を、探し直さずにそのまま使えるかを判定します。
+     * バッチの中では、まだ書き込んでいない変更が版に含まれないため使いません。
+     */
+    private boolean isReusable(TaskSnapshot displayed) {
+        return displayed != null && UnitOfWork.current() == null && taskDataAccess.isCurrent(displayed);
+    }
+
+    /**
+     * タスクの一覧を表示します。
+     *
+     * @param tasks     表示するタスク
+     * @param loginUser ログインユーザー
+     */
+    private void print(List<Task> tasks, User loginUser) {
         tasks.forEach(task -> {
             String line = "あなた";
             String status = "未着手";
@@ -64,12 +406,12 @@ public class TaskLogic {
                     "担当者名：" + line + "が担当しています, " +
                     "ステータス：" + status);
         });
-
     }
 
     /**
      * 新しいタスクを保存します。
      *
+     * @see com.taskapp.dataaccess.TaskDataAccess#existsByCode(int)
      * @see com.taskapp.dataaccess.UserDataAccess#findByCode(int)
      * @see com.taskapp.dataaccess.TaskDataAccess#save(com.taskapp.model.Task)
      * @see com.taskapp.dataaccess.LogDataAccess#save(com.taskapp.model.Log)
@@ -77,10 +419,15 @@ public class TaskLogic {
      * @param name        タスク名
      * @param repUserCode 担当ユーザーコード
      * @param loginUser   ログインユーザー
-     * @throws AppException ユーザーコードが存在しない場合にスローされます
+     * @throws AppException ユーザーコードが存在しない、またはタスクコードが既に使われている場合にスローされます
      */
     public void save(int code, String name, int repUserCode,
             User loginUser) throws AppException {
+        // 使われていないコードか確認（削除したタスクのログが残っている間も使わない）
+        if (taskDataAccess.existsByCode(code) || logDataAccess.isDeletedTaskCode(code)) {
+            throw new AppException("既に登録されているタスクコードです。別のコードを入力してください");
+        }
+
         // 存在するユーザーか確認
         User user = userDataAccess.findByCode(repUserCode);
 
@@ -89,23 +436,88 @@ public class TaskLogic {
             throw new AppException("存在するユーザーコードを入力してください");
         }
 
+        insert(code, name, user, loginUser, true);
+    }
+
+    /**
+     * タスクとその作成ログを1つの作業単位で書き込みます。
+     *
+     * @see com.taskapp.dataaccess.UnitOfWork
+     * @param code      タスクコード
+     * @param name      タスク名
+     * @param repUser   担当ユーザー
+     * @param loginUser ログインユーザー
+     * @param checkCode コミットする時に、コードが使われていないことを確かめ直す場合はtrue
+     * @throws AppException 書き込みに失敗した、またはタスクコードが既に使われていた場合にスローされます
+     */
+    private void insert(int code, String name, User repUser, User loginUser, boolean checkCode)
+            throws AppException {
         // taskマッピング
-        Task task = new Task(code, name, 0, user);
+        Task task = new Task(code, name, 0, repUser);
+
+        try (UnitOfWork work = UnitOfWork.begin(taskDataAccess, logDataAccess)) {
+            // 確認してから書き込むまでに、同じコードが登録されていないかをコミットの中で確かめる
+            if (checkCode) {
+                work.expectNewCode(code);
+            }
 
-        // task.csvへ書き込み
-        taskDataAccess.save(task);
+            // task.csvへ書き込み
+            taskDataAccess.save(task);
 
-        // logマッピング
-        Log log = new Log(task.getCode(),
-                loginUser.getCode(),
-                task.getStatus(),
-                LocalDate.now());
+            // logマッピング
+            Log log = new Log(task.getCode(),
+                    loginUser.getCode(),
+                    task.getStatus(),
+                    LocalDate.now());
 
-        // csvへ書き込み
-        logDataAccess.save(log);
+            // csvへ書き込み
+            logDataAccess.save(log);
+
+            work.afterCommit(() -> publish(new TaskCreated(task, loginUser, log.getChangeDate())));
+            work.commit();
+        } catch (DuplicateTaskCodeException e) {
+            throw new AppException("既に登録されているタスクコードです。別のコードを入力してください");
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new AppException("タスクを保存できませんでした");
+        }
 
         System.out.println(task.getName() + "の登録が完了しました。");
+    }
 
+    /**
+     * タスクコードを自動で採番して、新しいタスクを保存します。
+     *
+     * @see com.taskapp.dataaccess.UserDataAccess#findByCode(int)
+     * @see com.taskapp.dataaccess.TaskDataAccess#nextCode()
+     * @param name        タスク名
+     * @param repUserCode 担当ユーザーコード
+     * @param loginUser   ログインユーザー
+     * @return 採番したタスクコード
+     * @throws AppException ユーザーコードが存在しない、または採番できなかった場合にスローされます
+     */
+    public int save(String name, int repUserCode, User loginUser) throws AppException {
+        // 採番したコードを無駄にしないよう、先にユーザーを確認する
+        User user = userDataAccess.findByCode(repUserCode);
+
+        if (user == null) {
+            throw new AppException("存在するユーザーコードを入力してください");
+        }
+
+        // 採番したコードは使用済みになっているため、重複の確認はしない
+        // 削除したタスクのログが残っているコードは、新しいタスクのログが削除済みとして扱われるため飛ばす
+        int code;
+        try {
+            do {
+                code = taskDataAccess.nextCode();
+            } while (logDataAccess.isDeletedTaskCode(code));
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new AppException("タスクコードを採番できませんでした");
+        }
+
+        insert(code, name, user, loginUser, false);
+        return code;
     }
 
     /**
@@ -128,6 +540,48 @@ public class TaskLogic {
             throw new AppException("存在するタスクコードを入力してください");
         }
 
+        changeStatus(task, status, loginUser, null);
+    }
+
+    /**
+     * 画面に表示したタスクの版を基に、タスクのステータスを変更します。
+     * 版が最新であればタスクを版から取得し、書き込む時は版が変わっていないことだけを確かめます。
+     * 表示した後にタスクが変更されていた場合は、最新のタスクで確かめ直してから変更します。
+     *
+     * @see #showCurrent(User)
+     * @see #changeStatus(int, int, User)
+     * @param code      タスクコード
+     * @param status    新しいステータス
+     * @param loginUser ログインユーザー
+     * @param displayed 画面に表示したタスクの版（nullの場合は最新のタスクから探す）
+     * @throws AppException タスクコードが存在しない、またはステータスが前のステータスより1つ先でない場合にスローされます
+     */
+    public void changeStatus(int code, int status, User loginUser, TaskSnapshot displayed) throws AppException {
+        if (!isReusable(displayed)) {
+            changeStatus(code, status, loginUser);
+            return;
+        }
+
+        Task task = displayed.find(code);
+
+        if (task == null) {
+            throw new AppException("存在するタスクコードを入力してください");
+        }
+
+        if (!changeStatus(task, status, loginUser, displayed)) {
+            // 表示した後に変更されていたため、最新のタスクでやり直す
+            changeStatus(code, status, loginUser);
+        }
+    }
+
+    /**
+     * ステータスを変更してログを書き込みます。
+     *
+     * @param expected 書き込む時に最新であるべき版（確かめない場合はnull）
+     * @return 変更した場合はtrue、版が変わっていたため何も書き込まなかった場合はfalse
+     */
+    private boolean changeStatus(Task task, int status, User loginUser, TaskSnapshot expected)
+            throws AppException {
         // 進行状況変数
         int taskStatus = task.getStatus();
 
@@ -148,20 +602,166 @@ public class TaskLogic {
         // マッピング
         Task task2 = new Task(task.getCode(), task.getName(), status, loginUser);
 
-        // csvへ書き込み
-        taskDataAccess.update(task2);
+        // タスクとログは1つの作業単位で書き込む
+        try (UnitOfWork work = UnitOfWork.begin(taskDataAccess, logDataAccess)) {
+            if (expected != null) {
+                work.expect(expected);
+            }
+
+            // csvへ書き込み
+            taskDataAccess.update(task2);
 
-        // logマッピング
-        Log log = new Log(task2.getCode(),
-                loginUser.getCode(),
-                task2.getStatus(),
-                LocalDate.now());
+            // logマッピング
+            Log log = new Log(task2.getCode(),
+                    loginUser.getCode(),
+                    task2.getStatus(),
+                    LocalDate.now());
 
-        // csvへ書き込み
-        logDataAccess.save(log);
+            // csvへ書き込み
+            logDataAccess.save(log);
+
+            work.afterCommit(() -> publish(new TaskStatusChanged(task2, taskStatus, loginUser, log.getChangeDate())));
+            work.commit();
+        } catch (StaleSnapshotException e) {
+            return false;
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new AppException("ステータスを変更できませんでした");
+        }
 
         System.out.println("ステータスの変更が完了しました。");
+        return true;
+    }
+
+    /**
+     * このスレッドで、複数の登録・ステータス変更をまとめて書き込むバッチを開始します。
+     * {@link #commitBatch()}を呼び出すまで、ファイルには書き込まれません。
+     *
+     * @see com.taskapp.dataaccess.UnitOfWork
+     * @throws AppException 既にバッチを開始している場合にスローされます
+     */
+    public void beginBatch() throws AppException {
+        if (UnitOfWork.current() != null) {
+            throw new AppException("既にバッチを開始しています");
+        }
+        UnitOfWork.begin(taskDataAccess, logDataAccess);
+    }
 
+    /**
+     * バッチ中の全ての書き込みを、1回の書き込みでファイルに反映します。
+     *
+     * @throws AppException バッチを開始していない、または書き込みに失敗した場合にスローされます
+     */
+    public void commitBatch() throws AppException {
+        UnitOfWork work = UnitOfWork.current();
+        if (work == null) {
+            throw new AppException("バッチを開始していません");
+        }
+        try (work) {
+            work.commit();
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new AppException("バッチの書き込みに失敗しました");
+        }
+    }
+
+    /**
+     * バッチ中の全ての書き込みを破棄します。
+     */
+    public void rollbackBatch() {
+        UnitOfWork work = UnitOfWork.current();
+        if (work != null) {
+            work.close();
+        }
+    }
+
+    /**
+     * タスクの変更イベントを購読するためのパブリッシャーを返します。
+     * 購読者のバッファが一杯の場合は、空くまで配信を待つため、イベントが失われることはありません。
+     *
+     * @return タスクイベントのパブリッシャー
+     */
+    public Flow.Publisher<TaskEvent> getEventPublisher() {
+        return eventPublisher;
+    }
+
+    /**
+     * タスクとログのファイルの変更を監視し、他のプロセスによる書き込みを先回りして読み込むようにします。
+     *
+     * @param watcher ファイルの監視
+     * @throws IOException 監視を開始できなかった場合
+     */
+    public void watch(CsvFileWatcher watcher) throws IOException {
+        taskDataAccess.watch(watcher);
+        logDataAccess.watch(watcher);
+    }
+
+    /**
+     * 保存方針に従って古いログを定期的に削除するジョブを開始します。
+     *
+     * @see com.taskapp.logic.LogPurgeJob
+     * @param policy   ログを残す方針
+     * @param interval 実行する間隔
+     * @return 開始したジョブ（方針が削除を行わない場合はnull）
+     */
+    public LogPurgeJob startLogPurge(LogRetentionPolicy policy, Duration interval) {
+        if (!policy.isEnabled()) {
+            return null;
+        }
+        return new LogPurgeJob(logDataAccess, policy).start(interval);
+    }
+
+    /**
+     * 全てのタスクを非同期で表示します。
+     *
+     * @see #showAll(User)
+     * @param loginUser ログインユーザー
+     * @return 表示完了のFuture
+     */
+    public CompletableFuture<Void> showAllAsync(User loginUser) {
+        return AsyncRunner.run(() -> showAll(loginUser), AsyncRunner.TASKS, AsyncRunner.USERS);
+    }
+
+    /**
+     * 新しいタスクを非同期で保存します。
+     * ユーザーコードが存在しない場合、FutureはAppExceptionで完了します。
+     *
+     * @see #save(int, String, int, User)
+     * @param code        タスクコード
+     * @param name        タスク名
+     * @param repUserCode 担当ユーザーコード
+     * @param loginUser   ログインユーザー
+     * @return 保存完了のFuture
+     */
+    public CompletableFuture<Void> saveAsync(int code, String name, int repUserCode, User loginUser) {
+        return AsyncRunner.run(() -> save(code, name, repUserCode, loginUser),
+                AsyncRunner.TASKS, AsyncRunner.LOGS, AsyncRunner.USERS);
+    }
+
+    /**
+     * タスクのステータスを非同期で変更します。
+     * 変更できない場合、FutureはAppExceptionで完了します。
+     *
+     * @see #changeStatus(int, int, User)
+     * @param code      タスクコード
+     * @param status    新しいステータス
+     * @param loginUser ログインユーザー
+     * @return 変更完了のFuture
+     */
+    public CompletableFuture<Void> changeStatusAsync(int code, int status, User loginUser) {
+        return AsyncRunner.run(() -> changeStatus(code, status, loginUser),
+                AsyncRunner.TASKS, AsyncRunner.LOGS, AsyncRunner.USERS);
+    }
+
+    /**
+     * 書き込みが完了した変更を購読者に配信します。
+     * 購読者がイベントを基にキャッシュを差分で更新できるように、1件も破棄しません。
+     * 処理が追いつかない購読者のバッファが一杯の場合は、空くまで待ちます（ファイルのロックは取っていない状態で呼び出します）。
+     *
+     * @param event 配信するイベント
+     */
+    private void publish(TaskEvent event) {
+        eventPublisher.submit(event);
     }
 
     /**
@@ -173,6 +773,109 @@ public class TaskLogic {
      * @param code タスクコード
      * @throws AppException タスクコードが存在しない、またはタスクのステータスが完了でない場合にスローされます
      */
-    // public void delete(int code) throws AppException {
-    // }
+    public void delete(int code) throws AppException {
+        Task task = taskDataAccess.findByCode(code);
+
+        if (task == null) {
+            throw new AppException("存在するタスクコードを入力してください");
+        }
+
+        delete(task);
+    }
+
+    /**
+     * 画面に表示したタスクの版を基に、タスクを削除します。
+     * 版が最新であれば、削除するタスクを探し直さずに版から取得します。
+     *
+     * @see #showCurrent(User)
+     * @see #delete(int)
+     * @param code      タスクコード
+     * @param displayed 画面に表示したタスクの版（nullの場合は最新のタスクから探す）
+     * @throws AppException タスクコードが存在しない、またはタスクのステータスが完了でない場合にスローされます
+     */
+    public void delete(int code, TaskSnapshot displayed) throws AppException {
+        if (!isReusable(displayed)) {
+            delete(code);
+            return;
+        }
+
+        Task task = displayed.find(code);
+
+        if (task == null) {
+            throw new AppException("存在するタスクコードを入力してください");
+        }
+
+        delete(task);
+    }
+
+    private void delete(Task task) throws AppException {
+        int code = task.getCode();
+
+        if (task.getStatus() != 2) {
+            throw new AppException("ステータスが完了のタスクを選択してください");
+        }
+
+        // タスクとログの削除の記録は1つの作業単位で書き込み、ロックを取った後でステータスを確かめ直す
+        try (UnitOfWork work = UnitOfWork.begin(taskDataAccess, logDataAccess)) {
+            work.expectStatus(List.of(code), 2);
+            taskDataAccess.delete(code);
+            logDataAccess.deleteByTaskCode(code);
+
+            work.afterCommit(() -> publish(new TaskDeleted(task, null, LocalDate.now())));
+            work.commit();
+        } catch (StaleSnapshotException e) {
+            throw new AppException("ステータスが完了のタスクを選択してください");
+        } catch (IOException e) {
+            e.printStackTrace();
+            throw new AppException("タスクを削除できませんでした");
+        }
+
+        System.out.println(task.getName() + "は削除されました。");
+    }
+
+    /**
+     * ステータスが完了のタスクとそのログをまとめて削除します。
+     * 削除は記録だけ先に行い、CSVの書き直しは削除済みの行が増えた時にバックグラウンドで行います。
+     * タスクとログの削除の記録は1つの作業単位で書き込みます。
+     * 選んだ後に他のプロセスがタスクを削除していた場合は、選び直します。
+     *
+     * @see com.taskapp.dataaccess.TaskDataAccess#markDeleted(java.util.Collection)
+     * @see com.taskapp.dataaccess.LogDataAccess#markDeletedByTaskCodes(java.util.Collection)
+     * @return 削除したタスクの数（削除できなかった場合は0）
+     */
+    public int deleteCompleted() {
+        for (int attempt = 0; attempt < MAX_DELETE_ATTEMPTS; attempt++) {
+            List<Task> completed = new ArrayList<>();
+            List<Integer> codes = new ArrayList<>();
+            for (Task task : taskDataAccess.findAll()) {
+                if (task.getStatus() == 2) {
+                    completed.add(task);
+                    codes.add(task.getCode());
+                }
+            }
+            if (codes.isEmpty()) {
+                return 0;
+            }
+
+            try (UnitOfWork work = UnitOfWork.begin(taskDataAccess, logDataAccess)) {
+                work.expectStatus(codes, 2);
+                taskDataAccess.markDeleted(codes);
+                logDataAccess.markDeletedByTaskCodes(codes);
+
+                work.afterCommit(() -> {
+                    LocalDate today = LocalDate.now();
+                    completed.forEach(task -> publish(new TaskDeleted(task, null, today)));
+                });
+                work.commit();
+                return completed.size();
+            } catch (StaleSnapshotException e) {
+                // 選び直す
+            } catch (IOException e) {
+                e.printStackTrace();
+                return 0;
+            }
+        }
+        System.out.println("他の操作と競合したため、完了したタスクを削除できませんでした。");
+        return 0;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.taskapp.logic;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.taskapp.dataaccess.UserDataAccess;
 import com.taskapp.exception.AppException;
 import com.taskapp.model.User;
@@ -42,4 +44,30 @@ public class UserLogic {
 
         return user;
     }
+
+    /**
+     * ユーザーのログイン処理を非同期で行います。
+     * ログインできない場合、FutureはAppExceptionで完了します。
+     *
+     * @see #login(String, String)
+     * @param email    ユーザーのメールアドレス
+     * @param password ユーザーのパスワード
+     * @return ログインしたユーザーの情報のFuture
+     */
+    public CompletableFuture<User> loginAsync(String email, String password) {
+        return AsyncRunner.supply(() -> login(email, password), AsyncRunner.USERS);
+    }
+
+    /**
+     * 平文のまま保存されているパスワードを、ソルト付きのハッシュに書き換えます。
+     * 書き換えた後も、同じパスワードでログインできます。
+     *
+     * @see com.taskapp.dataaccess.UserDataAccess#hashPasswords()
+     * @return 書き換えたパスワードの数
+     */
+    public int hashPasswords() {
+        int hashed = userDataAccess.hashPasswords();
+        System.out.println(hashed + "件のパスワードをハッシュ化しました。");
+        return hashed;
+    }
 }
\ No newline at end of file
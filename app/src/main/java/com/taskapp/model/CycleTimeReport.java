@@ -0,0 +1,102 @@
+package com.taskapp.model;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * タスクの登録から着手・完了までにかかった日数の集計です。
+ *
+ * <p>
+ * 着手までの日数は登録から最初に着手中になるまで、完了までの日数は登録から最初に完了になるまでの日数です。
+ * ユーザー別はその変更を行ったユーザーごと、週別は変更した日が含まれる週（月曜日始まり）ごとに集計します。
+ * 週別の完了の件数は、その週のスループットになります。
+ * </p>
+ */
+public class CycleTimeReport {
+    private final DayHistogram toStart = new DayHistogram();
+    private final DayHistogram toComplete = new DayHistogram();
+    private final Map<Integer, DayHistogram> toStartByUser = new TreeMap<>();
+    private final Map<Integer, DayHistogram> toCompleteByUser = new TreeMap<>();
+    private final Map<LocalDate, DayHistogram> toStartByWeek = new TreeMap<>();
+    private final Map<LocalDate, DayHistogram> toCompleteByWeek = new TreeMap<>();
+
+    /**
+     * 着手までの日数を1件加えます。
+     *
+     * @param days     日数
+     * @param userCode 着手中に変更したユーザーのコード
+     * @param week     着手中に変更した週の月曜日
+     */
+    public void addStart(int days, int userCode, LocalDate week) {
+        toStart.add(days);
+        toStartByUser.computeIfAbsent(userCode, key -> new DayHistogram()).add(days);
+        toStartByWeek.computeIfAbsent(week, key -> new DayHistogram()).add(days);
+    }
+
+    /**
+     * 完了までの日数を1件加えます。
+     *
+     * @param days     日数
+     * @param userCode 完了に変更したユーザーのコード
+     * @param week     完了に変更した週の月曜日
+     */
+    public void addComplete(int days, int userCode, LocalDate week) {
+        toComplete.add(days);
+        toCompleteByUser.computeIfAbsent(userCode, key -> new DayHistogram()).add(days);
+        toCompleteByWeek.computeIfAbsent(week, key -> new DayHistogram()).add(days);
+    }
+
+    /**
+     * 別の集計を足し合わせます。
+     *
+     * @param other 足し合わせる集計
+     */
+    public void merge(CycleTimeReport other) {
+        toStart.merge(other.toStart);
+        toComplete.merge(other.toComplete);
+        merge(toStartByUser, other.toStartByUser);
+        merge(toCompleteByUser, other.toCompleteByUser);
+        merge(toStartByWeek, other.toStartByWeek);
+        merge(toCompleteByWeek, other.toCompleteByWeek);
+    }
+
+    private static <K> void merge(Map<K, DayHistogram> target, Map<K, DayHistogram> source) {
+        source.forEach((key, histogram) -> target.computeIfAbsent(key, k -> new DayHistogram()).merge(histogram));
+    }
+
+    /**
+     * 同じ内容の集計を作ります。
+     *
+     * @return コピーした集計
+     */
+    public CycleTimeReport copy() {
+        CycleTimeReport copy = new CycleTimeReport();
+        copy.merge(this);
+        return copy;
+    }
+
+    public DayHistogram getToStart() {
+        return this.toStart;
+    }
+
+    public DayHistogram getToComplete() {
+        return this.toComplete;
+    }
+
+    public Map<Integer, DayHistogram> getToStartByUser() {
+        return this.toStartByUser;
+    }
+
+    public Map<Integer, DayHistogram> getToCompleteByUser() {
+        return this.toCompleteByUser;
+    }
+
+    public Map<LocalDate, DayHistogram> getToStartByWeek() {
+        return this.toStartByWeek;
+    }
+
+    public Map<LocalDate, DayHistogram> getToCompleteByWeek() {
+        return this.toCompleteByWeek;
+    }
+}
@@ -0,0 +1,86 @@
+package com.taskapp.model;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 1日のステータス変更の件数を、ステータスごと・変更したユーザーごとに数えたものです。
+ */
+public class DailyActivity {
+    private final LocalDate date;
+
+    /** ユーザーコードごとの、ステータス（0~2）別の件数 */
+    private final Map<Integer, long[]> counts = new TreeMap<>();
+
+    public DailyActivity(LocalDate date) {
+        this.date = date;
+    }
+
+    /**
+     * 件数を加えます。0~2以外のステータスは数えません。
+     *
+     * @param changeUserCode 変更したユーザーのコード
+     * @param status         ステータス
+     * @param count          加える件数
+     */
+    public void add(int changeUserCode, int status, long count) {
+        if (status < 0 || status > 2) {
+            return;
+        }
+        counts.computeIfAbsent(changeUserCode, code -> new long[3])[status] += count;
+    }
+
+    /**
+     * 別の日の件数を足し合わせます。
+     *
+     * @param other 足し合わせる件数
+     */
+    public void merge(DailyActivity other) {
+        other.counts.forEach((userCode, values) -> {
+            for (int status = 0; status < values.length; status++) {
+                add(userCode, status, values[status]);
+            }
+        });
+    }
+
+    public LocalDate getDate() {
+        return this.date;
+    }
+
+    /**
+     * 変更を行ったユーザーのコードを返します。
+     *
+     * @return ユーザーコードの昇順
+     */
+    public Set<Integer> getChangeUserCodes() {
+        return counts.keySet();
+    }
+
+    /**
+     * ステータスの件数を返します。
+     *
+     * @param status ステータス
+     * @return 全てのユーザーの件数の合計
+     */
+    public long getCount(int status) {
+        long total = 0;
+        for (long[] values : counts.values()) {
+            total += status < 0 || status > 2 ? 0 : values[status];
+        }
+        return total;
+    }
+
+    /**
+     * ユーザーが変更したステータスの件数を返します。
+     *
+     * @param changeUserCode 変更したユーザーのコード
+     * @param status         ステータス
+     * @return 件数
+     */
+    public long getCount(int changeUserCode, int status) {
+        long[] values = counts.get(changeUserCode);
+        return values == null || status < 0 || status > 2 ? 0 : values[status];
+    }
+}
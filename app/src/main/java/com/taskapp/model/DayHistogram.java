@@ -0,0 +1,91 @@
+package com.taskapp.model;
+
+import java.util.Arrays;
+
+/**
+ * 日数ごとの件数を数えるヒストグラムです。
+ *
+ * <p>
+ * 日数は整数のため、日数ごとの件数をそのまま持つだけで正確なパーセンタイルが求められます。
+ * 大きさは最大の日数に比例し、件数が増えても変わりません。
+ * 別々に数えたヒストグラムは{@link #merge(DayHistogram)}で足し合わせられます。
+ * </p>
+ */
+public class DayHistogram {
+    private long[] counts = new long[16];
+    private long count;
+    private long sum;
+
+    /**
+     * 日数を1件加えます。負の日数は0日として数えます。
+     *
+     * @param days 日数
+     */
+    public void add(int days) {
+        int index = Math.max(days, 0);
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length * 2));
+        }
+        counts[index]++;
+        count++;
+        sum += index;
+    }
+
+    /**
+     * 別のヒストグラムの件数を足し合わせます。
+     *
+     * @param other 足し合わせるヒストグラム
+     */
+    public void merge(DayHistogram other) {
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * 平均の日数を返します。
+     *
+     * @return 平均の日数（件数が0の場合は0）
+     */
+    public double getMean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * パーセンタイルの日数を返します。
+     *
+     * @param rank 0より大きく1以下の割合（中央値は0.5）
+     * @return 全体のrank以上がこの日数以下に収まる、最小の日数（件数が0の場合は0）
+     */
+    public int percentile(double rank) {
+        long target = (long) Math.ceil(rank * count);
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= Math.max(target, 1)) {
+                return i;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 同じ内容のヒストグラムを作ります。
+     *
+     * @return コピーしたヒストグラム
+     */
+    public DayHistogram copy() {
+        DayHistogram copy = new DayHistogram();
+        copy.merge(this);
+        return copy;
+    }
+}
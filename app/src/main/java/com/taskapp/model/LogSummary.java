@@ -0,0 +1,68 @@
+package com.taskapp.model;
+
+import java.time.LocalDate;
+
+/**
+ * 保存期間を過ぎて削除されたログを、タスクごとにまとめたものです。
+ */
+public class LogSummary {
+    private int taskCode;
+    private int purgedCount;
+    private LocalDate firstChangeDate;
+    private LocalDate lastChangeDate;
+    private int lastStatus;
+
+    public LogSummary(int taskCode, int purgedCount, LocalDate firstChangeDate, LocalDate lastChangeDate,
+            int lastStatus) {
+        this.taskCode = taskCode;
+        this.purgedCount = purgedCount;
+        this.firstChangeDate = firstChangeDate;
+        this.lastChangeDate = lastChangeDate;
+        this.lastStatus = lastStatus;
+    }
+
+    public int getTaskCode() {
+        return this.taskCode;
+    }
+
+    public int getPurgedCount() {
+        return this.purgedCount;
+    }
+
+    public LocalDate getFirstChangeDate() {
+        return this.firstChangeDate;
+    }
+
+    public LocalDate getLastChangeDate() {
+        return this.lastChangeDate;
+    }
+
+    public int getLastStatus() {
+        return this.lastStatus;
+    }
+
+    /**
+     * 削除したログをまとめに加えます。
+     *
+     * @param log 削除したログ
+     */
+    public void add(Log log) {
+        add(new LogSummary(log.getTaskCode(), 1, log.getChangeDate(), log.getChangeDate(), log.getStatus()));
+    }
+
+    /**
+     * 別のまとめを加えます。
+     *
+     * @param other 加えるまとめ
+     */
+    public void add(LogSummary other) {
+        if (purgedCount == 0 || other.firstChangeDate.isBefore(firstChangeDate)) {
+            firstChangeDate = other.firstChangeDate;
+        }
+        if (purgedCount == 0 || !other.lastChangeDate.isBefore(lastChangeDate)) {
+            lastChangeDate = other.lastChangeDate;
+            lastStatus = other.lastStatus;
+        }
+        purgedCount += other.purgedCount;
+    }
+}
@@ -0,0 +1,24 @@
+package com.taskapp.model;
+
+/**
+ * 件数の多い順に並べた時の1件です。
+ */
+public class RankingEntry {
+    /** ユーザーコードまたはタスクコード */
+    private final int code;
+
+    private final long count;
+
+    public RankingEntry(int code, long count) {
+        this.code = code;
+        this.count = count;
+    }
+
+    public int getCode() {
+        return this.code;
+    }
+
+    public long getCount() {
+        return this.count;
+    }
+}
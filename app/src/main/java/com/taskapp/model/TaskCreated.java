@@ -0,0 +1,13 @@
+package com.taskapp.model;
+
+import java.time.LocalDate;
+
+/**
+ * タスクが新規登録されたことを表すイベントです。
+ */
+public class TaskCreated extends TaskEvent {
+
+    public TaskCreated(Task task, User changeUser, LocalDate changeDate) {
+        super(task, changeUser, changeDate);
+    }
+}
@@ -0,0 +1,13 @@
+package com.taskapp.model;
+
+import java.time.LocalDate;
+
+/**
+ * タスクが削除されたことを表すイベントです。
+ */
+public class TaskDeleted extends TaskEvent {
+
+    public TaskDeleted(Task task, User changeUser, LocalDate changeDate) {
+        super(task, changeUser, changeDate);
+    }
+}
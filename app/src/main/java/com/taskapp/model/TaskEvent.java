@@ -0,0 +1,31 @@
+package com.taskapp.model;
+
+import java.time.LocalDate;
+
+/**
+ * タスクに対する変更を表すイベントです。
+ * タスクとログの書き込みが完了した後に発行されます。
+ */
+public abstract class TaskEvent {
+    private Task task;
+    private User changeUser;
+    private LocalDate changeDate;
+
+    protected TaskEvent(Task task, User changeUser, LocalDate changeDate) {
+        this.task = task;
+        this.changeUser = changeUser;
+        this.changeDate = changeDate;
+    }
+
+    public Task getTask() {
+        return this.task;
+    }
+
+    public User getChangeUser() {
+        return this.changeUser;
+    }
+
+    public LocalDate getChangeDate() {
+        return this.changeDate;
+    }
+}
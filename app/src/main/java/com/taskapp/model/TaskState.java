@@ -0,0 +1,72 @@
+package com.taskapp.model;
+
+import java.time.LocalDate;
+
+/**
+ * ログを順番に適用して求めた、ある時点のタスクの状態です。
+ */
+public class TaskState {
+    private int taskCode;
+    private int status;
+    private int lastChangeUserCode;
+    private LocalDate createdDate;
+    private LocalDate lastChangeDate;
+
+    public TaskState(int taskCode, int status, int lastChangeUserCode, LocalDate createdDate,
+            LocalDate lastChangeDate) {
+        this.taskCode = taskCode;
+        this.status = status;
+        this.lastChangeUserCode = lastChangeUserCode;
+        this.createdDate = createdDate;
+        this.lastChangeDate = lastChangeDate;
+    }
+
+    public int getTaskCode() {
+        return this.taskCode;
+    }
+
+    public int getStatus() {
+        return this.status;
+    }
+
+    /**
+     * 最後に変更したユーザーのコードを返します。
+     * 保存期間を過ぎて削除されたログからは分からないため、その場合は0です。
+     *
+     * @return 最後に変更したユーザーのコード
+     */
+    public int getLastChangeUserCode() {
+        return this.lastChangeUserCode;
+    }
+
+    public LocalDate getCreatedDate() {
+        return this.createdDate;
+    }
+
+    public LocalDate getLastChangeDate() {
+        return this.lastChangeDate;
+    }
+
+    /**
+     * ログを1件適用します。
+     *
+     * @param log 適用するログ
+     */
+    public void apply(Log log) {
+        if (createdDate == null) {
+            createdDate = log.getChangeDate();
+        }
+        status = log.getStatus();
+        lastChangeUserCode = log.getChangeUserCode();
+        lastChangeDate = log.getChangeDate();
+    }
+
+    /**
+     * 同じ内容の状態を作ります。
+     *
+     * @return コピーした状態
+     */
+    public TaskState copy() {
+        return new TaskState(taskCode, status, lastChangeUserCode, createdDate, lastChangeDate);
+    }
+}
@@ -0,0 +1,23 @@
+package com.taskapp.model;
+
+import java.time.LocalDate;
+
+/**
+ * タスクのステータスが変更されたことを表すイベントです。
+ */
+public class TaskStatusChanged extends TaskEvent {
+    private int oldStatus;
+
+    public TaskStatusChanged(Task task, int oldStatus, User changeUser, LocalDate changeDate) {
+        super(task, changeUser, changeDate);
+        this.oldStatus = oldStatus;
+    }
+
+    public int getOldStatus() {
+        return this.oldStatus;
+    }
+
+    public int getNewStatus() {
+        return getTask().getStatus();
+    }
+}
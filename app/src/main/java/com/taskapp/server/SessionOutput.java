@@ -0,0 +1,54 @@
+package com.taskapp.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 標準出力への書き込みを、スレッドごとに指定された出力先へ振り分けます。
+ * ロジックが標準出力に出すメッセージを、そのコマンドを送ってきた接続に返すために使います。
+ */
+class SessionOutput extends OutputStream {
+    private final OutputStream fallback;
+
+    private final ThreadLocal<OutputStream> target = new ThreadLocal<>();
+
+    /**
+     * @param fallback 出力先が指定されていないスレッドの出力先
+     */
+    SessionOutput(OutputStream fallback) {
+        this.fallback = fallback;
+    }
+
+    /**
+     * 現在のスレッドの出力先を指定します。
+     *
+     * @param out 出力先（nullの場合は元の出力先に戻す）
+     */
+    void bind(OutputStream out) {
+        if (out == null) {
+            target.remove();
+        } else {
+            target.set(out);
+        }
+    }
+
+    private OutputStream current() {
+        OutputStream out = target.get();
+        return out != null ? out : fallback;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        current().write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        current().write(b, off, len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        current().flush();
+    }
+}
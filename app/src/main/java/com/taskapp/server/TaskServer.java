@@ -0,0 +1,182 @@
+package com.taskapp.server;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.taskapp.dataaccess.CsvFileWatcher;
+import com.taskapp.dataaccess.LoginCache;
+import com.taskapp.exception.AppException;
+import com.taskapp.logic.TaskLogic;
+import com.taskapp.logic.UserLogic;
+import com.taskapp.ui.BatchRunner;
+
+/**
+ * データファイルを1つのプロセスで管理し、ローカルの複数のクライアントにタスク操作を提供するサーバーです。
+ *
+ * <p>
+ * ループバックアドレスだけで待ち受け、1接続につき1つの仮想スレッドで処理します。
+ * プロトコルは1行1コマンドで、コマンドは{@link BatchRunner}と同じです（quitで切断）。
+ * 各コマンドの出力の後に、成功時は OK、失敗時は ERROR メッセージ の1行を返します。
+ * </p>
+ *
+ * <p>
+ * 全ての接続で同じロジックを共有するため、読み込んだデータはメモリ上で使い回されます。
+ * ログインの照合結果は{@link LoginCache}で接続ごとに覚え、他の接続とは共有しません。
+ * 書き込みを行うコマンドは1つずつ実行し、確認と書き込みの間に他の書き込みが割り込まないようにします。
+ * </p>
+ */
+public class TaskServer implements AutoCloseable {
+    /** 書き込みを行うコマンド */
+    private static final Set<String> WRITE_COMMANDS = Set.of("add", "status", "delete", "commit", "hashpasswords");
+
+    private final UserLogic userLogic;
+
+    private final TaskLogic taskLogic;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock(true);
+
+    private final SessionOutput sessionOutput = new SessionOutput(System.out);
+
+    private final ServerSocket serverSocket;
+
+    public TaskServer(int port, UserLogic userLogic, TaskLogic taskLogic) throws IOException {
+        this.userLogic = userLogic;
+        this.taskLogic = taskLogic;
+        this.serverSocket = new ServerSocket(port, 128, InetAddress.getLoopbackAddress());
+    }
+
+    /**
+     * 既定のデータファイルでサーバーを起動し、終了するまで接続を受け付けます。
+     *
+     * @param port 待ち受けるポート番号
+     * @throws IOException 起動できなかった場合
+     */
+    public static void start(int port) throws IOException {
+        TaskLogic taskLogic = new TaskLogic();
+        try (CsvFileWatcher watcher = new CsvFileWatcher();
+                TaskServer server = new TaskServer(port, new UserLogic(), taskLogic)) {
+            taskLogic.watch(watcher);
+            System.out.println("ポート" + server.getPort() + "で待ち受けています");
+            server.serve();
+        }
+    }
+
+    /**
+     * 待ち受けているポート番号を返します。
+     *
+     * @return ポート番号
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * サーバーを閉じるまで接続を受け付けます。
+     * 受け付けている間は標準出力を接続ごとに振り分け、全ての接続の処理が終わったら元に戻します。
+     */
+    public void serve() {
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(sessionOutput, true, StandardCharsets.UTF_8));
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (!serverSocket.isClosed()) {
+                try {
+                    Socket socket = serverSocket.accept();
+                    executor.execute(() -> handle(socket));
+                } catch (IOException e) {
+                    if (!serverSocket.isClosed()) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+        } finally {
+            System.setOut(original);
+        }
+    }
+
+    /**
+     * コマンドが書き込みを行うかを返します。
+     * summaryはrebuildを指定した場合だけ、集計ファイルを書き直します。
+     *
+     * @param command コマンド
+     * @return 書き込みを行う場合はtrue
+     */
+    static boolean isWriteCommand(String command) {
+        String[] args = command.split("\\s+", 3);
+        if (args[0].equals("summary")) {
+            return args.length >= 2 && args[1].equals("rebuild");
+        }
+        return WRITE_COMMANDS.contains(args[0]);
+    }
+
+    /**
+     * 1つの接続のコマンドを切断されるまで処理します。
+     */
+    private void handle(Socket socket) {
+        BatchRunner session = new BatchRunner(userLogic, taskLogic);
+
+        try (socket;
+                LoginCache loginCache = LoginCache.begin();
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                OutputStream raw = new BufferedOutputStream(socket.getOutputStream());
+                PrintStream out = new PrintStream(raw, false, StandardCharsets.UTF_8)) {
+
+            sessionOutput.bind(out);
+            out.println("READY");
+            out.flush();
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.strip();
+                if (command.equals("quit")) {
+                    out.println("OK");
+                    break;
+                }
+
+                Lock held = isWriteCommand(command) ? lock.writeLock() : lock.readLock();
+                held.lock();
+                try {
+                    session.execute(command);
+                    out.println("OK");
+                } catch (AppException e) {
+                    out.println("ERROR " + e.getMessage());
+                } catch (RuntimeException e) {
+                    // 想定外の失敗でも接続は切らず、このコマンドだけをエラーとして返す
+                    e.printStackTrace();
+                    out.println("ERROR コマンドを実行できませんでした：" + e);
+                } finally {
+                    held.unlock();
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            session.discardBatch();
+            sessionOutput.bind(null);
+        }
+    }
+
+    /**
+     * 接続の受け付けを終了します。
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
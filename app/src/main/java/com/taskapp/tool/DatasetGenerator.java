@@ -0,0 +1,267 @@
+package com.taskapp.tool;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 性能測定用に、既存のCSVと同じ形式で大量のユーザー・タスク・ログを生成するツールです。
+ *
+ * <p>
+ * 同じシードを指定すれば、スレッド数に関係なく同じデータが生成されます。
+ * タスクは一定件数ごとのチャンクに分けて並列に生成し、最後にチャンクの順番どおりに連結します。
+ * </p>
+ *
+ * <p>
+ * 生成されるデータはアプリケーションの動作と矛盾しません。
+ * 各タスクには登録時のログ（ステータス0）があり、着手中・完了のタスクには
+ * 担当者によるステータス変更のログが日付順に続きます。
+ * </p>
+ *
+ * <pre>
+ * gradle generateDataset --args="--out build/dataset --users 1000 --tasks 1000000 --seed 42"
+ * </pre>
+ */
+public class DatasetGenerator {
+    /** 1チャンクあたりのタスク数 */
+    private static final int CHUNK_SIZE = 50_000;
+
+    /** タスク名に使う単語 */
+    private static final String[] WORDS = {
+            "資料作成", "会議準備", "review", "deploy", "請求書", "設計", "test", "調査", "報告書", "bugfix",
+            "見積もり", "release", "議事録", "refactor", "採用面接", "backup"
+    };
+
+    private Path outDir = Paths.get("build/dataset");
+    private int userCount = 100;
+    private int taskCount = 10_000;
+    private long seed = 42;
+
+    /** 担当者の偏り（Zipf分布の指数、0で一様） */
+    private double userSkew = 1.0;
+
+    /** 未着手・着手中・完了の割合 */
+    private double[] statusMix = { 0.3, 0.3, 0.4 };
+
+    private LocalDate startDate = LocalDate.of(2024, 1, 1);
+
+    /** 登録日を散らばらせる日数 */
+    private int dateSpreadDays = 365;
+
+    /** タスクごとに、ステータス変更以外に追加されるログの平均件数 */
+    private double extraLogsPerTask = 0.5;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /** 担当者を選ぶための累積分布 */
+    private double[] userCdf;
+
+    public static void main(String[] args) throws Exception {
+        DatasetGenerator generator = new DatasetGenerator();
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--out":
+                    generator.outDir = Paths.get(value);
+                    break;
+                case "--users":
+                    generator.userCount = Integer.parseInt(value);
+                    break;
+                case "--tasks":
+                    generator.taskCount = Integer.parseInt(value);
+                    break;
+                case "--seed":
+                    generator.seed = Long.parseLong(value);
+                    break;
+                case "--user-skew":
+                    generator.userSkew = Double.parseDouble(value);
+                    break;
+                case "--status-mix":
+                    generator.statusMix = Arrays.stream(value.split(",")).mapToDouble(Double::parseDouble).toArray();
+                    break;
+                case "--start-date":
+                    generator.startDate = LocalDate.parse(value);
+                    break;
+                case "--date-spread":
+                    generator.dateSpreadDays = Integer.parseInt(value);
+                    break;
+                case "--extra-logs":
+                    generator.extraLogsPerTask = Double.parseDouble(value);
+                    break;
+                case "--threads":
+                    generator.threads = Integer.parseInt(value);
+                    break;
+                default:
+                    System.out.println("不明なオプションです：" + args[i]);
+                    return;
+            }
+        }
+
+        long begin = System.nanoTime();
+        generator.generate();
+        System.out.println(String.format("%sにユーザー%d件、タスク%d件を生成しました (%.1f秒)",
+                generator.outDir, generator.userCount, generator.taskCount,
+                (System.nanoTime() - begin) / 1e9));
+    }
+
+    /**
+     * データセットを生成します。
+     *
+     * @throws Exception 書き込みに失敗した場合
+     */
+    public void generate() throws Exception {
+        if (statusMix.length != 3) {
+            throw new IllegalArgumentException("--status-mix は未着手,着手中,完了 の3つの割合で指定してください");
+        }
+        Files.createDirectories(outDir);
+        userCdf = cumulativeZipf(userCount, userSkew);
+
+        int chunks = (taskCount + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        List<Future<?>> futures = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads))) {
+            futures.add(executor.submit(() -> {
+                writeUsers();
+                return null;
+            }));
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int index = chunk;
+                futures.add(executor.submit(() -> {
+                    writeChunk(index);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        concat("tasks.csv", "Code,Name,Status,Rep_User_Code", chunks);
+        concat("logs.csv", "Task_Code,Change_User_Code,Status,Change_Date", chunks);
+    }
+
+    private void writeUsers() throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(outDir.resolve("users.csv"), StandardCharsets.UTF_8)) {
+            writer.write("Code,Name,Email,Password");
+            for (int code = 1; code <= userCount; code++) {
+                writer.newLine();
+                writer.write(code + ",ユーザー" + code + ",user" + code + "@example.com,password" + code);
+            }
+        }
+    }
+
+    /**
+     * 1チャンク分のタスクとログを、チャンクごとの一時ファイルに書き出します。
+     * チャンクごとにシードを決めるため、実行順序が変わっても結果は同じです。
+     */
+    private void writeChunk(int chunk) throws IOException {
+        Random random = new Random(seed * 31 + chunk);
+        int first = chunk * CHUNK_SIZE + 1;
+        int last = Math.min(taskCount, first + CHUNK_SIZE - 1);
+
+        try (BufferedWriter tasks = Files.newBufferedWriter(partPath("tasks.csv", chunk), StandardCharsets.UTF_8);
+                BufferedWriter logs = Files.newBufferedWriter(partPath("logs.csv", chunk), StandardCharsets.UTF_8)) {
+
+            for (int code = first; code <= last; code++) {
+                int creator = 1 + random.nextInt(userCount);
+                int repUser = pickUser(random);
+                int status = pickStatus(random);
+                String name = (WORDS[random.nextInt(WORDS.length)] + code);
+                name = name.substring(0, Math.min(10, name.length()));
+
+                tasks.newLine();
+                tasks.write(code + "," + name + "," + status + "," + repUser);
+
+                // 登録のログ
+                LocalDate date = startDate.plusDays(random.nextInt(Math.max(1, dateSpreadDays)));
+                logs.newLine();
+                logs.write(code + "," + creator + ",0," + date);
+
+                // 担当者によるステータス変更のログ
+                for (int next = 1; next <= status; next++) {
+                    date = date.plusDays(random.nextInt(14));
+                    logs.newLine();
+                    logs.write(code + "," + repUser + "," + next + "," + date);
+                }
+
+                // 同じステータスのまま記録されたログ
+                while (random.nextDouble() < extraLogsPerTask / (1 + extraLogsPerTask)) {
+                    date = date.plusDays(random.nextInt(7));
+                    logs.newLine();
+                    logs.write(code + "," + repUser + "," + status + "," + date);
+                }
+            }
+        }
+    }
+
+    /**
+     * タイトル行とチャンクの一時ファイルを順番に連結します。
+     */
+    private void concat(String fileName, String header, int chunks) throws IOException {
+        try (FileChannel out = FileChannel.open(outDir.resolve(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            out.write(ByteBuffer.wrap(header.getBytes(StandardCharsets.UTF_8)));
+
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                Path part = partPath(fileName, chunk);
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long position = 0;
+                    long size = in.size();
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+                Files.delete(part);
+            }
+        }
+    }
+
+    private Path partPath(String fileName, int chunk) {
+        return outDir.resolve(fileName + ".part" + chunk);
+    }
+
+    private int pickUser(Random random) {
+        int index = Arrays.binarySearch(userCdf, random.nextDouble());
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return Math.min(index, userCount - 1) + 1;
+    }
+
+    private int pickStatus(Random random) {
+        double total = statusMix[0] + statusMix[1] + statusMix[2];
+        double value = random.nextDouble() * total;
+        if (value < statusMix[0]) {
+            return 0;
+        }
+        return value < statusMix[0] + statusMix[1] ? 1 : 2;
+    }
+
+    private static double[] cumulativeZipf(int count, double exponent) {
+        double[] cdf = new double[count];
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += 1.0 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < count; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+}
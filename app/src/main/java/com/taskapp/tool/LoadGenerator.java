@@ -0,0 +1,354 @@
+package com.taskapp.tool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.taskapp.dataaccess.CsvFileLock;
+import com.taskapp.dataaccess.Durability;
+import com.taskapp.dataaccess.LockStatistics;
+import com.taskapp.dataaccess.LogDataAccess;
+import com.taskapp.dataaccess.LoginCache;
+import com.taskapp.dataaccess.TaskDataAccess;
+import com.taskapp.dataaccess.UserDataAccess;
+import com.taskapp.exception.AppException;
+import com.taskapp.logic.TaskLogic;
+import com.taskapp.logic.UserLogic;
+import com.taskapp.model.Task;
+import com.taskapp.model.User;
+
+/**
+ * 多数のユーザーが同時に操作した時の性能を測る負荷生成ツールです。
+ *
+ * <p>
+ * 元データを作業用ディレクトリにコピーし、仮想スレッドで動くセッションを指定した数だけ起動します。
+ * 各セッションはログイン・一覧表示・新規登録・ステータス変更を決められた割合で繰り返し、
+ * 終了後にスループット、レイテンシのパーセンタイル、エラー数、ファイルサイズの推移を出力します。
+ * レイテンシはエラーになった操作も含めた全ての試行で計測し、操作ごとのエラー数と並べて出力します。
+ * --durabilityでディスクへの同期の方法（NONE・BATCH・SYNC）を変えて、書き込み性能を比べられます。
+ * </p>
+ *
+ * <p>
+ * 元データのパスワードはハッシュ化されていることがありログインに使えないため、作業用ディレクトリのusers.csvは
+ * コードと名前を残したまま、このツールが作ったメールアドレスと平文のパスワードで書き直します。
+ * --hashpasswords trueを指定すると、書き直したパスワードをハッシュ化してから負荷をかけ、ハッシュとの照合を含めて計測します。
+ * </p>
+ *
+ * <pre>
+ * gradle loadTest --args="--sessions 50 --duration 30 --data app/src/main/resources --durability SYNC"
+ * </pre>
+ */
+public class LoadGenerator {
+    /** 計測する操作 */
+    enum Operation {
+        LOGIN(10), SHOW_ALL(50), SAVE(20), CHANGE_STATUS(20);
+
+        /** 操作の割合 */
+        private final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    private final Path dataDir;
+
+    private final int sessions;
+
+    private final int durationSeconds;
+
+    /** 負荷をかける前にパスワードをハッシュ化する場合はtrue */
+    private final boolean hashPasswords;
+
+    private final Map<Operation, Latencies> latencies = new EnumMap<>(Operation.class);
+
+    /** 業務エラー（存在しないコード、ステータスの競合など）の数 */
+    private final AtomicLong conflicts = new AtomicLong();
+
+    /** 予期しない例外の種類ごとの数 */
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    private final List<String> sizeTimeline = new ArrayList<>();
+
+    private List<User> users;
+
+    public LoadGenerator(Path dataDir, int sessions, int durationSeconds, boolean hashPasswords) {
+        this.dataDir = dataDir;
+        this.sessions = sessions;
+        this.durationSeconds = durationSeconds;
+        this.hashPasswords = hashPasswords;
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new Latencies());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path source = Paths.get("app/src/main/resources");
+        int sessions = 20;
+        int duration = 10;
+        boolean hashPasswords = false;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--data":
+                    source = Paths.get(args[i + 1]);
+                    break;
+                case "--sessions":
+                    sessions = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--duration":
+                    duration = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--durability":
+                    Durability.setMode(Durability.Mode.valueOf(args[i + 1].toUpperCase()));
+                    break;
+                case "--hashpasswords":
+                    hashPasswords = Boolean.parseBoolean(args[i + 1]);
+                    break;
+                default:
+                    System.out.println("不明なオプションです：" + args[i]);
+                    return;
+            }
+        }
+
+        Path scratch = Files.createTempDirectory("taskapp-load");
+        for (String file : new String[] { "users.csv", "tasks.csv", "logs.csv" }) {
+            Files.copy(source.resolve(file), scratch.resolve(file));
+        }
+
+        LoadGenerator generator = new LoadGenerator(scratch, sessions, duration, hashPasswords);
+        generator.run();
+        generator.report(System.out);
+    }
+
+    /**
+     * 負荷をかけます。実行中はロジックの出力を捨てます。
+     *
+     * @throws Exception 作業用ディレクトリを読み込めなかった場合
+     */
+    public void run() throws Exception {
+        users = prepareUsers();
+
+        PrintStream original = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream(), false, StandardCharsets.UTF_8));
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        long start = System.nanoTime();
+        sampler.scheduleAtFixedRate(() -> sampleSizes(start), 0, 1, TimeUnit.SECONDS);
+
+        long deadline = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < sessions; i++) {
+                executor.execute(() -> runSession(deadline));
+            }
+        } finally {
+            sampler.shutdownNow();
+            sampleSizes(start);
+            System.setOut(original);
+        }
+    }
+
+    /**
+     * 1人分のセッションを実行します。
+     * セッションごとにデータアクセスを作り、別々のアプリケーションが同じファイルを使う状況を再現します。
+     */
+    private void runSession(long deadline) {
+        UserDataAccess userDataAccess = new UserDataAccess(dataDir.resolve("users.csv").toString());
+        TaskDataAccess taskDataAccess = new TaskDataAccess(dataDir.resolve("tasks.csv").toString(), userDataAccess);
+        LogDataAccess logDataAccess = new LogDataAccess(dataDir.resolve("logs.csv").toString());
+        UserLogic userLogic = new UserLogic(userDataAccess);
+        TaskLogic taskLogic = new TaskLogic(taskDataAccess, logDataAccess, userDataAccess);
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        User loginUser = users.get(random.nextInt(users.size()));
+
+        // ログインの照合結果は、このセッションの中だけで覚える
+        try (LoginCache loginCache = LoginCache.begin()) {
+            while (System.nanoTime() < deadline) {
+                Operation operation = pick(random);
+                long begin = System.nanoTime();
+                boolean failed = true;
+                try {
+                    switch (operation) {
+                        case LOGIN:
+                            User user = users.get(random.nextInt(users.size()));
+                            loginUser = userLogic.login(user.getEmail(), user.getPassword());
+                            break;
+                        case SHOW_ALL:
+                            taskLogic.showAll(loginUser);
+                            break;
+                        case SAVE:
+                            taskLogic.save("load", users.get(random.nextInt(users.size())).getCode(), loginUser);
+                            break;
+                        case CHANGE_STATUS:
+                            List<Task> tasks = taskDataAccess.findAll();
+                            if (!tasks.isEmpty()) {
+                                Task task = tasks.get(random.nextInt(tasks.size()));
+                                taskLogic.changeStatus(task.getCode(), 1 + random.nextInt(2), loginUser);
+                            }
+                            break;
+                    }
+                    failed = false;
+                } catch (AppException e) {
+                    conflicts.incrementAndGet();
+                } catch (RuntimeException e) {
+                    errors.computeIfAbsent(e.getClass().getSimpleName(), k -> new LongAdder()).increment();
+                }
+                // エラーになった試行も、かかった時間を計測に含める
+                latencies.get(operation).record(System.nanoTime() - begin, failed);
+            }
+        }
+    }
+
+    private Operation pick(ThreadLocalRandom random) {
+        int total = Arrays.stream(Operation.values()).mapToInt(operation -> operation.weight).sum();
+        int value = random.nextInt(total);
+        for (Operation operation : Operation.values()) {
+            value -= operation.weight;
+            if (value < 0) {
+                return operation;
+            }
+        }
+        return Operation.SHOW_ALL;
+    }
+
+    /**
+     * 作業用ディレクトリのusers.csvを、このツールが平文のパスワードを知っているユーザーで書き直します。
+     * コードと名前は元のデータのまま残すため、タスクの担当ユーザーはそのまま使えます。
+     *
+     * @return ログインに使う、平文のパスワードを持ったユーザー
+     * @throws IOException users.csvを読み書きできなかった場合
+     */
+    private List<User> prepareUsers() throws IOException {
+        Path path = dataDir.resolve("users.csv");
+        List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+        List<User> result = new ArrayList<>();
+        List<String> rows = new ArrayList<>();
+        rows.add(lines.get(0));
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isBlank()) {
+                continue;
+            }
+            String[] values = line.split(",");
+            int code = Integer.parseInt(values[0]);
+            User user = new User(code, values[1], "load" + code + "@example.com", "password" + code);
+            result.add(user);
+            rows.add(code + "," + user.getName() + "," + user.getEmail() + "," + user.getPassword());
+        }
+        Files.writeString(path, String.join("\n", rows), StandardCharsets.UTF_8);
+
+        if (hashPasswords) {
+            new UserDataAccess(path.toString()).hashPasswords();
+        }
+        return result;
+    }
+
+    private void sampleSizes(long start) {
+        try {
+            long elapsed = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start);
+            String line = String.format("%4ds  tasks.csv=%,d bytes  logs.csv=%,d bytes", elapsed,
+                    Files.size(dataDir.resolve("tasks.csv")), Files.size(dataDir.resolve("logs.csv")));
+            synchronized (sizeTimeline) {
+                sizeTimeline.add(line);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 計測結果を出力します。
+     *
+     * @param out 出力先
+     */
+    public void report(PrintStream out) {
+        out.println("作業用ディレクトリ：" + dataDir);
+        out.println("セッション数：" + sessions + ", 実行時間：" + durationSeconds + "秒"
+                + ", ディスクへの同期：" + Durability.mode());
+        out.println();
+        out.println(String.format("%-14s %10s %10s %10s %10s %10s %10s", "操作", "件数", "エラー", "件/秒",
+                "p50(ms)", "p95(ms)", "p99(ms)"));
+
+        long total = 0;
+        long failures = 0;
+        for (Map.Entry<Operation, Latencies> entry : latencies.entrySet()) {
+            long[] sorted = entry.getValue().sorted();
+            long failed = entry.getValue().failures();
+            total += sorted.length;
+            failures += failed;
+            out.println(String.format("%-14s %10d %10d %10.1f %10.2f %10.2f %10.2f", entry.getKey(), sorted.length,
+                    failed, (double) sorted.length / durationSeconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99)));
+        }
+
+        out.println();
+        out.println(String.format("合計：%d件 (%.1f件/秒), エラー：%d件, うち業務エラー：%d件",
+                total, (double) total / durationSeconds, failures, conflicts.get()));
+        errors.forEach((type, count) -> out.println("予期しないエラー：" + type + " " + count.sum() + "件"));
+        out.println();
+        out.println("ロックの待ち時間");
+        for (LockStatistics statistics : CsvFileLock.statistics()) {
+            out.println(statistics);
+        }
+        out.println(Durability.statistics());
+        out.println();
+        out.println("ファイルサイズの推移");
+        synchronized (sizeTimeline) {
+            sizeTimeline.forEach(out::println);
+        }
+    }
+
+    private static double percentile(long[] sorted, double rank) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(rank * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    /**
+     * 1種類の操作のレイテンシとエラーになった試行の数を記録します。
+     */
+    private static class Latencies {
+        private long[] values = new long[1024];
+        private int size;
+        private long failures;
+
+        synchronized void record(long nanos, boolean failed) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+            if (failed) {
+                failures++;
+            }
+        }
+
+        synchronized long failures() {
+            return failures;
+        }
+
+        synchronized long[] sorted() {
+            long[] result = Arrays.copyOf(values, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
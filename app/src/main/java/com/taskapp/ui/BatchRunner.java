@@ -0,0 +1,343 @@
+package com.taskapp.ui;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+import com.taskapp.dataaccess.LoginCache;
+import com.taskapp.dataaccess.TaskOrder;
+import com.taskapp.exception.AppException;
+import com.taskapp.logic.TaskLogic;
+import com.taskapp.logic.UserLogic;
+import com.taskapp.model.User;
+
+/**
+ * スクリプトに書かれたコマンドを、対話なしでまとめて実行します。
+ *
+ * <p>
+ * 1行に1つのコマンドを書きます。空行と#で始まる行は無視します。
+ * </p>
+ * 
+ * <pre>
+ * login メールアドレス パスワード
+ * add タスクコード(自動採番の場合は-) 担当ユーザーコード タスク名
+ * status タスクコード ステータス
+ * delete タスクコード
+ * list [code|status|user] [ページ]
+ * filter [status=ステータス] [user=担当ユーザーコード]
+ * search タスク名に含まれる文字列
+ * begin
+ * commit
+ * rollback
+ * asof [日付(yyyy-MM-dd)]
+ * summary [rebuild]
+ * cycletime
+ * daily 最初の日(yyyy-MM-dd) 最後の日(yyyy-MM-dd)
+ * top users|tasks 件数 [最初の日(yyyy-MM-dd) 最後の日(yyyy-MM-dd)]
+ * hashpasswords
+ * </pre>
+ *
+ * <p>
+ * beginからcommitまでの登録・ステータス変更は、commitの時に1回の書き込みでまとめてファイルに反映します。
+ * commitせずにスクリプトが終わった場合は破棄します。
+ * </p>
+ *
+ * <p>
+ * 全てのコマンドは1つのセッションで実行され、読み込んだデータを使い回します。
+ * 出力はまとめてバッファし、最後に書き出します。
+ * </p>
+ */
+public class BatchRunner {
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final UserLogic userLogic;
+
+    private final TaskLogic taskLogic;
+
+    private User loginUser;
+
+    /** beginからcommitまでの間はtrue */
+    private boolean batching;
+
+    public BatchRunner() {
+        this(new UserLogic(), new TaskLogic());
+    }
+
+    public BatchRunner(UserLogic userLogic, TaskLogic taskLogic) {
+        this.userLogic = userLogic;
+        this.taskLogic = taskLogic;
+    }
+
+    /**
+     * スクリプトの全てのコマンドを実行します。
+     * エラーになったコマンドは行番号とメッセージを出力し、次のコマンドに進みます。
+     * 想定外の例外でも同じく、その行だけをエラーとして次のコマンドに進みます。
+     * スクリプトの実行中は、ログインの照合結果をこのスクリプトの中だけで覚えます。
+     *
+     * @param script 実行するスクリプト
+     * @param out    出力先
+     * @return エラーになったコマンドの数
+     */
+    public int run(BufferedReader script, PrintStream out) {
+        PrintStream original = System.out;
+        PrintStream buffered = new PrintStream(new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE), false,
+                StandardCharsets.UTF_8);
+        System.setOut(buffered);
+
+        int errors = 0;
+        int lineNumber = 0;
+        try (LoginCache loginCache = LoginCache.begin()) {
+            String line;
+            while ((line = script.readLine()) != null) {
+                lineNumber++;
+                try {
+                    execute(line);
+                } catch (AppException e) {
+                    errors++;
+                    System.out.println(lineNumber + "行目：" + e.getMessage());
+                } catch (RuntimeException e) {
+                    errors++;
+                    e.printStackTrace();
+                    System.out.println(lineNumber + "行目：コマンドを実行できませんでした：" + e);
+                }
+            }
+            if (discardBatch()) {
+                errors++;
+                System.out.println("commitされていないバッチを破棄しました");
+            }
+        } catch (IOException e) {
+            errors++;
+            e.printStackTrace();
+        } finally {
+            buffered.flush();
+            System.setOut(original);
+        }
+        return errors;
+    }
+
+    /**
+     * コマンドを1つ実行します。
+     *
+     * @param line 実行するコマンド
+     * @throws AppException コマンドが誤っている、または処理に失敗した場合にスローされます
+     */
+    public void execute(String line) throws AppException {
+        String command = line.strip();
+        if (command.isEmpty() || command.startsWith("#")) {
+            return;
+        }
+
+        String[] args = command.split("\\s+", 4);
+        switch (args[0]) {
+            case "login":
+                requireArgs(args, 3);
+                loginUser = userLogic.login(args[1], args[2]);
+                break;
+            case "add":
+                requireLogin();
+                add(args);
+                break;
+            case "status":
+                requireLogin();
+                requireArgs(args, 3);
+                int status = parseNumber(args[2]);
+                if (!(status == 1 || status == 2)) {
+                    throw new AppException("ステータスは1・2の中から選択してください");
+                }
+                taskLogic.changeStatus(parseNumber(args[1]), status, loginUser);
+                break;
+            case "delete":
+                requireLogin();
+                requireArgs(args, 2);
+                taskLogic.delete(parseNumber(args[1]));
+                break;
+            case "list":
+                requireLogin();
+                list(command.split("\\s+"));
+                break;
+            case "filter":
+                requireLogin();
+                filter(command.split("\\s+"));
+                break;
+            case "search":
+                requireLogin();
+                requireArgs(args, 2);
+                taskLogic.showSearchResult(command.split("\\s+", 2)[1], loginUser);
+                break;
+            case "begin":
+                taskLogic.beginBatch();
+                batching = true;
+                break;
+            case "commit":
+                batching = false;
+                taskLogic.commitBatch();
+                break;
+            case "rollback":
+                batching = false;
+                taskLogic.rollbackBatch();
+                break;
+            case "summary":
+                requireLogin();
+                if (args.length >= 2 && args[1].equals("rebuild")) {
+                    taskLogic.rebuildSummary();
+                } else {
+                    taskLogic.showSummary();
+                }
+                break;
+            case "cycletime":
+                requireLogin();
+                taskLogic.showCycleTimes();
+                break;
+            case "daily":
+                requireLogin();
+                requireArgs(args, 3);
+                taskLogic.showDailyActivity(parseDate(args[1]), parseDate(args[2]));
+                break;
+            case "top":
+                requireLogin();
+                top(command.split("\\s+"));
+                break;
+            case "hashpasswords":
+                requireLogin();
+                userLogic.hashPasswords();
+                break;
+            case "asof":
+                requireLogin();
+                taskLogic.showStates(args.length < 2 ? null : parseDate(args[1]));
+                break;
+            default:
+                throw new AppException("不明なコマンドです：" + args[0]);
+        }
+    }
+
+    /**
+     * commitされていないバッチがあれば破棄します。
+     *
+     * @return 破棄した場合はtrue
+     */
+    public boolean discardBatch() {
+        if (!batching) {
+            return false;
+        }
+        batching = false;
+        taskLogic.rollbackBatch();
+        return true;
+    }
+
+    private void add(String[] args) throws AppException {
+        requireArgs(args, 4);
+        String name = args[3];
+        if (!(name.length() <= 10)) {
+            throw new AppException("タスク名は10文字以内で入力してください");
+        }
+
+        int repUserCode = parseNumber(args[2]);
+        if (args[1].equals("-")) {
+            taskLogic.save(name, repUserCode, loginUser);
+        } else {
+            taskLogic.save(parseNumber(args[1]), name, repUserCode, loginUser);
+        }
+    }
+
+    private void list(String[] args) throws AppException {
+        if (args.length < 2) {
+            taskLogic.showAll(loginUser);
+            return;
+        }
+
+        TaskOrder order;
+        switch (args[1]) {
+            case "code":
+                order = TaskOrder.CODE;
+                break;
+            case "status":
+                order = TaskOrder.STATUS;
+                break;
+            case "user":
+                order = TaskOrder.REP_USER_NAME;
+                break;
+            default:
+                throw new AppException("並び順は code・status・user のいずれかで指定してください");
+        }
+        if (args.length >= 3) {
+            taskLogic.showPage(loginUser, order, parseNumber(args[2]));
+        } else {
+            taskLogic.showCurrent(loginUser, order);
+        }
+    }
+
+    private void filter(String[] args) throws AppException {
+        Integer status = null;
+        Integer repUserCode = null;
+        for (int i = 1; i < args.length; i++) {
+            String[] condition = args[i].split("=", 2);
+            if (condition.length != 2) {
+                throw new AppException("絞り込み条件は status=ステータス または user=担当ユーザーコード で指定してください");
+            }
+            switch (condition[0]) {
+                case "status":
+                    status = parseNumber(condition[1]);
+                    break;
+                case "user":
+                    repUserCode = parseNumber(condition[1]);
+                    break;
+                default:
+                    throw new AppException("不明な絞り込み条件です：" + condition[0]);
+            }
+        }
+        taskLogic.showFiltered(loginUser, status, repUserCode);
+    }
+
+    private void top(String[] args) throws AppException {
+        requireArgs(args, 3);
+        int limit = parseNumber(args[2]);
+        LocalDate from = args.length >= 4 ? parseDate(args[3]) : null;
+        LocalDate to = args.length >= 5 ? parseDate(args[4]) : null;
+        switch (args[1]) {
+            case "users":
+                taskLogic.showTopChangeUsers(limit, from, to);
+                break;
+            case "tasks":
+                taskLogic.showTopChangedTasks(limit, from, to);
+                break;
+            default:
+                throw new AppException("topコマンドの対象は users または tasks で指定してください");
+        }
+    }
+
+    private void requireLogin() throws AppException {
+        if (loginUser == null) {
+            throw new AppException("先にloginコマンドでログインしてください");
+        }
+    }
+
+    private void requireArgs(String[] args, int count) throws AppException {
+        if (args.length < count) {
+            throw new AppException(args[0] + "コマンドの引数が足りません");
+        }
+    }
+
+    private LocalDate parseDate(String value) throws AppException {
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new AppException("日付はyyyy-MM-ddの形式で入力してください：" + value);
+        }
+    }
+
+    private int parseNumber(String value) throws AppException {
+        if (value.isEmpty() || !value.chars().allMatch(c -> Character.isDigit((char) c))) {
+            throw new AppException("コードとステータスは半角の数字で入力してください：" + value);
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            // 数字だけでもintに収まらない場合は、その行だけをエラーにする
+            throw new AppException("コードとステータスは" + Integer.MAX_VALUE + "以下で入力してください：" + value);
+        }
+    }
+}
@@ -3,7 +3,14 @@ package com.taskapp.ui;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
-
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+import com.taskapp.dataaccess.CsvFileWatcher;
+import com.taskapp.dataaccess.LogRetentionPolicy;
+import com.taskapp.dataaccess.TaskOrder;
+import com.taskapp.dataaccess.TaskSnapshot;
 import com.taskapp.exception.AppException;
 import com.taskapp.logic.TaskLogic;
 import com.taskapp.logic.UserLogic;
@@ -18,10 +25,24 @@ public class TaskUI {
 
     private User loginUser;
 
+    /** タスク一覧で表示したタスクの版（サブメニューの間だけ持ち、それ以外はnull） */
+    private TaskSnapshot displayed;
+
     public TaskUI() {
         reader = new BufferedReader(new InputStreamReader(System.in));
         userLogic = new UserLogic();
         taskLogic = new TaskLogic();
+
+        // 他のプロセスによる書き込みを検知して読み込んでおく
+        try {
+            taskLogic.watch(new CsvFileWatcher());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        // 保存方針が設定されている場合は古いログを定期的に削除する
+        taskLogic.startLogPurge(LogRetentionPolicy.fromSystemProperties(),
+                Duration.ofMinutes(Integer.getInteger("taskapp.logs.purgeIntervalMinutes", 60)));
     }
 
     /**
@@ -41,9 +62,12 @@ public class TaskUI {
      * メニューを表示し、ユーザーの入力に基づいてアクションを実行します。
      *
      * @see #inputLogin()
-     * @see com.taskapp.logic.TaskLogic#showAll(User)
+     * @see #selectOrder()
+     * @see com.taskapp.logic.TaskLogic#showCurrent(User, TaskOrder)
      * @see #selectSubMenu()
      * @see #inputNewInformation()
+     * @see #selectReportMenu()
+     * @see #inputSearchInformation()
      */
     public void displayMenu() {
         System.out.println("タスク管理アプリケーションにようこそ!!");
@@ -54,8 +78,8 @@ public class TaskUI {
         boolean flg = true;
         while (flg) {
             try {
-                System.out.println("以下1~3のメニューから好きな選択肢を選んでください。");
-                System.out.println("1. タスク一覧, 2. タスク新規登録, 3. ログアウト");
+                System.out.println("以下1~5のメニューから好きな選択肢を選んでください。");
+                System.out.println("1. タスク一覧, 2. タスク新規登録, 3. タスク集計, 4. タスク検索, 5. ログアウト");
                 System.out.print("選択肢：");
                 String selectMenu = reader.readLine();
 
@@ -63,18 +87,26 @@ public class TaskUI {
 
                 switch (selectMenu) {
                     case "1":
-                        taskLogic.showAll(loginUser);
+                        // 表示した版をサブメニューの操作で使い回す
+                        displayed = taskLogic.showCurrent(loginUser, selectOrder());
                         selectSubMenu();
+                        displayed = null;
                         break;
                     case "2":
                         inputNewInformation();
                         break;
                     case "3":
+                        selectReportMenu();
+                        break;
+                    case "4":
+                        inputSearchInformation();
+                        break;
+                    case "5":
                         System.out.println("ログアウトしました。");
                         flg = false;
                         break;
                     default:
-                        System.out.println("選択肢が誤っています。1~3の中から選択してください。");
+                        System.out.println("選択肢が誤っています。1~5の中から選択してください。");
                         break;
                 }
             } catch (IOException e) {
@@ -118,6 +150,7 @@ public class TaskUI {
      *
      * @see #isNumeric(String)
      * @see com.taskapp.logic.TaskLogic#save(int, String, int, User)
+     * @see com.taskapp.logic.TaskLogic#save(String, int, User)
      */
     public void inputNewInformation() {
         boolean flg = true;
@@ -125,11 +158,12 @@ public class TaskUI {
         while (flg) {
             try {
                 // タスクコード入力
+                System.out.println("※タスクコードを空欄にすると自動で採番します");
                 System.out.print("タスクコードを入力してください：");
                 String tascCode = reader.readLine();
 
                 // バリデーション
-                if (!(isNumeric(tascCode))) {
+                if (!(tascCode.isEmpty() || isNumeric(tascCode))) {
                     System.out.println("コードは半角の数字で入力してください");
                     System.out.println();
                     continue;
@@ -157,11 +191,16 @@ public class TaskUI {
                     continue;
                 }
 
-                taskLogic.save(
-                        Integer.parseInt(tascCode),
-                        tascName,
-                        Integer.parseInt(userCode),
-                        loginUser);
+                if (tascCode.isEmpty()) {
+                    int code = taskLogic.save(tascName, Integer.parseInt(userCode), loginUser);
+                    System.out.println("タスクコードは" + code + "です");
+                } else {
+                    taskLogic.save(
+                            Integer.parseInt(tascCode),
+                            tascName,
+                            Integer.parseInt(userCode),
+                            loginUser);
+                }
 
                 flg = false;
 
@@ -175,6 +214,69 @@ public class TaskUI {
         }
     }
 
+    /**
+     * ユーザーから検索する文字列を受け取り、タスク名にその文字列を含むタスクを表示します。
+     *
+     * @see com.taskapp.logic.TaskLogic#showSearchResult(String, User)
+     */
+    public void inputSearchInformation() {
+        boolean flg = true;
+
+        while (flg) {
+            try {
+                System.out.print("タスク名に含まれる文字列を入力してください：");
+                String query = reader.readLine();
+
+                // バリデーション
+                if (query.isEmpty() || !(query.length() <= 10)) {
+                    System.out.println("検索する文字列は1文字以上10文字以内で入力してください");
+                    System.out.println();
+                    continue;
+                }
+
+                if (taskLogic.showSearchResult(query, loginUser) == 0) {
+                    System.out.println("該当するタスクはありません");
+                }
+                flg = false;
+
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * タスク一覧の並び順を選択するメニューを表示します。
+     *
+     * @return 選択した並び順（登録順の場合はnull）
+     * @throws IOException 入力を読み込めなかった場合
+     */
+    public TaskOrder selectOrder() throws IOException {
+        while (true) {
+            System.out.println("並び順を選択してください。");
+            System.out.println("1. 登録順, 2. コード順, 3. ステータス順, 4. 担当ユーザー名順");
+            System.out.print("選択肢：");
+            String selectOrder = reader.readLine();
+
+            System.out.println();
+
+            switch (selectOrder) {
+                case "1":
+                    return null;
+                case "2":
+                    return TaskOrder.CODE;
+                case "3":
+                    return TaskOrder.STATUS;
+                case "4":
+                    return TaskOrder.REP_USER_NAME;
+                default:
+                    System.out.println("選択肢が誤っています。1~4の中から選択してください。");
+                    System.out.println();
+                    break;
+            }
+        }
+    }
+
     /**
      * タスクのステータス変更または削除を選択するサブメニューを表示します。
      *
@@ -187,8 +289,8 @@ public class TaskUI {
 
         while (flg) {
             try {
-                System.out.println("以下1~2から好きな選択肢を選んでください。");
-                System.out.println("1. タスクのステータス変更, 2. メインメニューに戻る");
+                System.out.println("以下1~3から好きな選択肢を選んでください。");
+                System.out.println("1. タスクのステータス変更, 2. タスクの削除, 3. メインメニューに戻る");
                 System.out.print("選択肢：");
                 String swichMenu = reader.readLine();
 
@@ -204,12 +306,16 @@ public class TaskUI {
                         break;
 
                     case "2":
+                        inputDeleteInformation();
+                        break;
+
+                    case "3":
                         System.out.println("メニューへ戻ります");
                         System.out.println();
                         flg = false;
                         break;
                     default:
-                        System.out.println("選択肢が誤っています。1~2の中から選択してください。");
+                        System.out.println("選択肢が誤っています。1~3の中から選択してください。");
                         break;
                 }
                 System.out.println();
@@ -223,11 +329,99 @@ public class TaskUI {
         }
     }
 
+    /**
+     * 集計の種類を選択するメニューを表示します。
+     *
+     * @see com.taskapp.logic.TaskLogic#showSummary()
+     * @see com.taskapp.logic.TaskLogic#showTopChangeUsers(int, LocalDate, LocalDate)
+     * @see com.taskapp.logic.TaskLogic#showTopChangedTasks(int, LocalDate, LocalDate)
+     * @see com.taskapp.logic.TaskLogic#showDailyActivity(LocalDate, LocalDate)
+     * @see com.taskapp.logic.TaskLogic#showCycleTimes()
+     */
+    public void selectReportMenu() {
+
+        boolean flg = true;
+
+        while (flg) {
+            try {
+                System.out.println("以下1~6から好きな選択肢を選んでください。");
+                System.out.println("1. 担当ユーザー別のタスク数, 2. 変更の多いユーザー, 3. 変更の多いタスク, " +
+                        "4. 日ごとの変更件数, 5. 着手・完了までの日数, 6. メインメニューに戻る");
+                System.out.print("選択肢：");
+                String selectMenu = reader.readLine();
+
+                System.out.println();
+
+                switch (selectMenu) {
+                    case "1":
+                        taskLogic.showSummary();
+                        break;
+                    case "2":
+                    case "3":
+                        System.out.print("表示する件数を入力してください：");
+                        String limit = reader.readLine();
+                        if (!(isNumeric(limit))) {
+                            System.out.println("件数は半角の数字で入力してください");
+                            break;
+                        }
+                        LocalDate from = inputDate("期間の最初の日");
+                        LocalDate to = inputDate("期間の最後の日");
+                        if (selectMenu.equals("2")) {
+                            taskLogic.showTopChangeUsers(Integer.parseInt(limit), from, to);
+                        } else {
+                            taskLogic.showTopChangedTasks(Integer.parseInt(limit), from, to);
+                        }
+                        break;
+                    case "4":
+                        taskLogic.showDailyActivity(inputDate("期間の最初の日"), inputDate("期間の最後の日"));
+                        break;
+                    case "5":
+                        taskLogic.showCycleTimes();
+                        break;
+                    case "6":
+                        System.out.println("メニューへ戻ります");
+                        flg = false;
+                        break;
+                    default:
+                        System.out.println("選択肢が誤っています。1~6の中から選択してください。");
+                        break;
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            } catch (AppException e) {
+                System.out.println(e.getMessage());
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * 集計する期間の日付を受け取ります。
+     *
+     * @param label 入力を求める日付の名前
+     * @return 入力された日付（空欄の場合はnull）
+     * @throws IOException  入力を読み込めなかった場合
+     * @throws AppException 日付の形式が誤っている場合
+     */
+    private LocalDate inputDate(String label) throws IOException, AppException {
+        System.out.print(label + "を入力してください（yyyy-MM-dd、空欄の場合は指定なし）：");
+        String date = reader.readLine();
+        if (date == null || date.isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new AppException("日付はyyyy-MM-ddの形式で入力してください");
+        }
+    }
+
     /**
      * ユーザーからのタスクステータス変更情報を受け取り、タスクのステータスを変更します。
      *
      * @see #isNumeric(String)
      * @see com.taskapp.logic.TaskLogic#changeStatus(int, int, User)
+     * @see com.taskapp.logic.TaskLogic#changeStatus(int, int, User, TaskSnapshot)
      */
     public void inputChangeInformation() throws AppException {
 
@@ -263,10 +457,18 @@ public class TaskUI {
                     continue;
                 }
 
-                taskLogic.changeStatus(
-                        Integer.parseInt(code),
-                        inforCode,
-                        loginUser);
+                if (displayed == null) {
+                    taskLogic.changeStatus(
+                            Integer.parseInt(code),
+                            inforCode,
+                            loginUser);
+                } else {
+                    taskLogic.changeStatus(
+                            Integer.parseInt(code),
+                            inforCode,
+                            loginUser,
+                            displayed);
+                }
 
                 flg = false;
 
@@ -286,9 +488,39 @@ public class TaskUI {
      *
      * @see #isNumeric(String)
      * @see com.taskapp.logic.TaskLogic#delete(int)
+     * @see com.taskapp.logic.TaskLogic#delete(int, TaskSnapshot)
      */
-    // public void inputDeleteInformation() {
-    // }
+    public void inputDeleteInformation() {
+
+        boolean flg = true;
+        while (flg) {
+            try {
+                System.out.print("削除するタスクコードを入力してください：");
+                String code = reader.readLine();
+
+                if (!(isNumeric(code))) {
+                    System.out.println("コードは半角の数字で入力してください");
+                    System.out.println();
+                    continue;
+                }
+
+                if (displayed == null) {
+                    taskLogic.delete(Integer.parseInt(code));
+                } else {
+                    taskLogic.delete(Integer.parseInt(code), displayed);
+                }
+
+                flg = false;
+
+            } catch (IOException e) {
+                e.printStackTrace();
+            } catch (AppException e) {
+                System.out.println(e.getMessage());
+            }
+            System.out.println();
+
+        }
+    }
 
     /**
      * 指定された文字列が数値であるかどうかを判定します。
@@ -0,0 +1,189 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CsvFileLockTest {
+    @TempDir
+    Path dir;
+
+    private Path file;
+
+    private CsvFileLock fileLock;
+
+    @BeforeEach
+    public void setUp() {
+        file = dir.resolve("tasks.csv");
+        fileLock = CsvFileLock.forFile(file.toString());
+    }
+
+    @Test
+    public void testForFileReturnsSameLock() {
+        assertThat(CsvFileLock.forFile(file.toAbsolutePath().toString())).isSameAs(fileLock);
+        assertThat(CsvFileLock.forFile(dir.resolve("logs.csv").toString())).isNotSameAs(fileLock);
+    }
+
+    @Test
+    public void testSharedLocksDoNotWaitForEachOther() throws Exception {
+        CountDownLatch bothHeld = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Runnable reader = () -> {
+            try (CsvFileLock.Handle lock = fileLock.shared()) {
+                bothHeld.countDown();
+                release.await(10, TimeUnit.SECONDS);
+            } catch (IOException | InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        CompletableFuture<Void> first = CompletableFuture.runAsync(reader);
+        CompletableFuture<Void> second = CompletableFuture.runAsync(reader);
+
+        // 2つの読み込みが同時に共有ロックを持てる
+        assertThat(bothHeld.await(10, TimeUnit.SECONDS)).isTrue();
+        release.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testExclusiveWaitsForShared() throws Exception {
+        CompletableFuture<Void> writer;
+        try (CsvFileLock.Handle lock = fileLock.shared()) {
+            writer = CompletableFuture.runAsync(() -> {
+                try (CsvFileLock.Handle exclusive = fileLock.exclusive()) {
+                    // 取れたらすぐに解放する
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            // 共有ロックを解放するまで、排他ロックは取れない
+            assertThatThrownBy(() -> writer.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        }
+        writer.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSharedWaitsForExclusive() throws Exception {
+        CompletableFuture<Void> reader;
+        try (CsvFileLock.Handle lock = fileLock.exclusive()) {
+            reader = CompletableFuture.runAsync(() -> {
+                try (CsvFileLock.Handle shared = fileLock.shared()) {
+                    // 取れたらすぐに解放する
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+
+            assertThatThrownBy(() -> reader.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        }
+        reader.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSharedAndExclusiveInsideExclusive() throws IOException {
+        // 同じスレッドでは、排他ロック中に共有ロック・排他ロックを重ねて取れる
+        try (CsvFileLock.Handle lock = fileLock.exclusive();
+                CsvFileLock.Handle shared = fileLock.shared();
+                CsvFileLock.Handle nested = fileLock.exclusive()) {
+            assertThat(lockedByAnotherProcess(false)).isEqualTo("locked");
+        }
+        assertThat(lockedByAnotherProcess(false)).isEqualTo("free");
+    }
+
+    @Test
+    public void testFileLockBetweenProcesses() throws IOException {
+        try (CsvFileLock.Handle lock = fileLock.shared()) {
+            // 他のプロセスも読み込みはできるが、書き込みはできない
+            assertThat(lockedByAnotherProcess(true)).isEqualTo("free");
+            assertThat(lockedByAnotherProcess(false)).isEqualTo("locked");
+        }
+
+        try (CsvFileLock.Handle lock = fileLock.exclusive()) {
+            assertThat(lockedByAnotherProcess(true)).isEqualTo("locked");
+        }
+
+        assertThat(lockedByAnotherProcess(false)).isEqualTo("free");
+    }
+
+    @Test
+    public void testStatistics() throws IOException {
+        try (CsvFileLock.Handle lock = fileLock.shared()) {
+            // 共有ロックを1回取る
+        }
+        try (CsvFileLock.Handle lock = fileLock.exclusive()) {
+            // 排他ロックを1回取る
+        }
+
+        String filePath = file.toAbsolutePath().normalize().toString();
+        LockStatistics statistics = CsvFileLock.statistics().stream()
+                .filter(s -> s.getFilePath().equals(filePath))
+                .findFirst()
+                .orElseThrow();
+
+        assertThat(statistics.getSharedCount()).isEqualTo(1);
+        assertThat(statistics.getExclusiveCount()).isEqualTo(1);
+        assertThat(statistics.getMaxWaitNanos()).isGreaterThanOrEqualTo(0);
+        assertThat(statistics.toString()).contains(filePath).contains("共有：1回").contains("排他：1回");
+    }
+
+    /**
+     * 別のプロセスから、ロックファイルのロックを取れるかを確かめます。
+     *
+     * @param shared 共有ロックを試す場合はtrue
+     * @return 取れた場合は"free"、他がロックしている場合は"locked"
+     */
+    private String lockedByAnotherProcess(boolean shared) throws IOException {
+        Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        Path classes;
+        try {
+            classes = Paths.get(TryLock.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        Process process = new ProcessBuilder(java.toString(),
+                "-cp", classes.toString(),
+                TryLock.class.getName(),
+                dir.resolve("tasks.csv.lock").toString(),
+                String.valueOf(shared))
+                .redirectErrorStream(true)
+                .start();
+        try {
+            assertThat(process.waitFor(30, TimeUnit.SECONDS)).isTrue();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+        return new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * 別のプロセスとして起動し、ロックファイルのロックを待たずに取れるかを出力します。
+     */
+    public static class TryLock {
+        public static void main(String[] args) throws IOException {
+            try (FileChannel channel = FileChannel.open(Paths.get(args[0]),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.tryLock(0, Long.MAX_VALUE, Boolean.parseBoolean(args[1]));
+                System.out.println(lock == null ? "locked" : "free");
+            }
+        }
+    }
+}
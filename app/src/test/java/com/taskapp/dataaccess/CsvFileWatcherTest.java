@@ -0,0 +1,75 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class CsvFileWatcherTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testWatchCallsListenerOnChange() throws Exception {
+        Path file = dir.resolve("tasks.csv");
+        Path other = dir.resolve("other.csv");
+        Files.writeString(file, "Code\n");
+        Files.writeString(other, "Code\n");
+
+        CountDownLatch changed = new CountDownLatch(1);
+        CountDownLatch otherChanged = new CountDownLatch(1);
+        try (CsvFileWatcher watcher = new CsvFileWatcher()) {
+            watcher.watch(file.toString(), changed::countDown);
+            watcher.watch(other.toString(), otherChanged::countDown);
+
+            Files.writeString(file, "1\n", StandardOpenOption.APPEND);
+
+            assertThat(changed.await(10, TimeUnit.SECONDS)).isTrue();
+            // 変更されていないファイルの処理は呼び出さない
+            assertThat(otherChanged.getCount()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void testWatchReloadsTaskDataAccess() throws Exception {
+        Path file = dir.resolve("tasks.csv");
+        Files.writeString(file, "Code,Name,Status,Rep_User_Code\n1,taskA,0,1");
+        TaskDataAccess taskDataAccess = new TaskDataAccess(file.toString(),
+                new UserDataAccess("src/test/resources/test_users.csv"));
+        long version = taskDataAccess.findSnapshot().version();
+
+        try (CsvFileWatcher watcher = new CsvFileWatcher()) {
+            CountDownLatch refreshed = new CountDownLatch(1);
+            taskDataAccess.watch(watcher);
+            watcher.watch(file.toString(), refreshed::countDown);
+
+            // 他のプロセスによる書き込み
+            Files.writeString(file, "\n2,taskB,0,2", StandardOpenOption.APPEND);
+
+            assertThat(refreshed.await(10, TimeUnit.SECONDS)).isTrue();
+            assertThat(taskDataAccess.findSnapshot().version()).isGreaterThan(version);
+            assertThat(taskDataAccess.findSnapshot().find(2)).isNotNull();
+        }
+    }
+
+    @Test
+    public void testCloseStopsWatching() throws IOException {
+        CsvFileWatcher watcher = new CsvFileWatcher();
+        watcher.watch(dir.resolve("tasks.csv").toString(), () -> {
+        });
+        watcher.close();
+
+        // 閉じた後は、新しいディレクトリを監視できない
+        Path sub = Files.createDirectory(dir.resolve("sub"));
+        assertThatThrownBy(() -> watcher.watch(sub.resolve("logs.csv").toString(), () -> {
+        })).isInstanceOf(ClosedWatchServiceException.class);
+    }
+}
@@ -0,0 +1,136 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class IncrementalCsvReaderTest {
+    @TempDir
+    Path dir;
+
+    private Path file;
+
+    @BeforeEach
+    public void setUp() {
+        file = dir.resolve("rows.csv");
+    }
+
+    @Test
+    public void testReadAllAfterAppend() throws IOException {
+        Files.writeString(file, "Code\n1\n2\n");
+        IncrementalCsvReader<String> reader = new IncrementalCsvReader<>(file, line -> line, false);
+
+        assertThat(reader.readAll()).containsExactly("1", "2");
+        long generation = reader.generation();
+
+        // 追記された分だけを読み、全体は読み直さない
+        append("3\n");
+        assertThat(reader.readAll()).containsExactly("1", "2", "3");
+        assertThat(reader.generation()).isEqualTo(generation);
+        assertThat(reader.rowsFrom(2)).containsExactly("3");
+    }
+
+    @Test
+    public void testReadAllWithUnterminatedLastLine() throws IOException {
+        Files.writeString(file, "Code\n1\n2");
+        IncrementalCsvReader<String> reader = new IncrementalCsvReader<>(file, line -> line, false);
+
+        // 改行で終わっていない最終行は、確定させずに返す
+        assertThat(reader.readAll()).containsExactly("1", "2");
+        assertThat(reader.committedCount()).isEqualTo(1);
+        long generation = reader.generation();
+
+        append("\n3");
+        assertThat(reader.readAll()).containsExactly("1", "2", "3");
+        assertThat(reader.committedCount()).isEqualTo(2);
+        assertThat(reader.generation()).isEqualTo(generation);
+    }
+
+    @Test
+    public void testReadAllAfterPrefixRewrite() throws IOException {
+        Files.writeString(file, "Code\n1\n2\n");
+        IncrementalCsvReader<String> reader = new IncrementalCsvReader<>(file, line -> line, true);
+        assertThat(reader.readAll()).containsExactly("1", "2");
+        long generation = reader.generation();
+
+        // 前回読んだ位置より前が書き換えられ、後ろに追記された
+        Files.writeString(file, "Code\n9\n2\n3\n");
+
+        assertThat(reader.readAll()).containsExactly("9", "2", "3");
+        assertThat(reader.generation()).isGreaterThan(generation);
+    }
+
+    @Test
+    public void testReadAllAfterRewriteWithSameSize() throws IOException {
+        Files.writeString(file, "Code\n1\n2\n");
+        IncrementalCsvReader<String> reader = new IncrementalCsvReader<>(file, line -> line, false);
+        assertThat(reader.readAll()).containsExactly("1", "2");
+
+        // サイズが同じでも、末尾の照合で書き換えを検出する
+        FileTime modified = Files.getLastModifiedTime(file);
+        Files.writeString(file, "Code\n1\n8\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified.toMillis() + 1000));
+
+        assertThat(reader.readAll()).containsExactly("1", "8");
+    }
+
+    @Test
+    public void testReadAllAfterTruncateAndDelete() throws IOException {
+        Files.writeString(file, "Code\n1\n2\n3\n");
+        IncrementalCsvReader<String> reader = new IncrementalCsvReader<>(file, line -> line, false);
+        assertThat(reader.readAll()).containsExactly("1", "2", "3");
+
+        Files.writeString(file, "Code\n1\n");
+        assertThat(reader.readAll()).containsExactly("1");
+
+        Files.delete(file);
+        assertThat(reader.readAll()).isEmpty();
+    }
+
+    @Test
+    public void testReadAllAfterOwnAppend() throws IOException {
+        Files.writeString(file, "Code\n1\n2\n");
+        IncrementalCsvReader<String> reader = new IncrementalCsvReader<>(file, line -> line, true);
+        assertThat(reader.readAll()).containsExactly("1", "2");
+        long generation = reader.generation();
+
+        // このプロセスが続けて追記した
+        FileStamp before = FileStamp.of(file);
+        append("3\n");
+        reader.appended(before, FileStamp.of(file));
+        before = FileStamp.of(file);
+        append("4\n");
+        reader.appended(before, FileStamp.of(file));
+
+        assertThat(reader.readAll()).containsExactly("1", "2", "3", "4");
+        assertThat(reader.generation()).isEqualTo(generation);
+    }
+
+    @Test
+    public void testReadAllAfterOwnAppendToRewrittenFile() throws IOException {
+        Files.writeString(file, "Code\n1\n2\n");
+        IncrementalCsvReader<String> reader = new IncrementalCsvReader<>(file, line -> line, true);
+        assertThat(reader.readAll()).containsExactly("1", "2");
+
+        // 他のプロセスが書き換えた後に、このプロセスが追記した
+        Files.writeString(file, "Code\n10\n2\n");
+        FileStamp before = FileStamp.of(file);
+        append("3\n");
+        reader.appended(before, FileStamp.of(file));
+
+        // 書き換えられた分は照合で見つけて読み直す
+        assertThat(reader.readAll()).containsExactly("10", "2", "3");
+    }
+
+    private void append(String text) throws IOException {
+        Files.writeString(file, text, StandardOpenOption.APPEND);
+    }
+}
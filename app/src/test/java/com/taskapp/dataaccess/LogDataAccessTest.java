@@ -11,13 +11,21 @@ import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import com.taskapp.model.CycleTimeReport;
+import com.taskapp.model.DailyActivity;
 import com.taskapp.model.Log;
+import com.taskapp.model.RankingEntry;
+import com.taskapp.model.TaskState;
 
 public class LogDataAccessTest {
     private static final String TEST_FILE_PATH = "src/test/resources/test_logs.csv";
@@ -41,10 +49,15 @@ public class LogDataAccessTest {
 
     @AfterEach
     public void tearDown() throws IOException {
+        // 削除の記録を先に取り除き、バックグラウンドの圧縮が戻したファイルを書き直さないようにする
+        if (logDataAccess != null) {
+            logDataAccess.compact();
+        }
         Path originalFile = Paths.get(TEST_FILE_PATH);
         Path backupFile = Paths.get(BACKUP_FILE_PATH);
         Files.copy(backupFile, originalFile, StandardCopyOption.REPLACE_EXISTING);
         Files.delete(backupFile);
+        Files.deleteIfExists(Paths.get(TEST_FILE_PATH + ".del"));
     }
 
     @Tag("Q3")
@@ -69,7 +82,7 @@ public class LogDataAccessTest {
 
     @Tag("Q5")
     @Test
-    public void testDeleteByTaskCode() {
+    public void testDeleteByTaskCode() throws IOException {
         Log log1 = new Log(1, 1, 1, LocalDate.now());
         Log log2 = new Log(2, 2, 2, LocalDate.now());
         Log log3 = new Log(3, 3, 3, LocalDate.now());
@@ -78,12 +91,40 @@ public class LogDataAccessTest {
         logDataAccess.save(log2);
         logDataAccess.save(log3);
 
-        logDataAccess.deleteByTaskCode(2);
+        Path tombstoneFile = Paths.get(TEST_FILE_PATH + ".del");
+        // ロックを持っている間はバックグラウンドの圧縮が待つため、削除の記録だけが残っている状態を確認できる
+        try (CsvFileLock.Handle lock = CsvFileLock.forFile(TEST_FILE_PATH).exclusive()) {
+            logDataAccess.deleteByTaskCode(2);
+
+            // 削除済みとして記録し、CSVはまだ書き直さない
+            assertThat(Files.readAllLines(tombstoneFile)).containsExactly("2");
+            assertThat(logDataAccess.findAll()).doesNotContain(log2);
+            assertThat(logDataAccess.isDeletedTaskCode(2)).isTrue();
+            assertThat(readLogsFromFile(TEST_FILE_PATH)).contains(log2);
+        }
+
+        logDataAccess.compact();
 
         List<Log> logs = readLogsFromFile(TEST_FILE_PATH);
 
         assertThat(logs).hasSize(8);
         assertThat(logs).doesNotContain(log2);
+        assertThat(tombstoneFile).doesNotExist();
+    }
+
+    @Test
+    public void testIsDeletedTaskCode() throws IOException {
+        try (CsvFileLock.Handle lock = CsvFileLock.forFile(TEST_FILE_PATH).exclusive()) {
+            logDataAccess.markDeletedByTaskCodes(List.of(2));
+
+            // CSVから取り除くまでは、削除したタスクのコードとして残る
+            assertThat(logDataAccess.isDeletedTaskCode(2)).isTrue();
+            assertThat(logDataAccess.isDeletedTaskCode(1)).isFalse();
+        }
+
+        logDataAccess.compact();
+
+        assertThat(logDataAccess.isDeletedTaskCode(2)).isFalse();
     }
 
     private List<Log> readLogsFromFile(String filePath) {
@@ -105,4 +146,137 @@ public class LogDataAccessTest {
         }
         return logs;
     }
+
+    @Test
+    public void testPurge() throws IOException {
+        Path summaryFile = Paths.get(TEST_FILE_PATH + ".summary");
+        try {
+            int purged = logDataAccess.purge(new LogRetentionPolicy(0, 1), LocalDate.of(2024, 2, 1));
+
+            List<Log> logs = readLogsFromFile(TEST_FILE_PATH);
+
+            assertThat(purged).isEqualTo(3);
+            assertThat(logs).hasSize(4);
+            assertThat(logDataAccess.findSummaries()).hasSize(2);
+        } finally {
+            Files.deleteIfExists(summaryFile);
+        }
+    }
+
+
+    @Test
+    public void testFindStates() {
+        Map<Integer, TaskState> states = logDataAccess.findStates(null);
+
+        assertThat(states).hasSize(4);
+        assertThat(states.get(3).getStatus()).isEqualTo(2);
+        assertThat(states.get(3).getLastChangeUserCode()).isEqualTo(2);
+        assertThat(states.get(3).getCreatedDate()).isEqualTo(LocalDate.of(2024, 1, 10));
+        assertThat(states.get(4).getLastChangeDate()).isEqualTo(LocalDate.of(2024, 1, 13));
+
+        // 2024-01-11時点の状態
+        Map<Integer, TaskState> asOf = logDataAccess.findStates(LocalDate.of(2024, 1, 11));
+
+        assertThat(asOf.get(3).getStatus()).isEqualTo(1);
+        assertThat(asOf.get(4).getStatus()).isEqualTo(0);
+    }
+
+
+    @Test
+    public void testAnalyzeCycleTimes() {
+        CycleTimeReport report = logDataAccess.analyzeCycleTimes();
+
+        // タスク3は1日で着手・2日で完了、タスク4は3日で着手
+        assertThat(report.getToStart().getCount()).isEqualTo(2);
+        assertThat(report.getToStart().percentile(0.5)).isEqualTo(1);
+        assertThat(report.getToStart().percentile(1)).isEqualTo(3);
+        assertThat(report.getToComplete().getCount()).isEqualTo(1);
+        assertThat(report.getToComplete().percentile(0.5)).isEqualTo(2);
+        assertThat(report.getToStartByUser()).containsOnlyKeys(2);
+        assertThat(report.getToCompleteByWeek()).containsOnlyKeys(LocalDate.of(2024, 1, 8));
+
+        // 追記されたログだけを読んで集計に加える
+        logDataAccess.save(new Log(4, 1, 2, LocalDate.of(2024, 1, 20)));
+        report = logDataAccess.analyzeCycleTimes();
+
+        assertThat(report.getToComplete().getCount()).isEqualTo(2);
+        assertThat(report.getToComplete().percentile(1)).isEqualTo(10);
+        assertThat(report.getToCompleteByUser()).containsOnlyKeys(1, 2);
+    }
+
+
+    @Test
+    public void testFindDailyActivity() throws IOException {
+        Path rollupFile = Paths.get(TEST_FILE_PATH + ".rollup");
+        try {
+            List<DailyActivity> days = logDataAccess.findDailyActivity(LocalDate.of(2024, 1, 10),
+                    LocalDate.of(2024, 1, 12));
+
+            assertThat(days).extracting(DailyActivity::getDate).containsExactly(
+                    LocalDate.of(2024, 1, 10), LocalDate.of(2024, 1, 11), LocalDate.of(2024, 1, 12));
+            assertThat(days.get(0).getCount(0)).isEqualTo(4);
+            assertThat(days.get(0).getCount(1, 0)).isEqualTo(4);
+            assertThat(days.get(1).getCount(2, 1)).isEqualTo(1);
+
+            // 保存したログはロールアップに追記される
+            logDataAccess.save(new Log(4, 1, 2, LocalDate.of(2024, 1, 12)));
+            days = logDataAccess.findDailyActivity(LocalDate.of(2024, 1, 12), LocalDate.of(2024, 1, 12));
+
+            assertThat(days.get(0).getCount(2)).isEqualTo(2);
+            assertThat(days.get(0).getCount(1, 2)).isEqualTo(1);
+        } finally {
+            Files.deleteIfExists(rollupFile);
+        }
+    }
+
+    @Test
+    public void testFindDailyActivityWithSharedLock() throws Exception {
+        Path rollupFile = Paths.get(TEST_FILE_PATH + ".rollup");
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            logDataAccess.findDailyActivity(LocalDate.of(2024, 1, 10), LocalDate.of(2024, 1, 12));
+
+            // 他のスレッドがロールアップを読んでいる間も、反映済みであれば待たずに読める
+            CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> {
+                try (CsvFileLock.Handle lock = CsvFileLock.forFile(rollupFile.toString()).shared()) {
+                    locked.countDown();
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (IOException | InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            assertThat(locked.await(10, TimeUnit.SECONDS)).isTrue();
+
+            List<DailyActivity> days = CompletableFuture
+                    .supplyAsync(() -> logDataAccess.findDailyActivity(LocalDate.of(2024, 1, 10),
+                            LocalDate.of(2024, 1, 12)))
+                    .get(5, TimeUnit.SECONDS);
+            assertThat(days.get(0).getCount(0)).isEqualTo(4);
+
+            release.countDown();
+            reader.get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            Files.deleteIfExists(rollupFile);
+        }
+    }
+
+
+    @Test
+    public void testFindTopChangedTasks() {
+        List<RankingEntry> tasks = logDataAccess.findTopChangedTasks(2, null, null);
+
+        assertThat(tasks).extracting(RankingEntry::getCode).containsExactly(3, 4);
+        assertThat(tasks).extracting(RankingEntry::getCount).containsExactly(3L, 2L);
+
+        List<RankingEntry> users = logDataAccess.findTopChangeUsers(5, LocalDate.of(2024, 1, 11), null);
+
+        assertThat(users).extracting(RankingEntry::getCode).containsExactly(2);
+        assertThat(users.get(0).getCount()).isEqualTo(3);
+
+        // 集計した数より大きな件数を指定しても、集計した分だけを返す
+        assertThat(logDataAccess.findTopChangedTasks(Integer.MAX_VALUE, null, null))
+                .extracting(RankingEntry::getCode).startsWith(3, 4).doesNotHaveDuplicates();
+    }
 }
\ No newline at end of file
@@ -5,10 +5,14 @@ import static org.assertj.core.api.Assertions.*;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -17,6 +21,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 
+import com.taskapp.exception.AppException;
 import com.taskapp.model.Task;
 import com.taskapp.model.User;
 
@@ -45,10 +50,15 @@ public class TaskDataAccessTest {
 
     @AfterEach
     public void tearDown() throws IOException {
+        // 削除の記録を先に取り除き、バックグラウンドの圧縮が戻したファイルを書き直さないようにする
+        if (taskDataAccess != null) {
+            taskDataAccess.compact();
+        }
         Path originalFile = Paths.get(TEST_FILE_PATH);
         Path backupFile = Paths.get(BACKUP_FILE_PATH);
         Files.copy(backupFile, originalFile, StandardCopyOption.REPLACE_EXISTING);
         Files.delete(backupFile);
+        Files.deleteIfExists(Paths.get(TEST_FILE_PATH + ".del"));
     }
 
     @Tag("Q3")
@@ -109,9 +119,27 @@ public class TaskDataAccessTest {
         assertThat(tasks).contains(updatedTask);
     }
 
+    @Test
+    public void testUpdateReplacesFile() throws IOException {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+        String before = Files.readString(Paths.get(TEST_FILE_PATH));
+
+        try (FileChannel opened = FileChannel.open(Paths.get(TEST_FILE_PATH), StandardOpenOption.READ)) {
+            taskDataAccess.update(new Task(2, "Updated Task 2", 1, repUser));
+
+            // 書き直しは別のファイルに書き出してから置き換えるため、開いていたファイルの内容は切り詰められない
+            ByteBuffer buffer = ByteBuffer.allocate((int) opened.size());
+            opened.read(buffer, 0);
+            assertThat(new String(buffer.array(), StandardCharsets.UTF_8)).isEqualTo(before);
+        }
+
+        assertThat(readTasksFromFile(TEST_FILE_PATH)).extracting(Task::getName).contains("Updated Task 2");
+        assertThat(Paths.get(TEST_FILE_PATH + ".tmp")).doesNotExist();
+    }
+
     @Tag("Q5")
     @Test
-    public void testDelete() {
+    public void testDelete() throws IOException {
         User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
         Task task1 = new Task(1, "Task 1", 1, repUser);
         Task task2 = new Task(2, "Task 2", 2, repUser);
@@ -121,12 +149,24 @@ public class TaskDataAccessTest {
         taskDataAccess.save(task2);
         taskDataAccess.save(task3);
 
-        taskDataAccess.delete(2);
+        Path tombstoneFile = Paths.get(TEST_FILE_PATH + ".del");
+        // ロックを持っている間はバックグラウンドの圧縮が待つため、削除の記録だけが残っている状態を確認できる
+        try (CsvFileLock.Handle lock = CsvFileLock.forFile(TEST_FILE_PATH).exclusive()) {
+            taskDataAccess.delete(2);
+
+            // 削除済みとして記録し、CSVはまだ書き直さない
+            assertThat(Files.readAllLines(tombstoneFile)).containsExactly("2");
+            assertThat(taskDataAccess.findAll()).doesNotContain(task2);
+            assertThat(readTasksFromFile(TEST_FILE_PATH)).hasSize(7);
+        }
+
+        taskDataAccess.compact();
 
         List<Task> tasks = readTasksFromFile(TEST_FILE_PATH);
 
         assertThat(tasks).hasSize(5);
         assertThat(tasks).doesNotContain(task2);
+        assertThat(tombstoneFile).doesNotExist();
     }
 
     private List<Task> readTasksFromFile(String filePath) {
@@ -149,4 +189,321 @@ public class TaskDataAccessTest {
         }
         return tasks;
     }
+
+    @Test
+    public void testExistsByCodeAndNextCode() throws IOException, AppException {
+        Path sequenceFile = Paths.get(TEST_FILE_PATH + ".seq");
+        try {
+            assertThat(taskDataAccess.existsByCode(4)).isTrue();
+            assertThat(taskDataAccess.existsByCode(5)).isFalse();
+
+            int code = taskDataAccess.nextCode();
+
+            assertThat(code).isEqualTo(5);
+            assertThat(taskDataAccess.existsByCode(code)).isTrue();
+            assertThat(taskDataAccess.nextCode()).isEqualTo(6);
+        } finally {
+            Files.deleteIfExists(sequenceFile);
+        }
+    }
+
+    @Test
+    public void testNextCodeAfterMaxCode() throws IOException, AppException {
+        Path sequenceFile = Paths.get(TEST_FILE_PATH + ".seq");
+        Files.writeString(Paths.get(TEST_FILE_PATH), "\n2147483647,taskZ,0,1", StandardOpenOption.APPEND);
+        try {
+            assertThat(taskDataAccess.existsByCode(Integer.MAX_VALUE)).isTrue();
+
+            // 最大値のコードがあっても、採番できる
+            assertThat(taskDataAccess.nextCode()).isEqualTo(5);
+            assertThat(taskDataAccess.nextCode()).isEqualTo(6);
+        } finally {
+            Files.deleteIfExists(sequenceFile);
+        }
+    }
+
+    @Test
+    public void testNextCodeWhenExhausted() throws IOException {
+        Path sequenceFile = Paths.get(TEST_FILE_PATH + ".seq");
+        Files.writeString(sequenceFile, String.valueOf(Integer.MAX_VALUE));
+        try {
+            // intの最大値まで採番済みの場合は、探し続けずにエラーにする
+            assertThatThrownBy(() -> taskDataAccess.nextCode()).isInstanceOf(AppException.class);
+        } finally {
+            Files.deleteIfExists(sequenceFile);
+        }
+    }
+
+
+    @Test
+    public void testSaveInUnitOfWork() {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+        Task newTask = new Task(5, "Task test", 0, repUser);
+        LogDataAccess logDataAccess = new LogDataAccess("src/test/resources/test_logs.csv");
+
+        try (UnitOfWork work = UnitOfWork.begin(taskDataAccess, logDataAccess)) {
+            taskDataAccess.save(newTask);
+
+            // コミットするまではファイルに書き込まれない
+            assertThat(readTasksFromFile(TEST_FILE_PATH)).doesNotContain(newTask);
+            assertThat(taskDataAccess.findAll()).contains(newTask);
+            assertThat(taskDataAccess.existsByCode(5)).isTrue();
+        }
+
+        // コミットせずに閉じると破棄される
+        assertThat(taskDataAccess.findAll()).doesNotContain(newTask);
+        assertThat(readTasksFromFile(TEST_FILE_PATH)).doesNotContain(newTask);
+    }
+
+    @Test
+    public void testSaveWithDuplicateCodeAtCommit() throws IOException {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+        LogDataAccess logDataAccess = new LogDataAccess("src/test/resources/test_logs.csv");
+
+        try (UnitOfWork work = UnitOfWork.begin(taskDataAccess, logDataAccess)) {
+            assertThat(taskDataAccess.existsByCode(5)).isFalse();
+            work.expectNewCode(5);
+            taskDataAccess.save(new Task(5, "Task test", 0, repUser));
+
+            // 確認した後に、他のプロセスが同じコードを登録した
+            Files.writeString(Paths.get(TEST_FILE_PATH), "\n5,other,0,1", StandardOpenOption.APPEND);
+
+            assertThatThrownBy(work::commit).isInstanceOf(DuplicateTaskCodeException.class);
+        }
+
+        assertThat(readTasksFromFile(TEST_FILE_PATH)).filteredOn(task -> task.getCode() == 5)
+                .extracting(Task::getName).containsExactly("other");
+    }
+
+
+    @Test
+    public void testDeleteInUnitOfWork() throws IOException {
+        String logFilePath = "src/test/resources/test_logs.csv";
+        LogDataAccess logDataAccess = new LogDataAccess(logFilePath);
+        Path tombstoneFile = Paths.get(TEST_FILE_PATH + ".del");
+        Path logTombstoneFile = Paths.get(logFilePath + ".del");
+
+        // ロックを持っている間はバックグラウンドの圧縮が待つため、削除の記録だけが残っている状態を確認できる
+        try (CsvFileLock.Handle lock = CsvFileLock.forFile(TEST_FILE_PATH).exclusive();
+                CsvFileLock.Handle logLock = CsvFileLock.forFile(logFilePath).exclusive()) {
+            try {
+                assertDeleteInUnitOfWork(logDataAccess, tombstoneFile, logTombstoneFile);
+            } finally {
+                // ロックを放す前に記録を消し、バックグラウンドの圧縮にログのCSVを書き直させない
+                Files.deleteIfExists(logTombstoneFile);
+            }
+        }
+    }
+
+    private void assertDeleteInUnitOfWork(LogDataAccess logDataAccess, Path tombstoneFile, Path logTombstoneFile)
+            throws IOException {
+        try (UnitOfWork work = UnitOfWork.begin(taskDataAccess, logDataAccess)) {
+            work.expectStatus(List.of(3), 2);
+            taskDataAccess.markDeleted(List.of(3));
+            logDataAccess.markDeletedByTaskCodes(List.of(3));
+
+            // コミットするまでは記録しない
+            assertThat(tombstoneFile).doesNotExist();
+            assertThat(logTombstoneFile).doesNotExist();
+            assertThat(taskDataAccess.findAll()).extracting(Task::getCode).doesNotContain(3);
+
+            work.commit();
+        }
+
+        // タスクとログの削除の記録が、1回のコミットで書き込まれる
+        assertThat(Files.readAllLines(tombstoneFile)).containsExactly("3");
+        assertThat(Files.readAllLines(logTombstoneFile)).containsExactly("3");
+        assertThat(taskDataAccess.findAll()).extracting(Task::getCode).containsExactly(1, 2, 4);
+        assertThat(logDataAccess.findAll()).extracting(log -> log.getTaskCode()).doesNotContain(3);
+
+        // ステータスが変わっていた場合は、何も記録しない
+        try (UnitOfWork work = UnitOfWork.begin(taskDataAccess, logDataAccess)) {
+            work.expectStatus(List.of(4), 2);
+            taskDataAccess.markDeleted(List.of(4));
+            logDataAccess.markDeletedByTaskCodes(List.of(4));
+
+            assertThatThrownBy(work::commit).isInstanceOf(StaleSnapshotException.class);
+        }
+        assertThat(Files.readAllLines(tombstoneFile)).containsExactly("3");
+        assertThat(Files.readAllLines(logTombstoneFile)).containsExactly("3");
+        assertThat(taskDataAccess.findAll()).extracting(Task::getCode).containsExactly(1, 2, 4);
+    }
+
+    @Test
+    public void testSaveWithSyncDurability() {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+        Task newTask = new Task(5, "Task test", 0, repUser);
+        long before = Durability.statistics().getCount();
+
+        Durability.setMode(Durability.Mode.SYNC);
+        try {
+            taskDataAccess.save(newTask);
+        } finally {
+            Durability.setMode(Durability.Mode.NONE);
+        }
+
+        assertThat(Durability.statistics().getCount()).isGreaterThan(before);
+        assertThat(readTasksFromFile(TEST_FILE_PATH)).contains(newTask);
+    }
+
+    @Test
+    public void testCompactWithSyncDurability() throws IOException {
+        long before;
+        // ロックを持っている間はバックグラウンドの圧縮が待つため、ここで圧縮する
+        try (CsvFileLock.Handle lock = CsvFileLock.forFile(TEST_FILE_PATH).exclusive()) {
+            taskDataAccess.markDeleted(List.of(2));
+            before = Durability.statistics().getCount();
+
+            Durability.setMode(Durability.Mode.SYNC);
+            try {
+                taskDataAccess.compact();
+            } finally {
+                Durability.setMode(Durability.Mode.NONE);
+            }
+        }
+
+        // 置き換える前の一時ファイルと、置き換えた後のディレクトリを同期する
+        assertThat(Durability.statistics().getCount()).isGreaterThanOrEqualTo(before + 2);
+        assertThat(readTasksFromFile(TEST_FILE_PATH)).extracting(Task::getCode).doesNotContain(2);
+        assertThat(Paths.get(TEST_FILE_PATH + ".tmp")).doesNotExist();
+    }
+
+
+    @Test
+    public void testFindAllAfterExternalWrite() throws IOException {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+        Task newTask = new Task(5, "Task test", 0, repUser);
+        List<Task> before = taskDataAccess.findAll();
+
+        // 他のプロセスによる書き込み
+        Files.writeString(Paths.get(TEST_FILE_PATH), "\n5,Task test,0,1", StandardOpenOption.APPEND);
+
+        assertThat(before).doesNotContain(newTask);
+        assertThat(taskDataAccess.findAll()).contains(newTask);
+    }
+
+
+    @Test
+    public void testCountByUserAndStatus() {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+        TaskCounts before = taskDataAccess.countByUserAndStatus();
+
+        taskDataAccess.save(new Task(5, "Task test", 0, repUser));
+        taskDataAccess.update(new Task(5, "Task test", 1, repUser));
+
+        TaskCounts after = taskDataAccess.countByUserAndStatus();
+        assertThat(after.get(1, 0)).isEqualTo(before.get(1, 0));
+        assertThat(after.get(1, 1)).isEqualTo(before.get(1, 1) + 1);
+
+        // 数え直しても同じ結果になる
+        TaskCounts rebuilt = taskDataAccess.rebuildCounts();
+        assertThat(rebuilt.getUserCodes()).isEqualTo(after.getUserCodes());
+        for (int userCode : rebuilt.getUserCodes()) {
+            for (int status = 0; status < 3; status++) {
+                assertThat(rebuilt.get(userCode, status)).isEqualTo(after.get(userCode, status));
+            }
+        }
+    }
+
+    @Test
+    public void testCountByUserAndStatusWithUnknownRepUser() throws IOException {
+        // ユーザーのCSVにない担当ユーザーの行が含まれている
+        Files.writeString(Paths.get(TEST_FILE_PATH), "\n5,taskE,1,99", StandardOpenOption.APPEND);
+
+        TaskCounts counts = taskDataAccess.rebuildCounts();
+
+        assertThat(counts.get(TaskCounts.UNKNOWN_USER, 1)).isEqualTo(1);
+        assertThat(counts.get(2, 1)).isEqualTo(1);
+        assertThat(counts.total(1)).isEqualTo(2);
+        assertThat(taskDataAccess.countByUserAndStatus().getUserCodes()).containsExactly(TaskCounts.UNKNOWN_USER, 1, 2);
+    }
+
+
+    @Test
+    public void testSearchByName() {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+
+        assertThat(taskDataAccess.searchByName("TASK", 10)).extracting(Task::getCode).containsExactly(1, 2, 3, 4);
+        assertThat(taskDataAccess.searchByName("kC", 10)).extracting(Task::getCode).containsExactly(3);
+        assertThat(taskDataAccess.searchByName("task", 2)).hasSize(2);
+
+        // 保存・更新・削除した内容が索引に反映される
+        taskDataAccess.save(new Task(5, "買い物リスト", 0, repUser));
+        taskDataAccess.update(new Task(1, "会議の準備", 0, repUser));
+        taskDataAccess.delete(2);
+
+        assertThat(taskDataAccess.searchByName("物リ", 10)).extracting(Task::getCode).containsExactly(5);
+        assertThat(taskDataAccess.searchByName("task", 10)).extracting(Task::getCode).containsExactly(3, 4);
+        assertThat(taskDataAccess.searchByName("準備", 10)).extracting(Task::getCode).containsExactly(1);
+    }
+
+    @Test
+    public void testFindByCodeForMissingCode() {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+
+        assertThat(taskDataAccess.findByCode(999)).isNull();
+
+        // 保存した後は見つかり、削除した後は見つからない
+        taskDataAccess.save(new Task(999, "新しいタスク", 0, repUser));
+        assertThat(taskDataAccess.findByCode(999)).isNotNull();
+
+        taskDataAccess.delete(999);
+        assertThat(taskDataAccess.findByCode(999)).isNull();
+    }
+
+    @Test
+    public void testFindSnapshot() {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+
+        TaskSnapshot displayed = taskDataAccess.findSnapshot();
+        assertThat(taskDataAccess.isCurrent(displayed)).isTrue();
+        assertThat(displayed.find(2).getName()).isEqualTo(taskDataAccess.findByCode(2).getName());
+        assertThat(displayed.find(999)).isNull();
+
+        // 書き込んだ後は、表示した版は最新ではなくなる
+        taskDataAccess.update(new Task(2, "更新したタスク", 1, repUser));
+        assertThat(taskDataAccess.isCurrent(displayed)).isFalse();
+        assertThat(taskDataAccess.isCurrent(taskDataAccess.findSnapshot())).isTrue();
+    }
+
+    @Test
+    public void testSortedSnapshot() {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+
+        assertThat(taskDataAccess.findSnapshot().sorted(TaskOrder.STATUS, 0, 10))
+                .extracting(Task::getCode).containsExactly(1, 2, 4, 3);
+
+        // 登録・更新・削除した後も、並べ替えの結果に反映される
+        taskDataAccess.save(new Task(5, "taskE", 1, repUser));
+        taskDataAccess.update(new Task(1, "taskA", 2, repUser));
+        taskDataAccess.delete(3);
+
+        TaskSnapshot taskSnapshot = taskDataAccess.findSnapshot();
+        assertThat(taskSnapshot.sorted(TaskOrder.STATUS, 0, 10)).extracting(Task::getCode).containsExactly(2, 4, 5, 1);
+        assertThat(taskSnapshot.sorted(TaskOrder.REP_USER_NAME, 0, 10)).extracting(Task::getCode)
+                .containsExactly(1, 5, 2, 4);
+        assertThat(taskSnapshot.sorted(TaskOrder.CODE, 1, 2)).extracting(Task::getCode).containsExactly(2, 4);
+    }
+
+    @Test
+    public void testUpdateWithWriteCoalescing() {
+        User repUser = new User(1, "鈴木一郎", "test1@example.com", "password1");
+
+        WriteCoalescing.setMaxDelayMillis(60_000);
+        try {
+            taskDataAccess.update(new Task(1, "taskA", 1, repUser));
+            taskDataAccess.update(new Task(1, "taskA", 2, repUser));
+
+            // 書き込むまでは版にだけ反映する
+            assertThat(taskDataAccess.findByCode(1).getStatus()).isEqualTo(2);
+            assertThat(readTasksFromFile(TEST_FILE_PATH)).filteredOn(task -> task.getCode() == 1)
+                    .extracting(Task::getStatus).containsExactly(0);
+        } finally {
+            WriteCoalescing.setMaxDelayMillis(0);
+            taskDataAccess.flush();
+        }
+
+        assertThat(readTasksFromFile(TEST_FILE_PATH)).filteredOn(task -> task.getCode() == 1)
+                .extracting(Task::getStatus).containsExactly(2);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package com.taskapp.dataaccess;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.taskapp.model.Log;
+import com.taskapp.model.TaskState;
+
+public class TaskStateReplayTest {
+    @Test
+    public void testReplayAsOfUsesDatedCheckpoint(@TempDir Path dir) throws IOException {
+        Path logFile = dir.resolve("logs.csv");
+        Path checkpointFile = dir.resolve("logs.csv.checkpoint");
+        Files.writeString(logFile, "Task_Code,Change_User_Code,Status,Change_Date"
+                + "\n1,1,0,2024-01-10\n2,1,0,2024-01-10");
+        IncrementalCsvReader<Log> reader = new IncrementalCsvReader<>(logFile, TaskStateReplayTest::parse, false);
+        TaskStateReplay replay = new TaskStateReplay(checkpointFile, 2);
+
+        reader.refresh();
+        replay.replay(reader, List.of(), null);
+
+        Files.writeString(logFile, "\n1,2,1,2024-01-11\n2,2,1,2024-01-11", StandardOpenOption.APPEND);
+        reader.refresh();
+        replay.replay(reader, List.of(), null);
+
+        Files.writeString(logFile, "\n1,2,2,2024-01-12", StandardOpenOption.APPEND);
+        reader.refresh();
+
+        // 日付ごとのチェックポイントが残る
+        assertThat(Files.readAllLines(checkpointFile)).filteredOn(line -> line.split(",").length == 7)
+                .extracting(line -> line.split(",")[0]).containsExactly("Rows", "2", "4");
+
+        // 過去の日を指定しても、その日までのチェックポイントから正しく求める
+        Map<Integer, TaskState> asOf = replay.replay(reader, List.of(), LocalDate.of(2024, 1, 11));
+        assertThat(asOf.get(1).getStatus()).isEqualTo(1);
+        assertThat(asOf.get(2).getStatus()).isEqualTo(1);
+
+        asOf = replay.replay(reader, List.of(), LocalDate.of(2024, 1, 10));
+        assertThat(asOf.get(1).getStatus()).isEqualTo(0);
+
+        assertThat(replay.replay(reader, List.of(), null).get(1).getStatus()).isEqualTo(2);
+
+        // 別のインスタンスでも、保存したチェックポイントを読み込んで使える
+        Map<Integer, TaskState> reloaded = new TaskStateReplay(checkpointFile, 2)
+                .replay(reader, List.of(), LocalDate.of(2024, 1, 11));
+        assertThat(reloaded.get(1).getStatus()).isEqualTo(1);
+        assertThat(reloaded.get(1).getCreatedDate()).isEqualTo(LocalDate.of(2024, 1, 10));
+    }
+
+    private static Log parse(String line) {
+        String[] values = line.split(",");
+        return new Log(Integer.parseInt(values[0]), Integer.parseInt(values[1]), Integer.parseInt(values[2]),
+                LocalDate.parse(values[3]));
+    }
+}
@@ -2,21 +2,37 @@ package com.taskapp.dataaccess;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import com.taskapp.model.User;
 
 public class UserDataAccessTest {
     private static final String TEST_FILE_PATH = "src/test/resources/test_users.csv";
+    private static final String BACKUP_FILE_PATH = "src/test/resources/test_users.csv.bak";
     private UserDataAccess userDataAccess;
 
     @BeforeEach
-    public void setUp() {
+    public void setUp() throws IOException {
+        // 平文のパスワードでログインするとハッシュに書き換えるため、元のファイルを残しておく
+        Files.copy(Paths.get(TEST_FILE_PATH), Paths.get(BACKUP_FILE_PATH), StandardCopyOption.REPLACE_EXISTING);
         userDataAccess = new UserDataAccess(TEST_FILE_PATH);
     }
 
+    @AfterEach
+    public void tearDown() throws IOException {
+        Files.move(Paths.get(BACKUP_FILE_PATH), Paths.get(TEST_FILE_PATH), StandardCopyOption.REPLACE_EXISTING);
+    }
+
     @Tag("Q1")
     @Test
     public void testFindByEmailAndPassword() {
@@ -35,4 +51,73 @@ public class UserDataAccessTest {
 
         assertThat(actualUser).isEqualToComparingFieldByField(expectedUser);
     }
-}
+
+    @Test
+    public void testFindByCodeForMissingCode() {
+        assertThat(userDataAccess.findByCode(999)).isNull();
+    }
+
+    @Test
+    public void testHashPasswords(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("users.csv");
+        Files.copy(Paths.get(TEST_FILE_PATH), file);
+        UserDataAccess hashedDataAccess = new UserDataAccess(file.toString());
+
+        assertThat(hashedDataAccess.hashPasswords()).isEqualTo(2);
+        assertThat(hashedDataAccess.hashPasswords()).isZero();
+        assertThat(Files.readString(file)).doesNotContain("password1").contains("pbkdf2-sha256$");
+
+        // ハッシュ化した後も同じパスワードでログインでき、異なるパスワードではログインできない
+        User actualUser = new UserDataAccess(file.toString()).findByEmailAndPassword("test1@example.com", "password1");
+        assertThat(actualUser.getCode()).isEqualTo(1);
+        assertThat(hashedDataAccess.findByEmailAndPassword("test1@example.com", "password2")).isNull();
+    }
+
+    @Test
+    public void testFindByEmailAndPasswordRehashesPlaintext(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("users.csv");
+        Files.copy(Paths.get(TEST_FILE_PATH), file);
+        UserDataAccess plaintextDataAccess = new UserDataAccess(file.toString());
+
+        // 間違ったパスワードでは書き換えない
+        assertThat(plaintextDataAccess.findByEmailAndPassword("test1@example.com", "password2")).isNull();
+        assertThat(Files.readString(file)).contains("password1");
+
+        // 平文のパスワードでログインすると、そのユーザーのパスワードだけをハッシュに書き換える
+        assertThat(plaintextDataAccess.findByEmailAndPassword("test1@example.com", "password1").getCode())
+                .isEqualTo(1);
+        assertThat(Files.readString(file)).doesNotContain("password1").contains("password2", "pbkdf2-sha256$");
+
+        // 書き換えた後も同じパスワードでログインできる
+        assertThat(plaintextDataAccess.findByEmailAndPassword("test1@example.com", "password1").getCode())
+                .isEqualTo(1);
+        assertThat(plaintextDataAccess.hashPasswords()).isEqualTo(1);
+    }
+
+    @Test
+    public void testFindByEmailAndPasswordAfterVerifiedLogin(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("users.csv");
+        Files.copy(Paths.get(TEST_FILE_PATH), file);
+        UserDataAccess sharedDataAccess = new UserDataAccess(file.toString());
+        sharedDataAccess.hashPasswords();
+
+        // 照合を省くのは、同じセッションで同じパスワードが入力された場合だけ
+        try (LoginCache session = LoginCache.begin()) {
+            assertThat(sharedDataAccess.findByEmailAndPassword("test1@example.com", "password1")).isNotNull();
+            assertThat(session.matches("test1@example.com", sharedDataAccess.findByCode(1).getPassword(),
+                    "password1")).isTrue();
+            assertThat(sharedDataAccess.findByEmailAndPassword("test1@example.com", "password2")).isNull();
+            assertThat(sharedDataAccess.findByEmailAndPassword("test1@example.com", "")).isNull();
+            assertThat(sharedDataAccess.findByEmailAndPassword("test1@example.com", "password1")).isNotNull();
+
+            // 他のセッションの照合結果は使わない
+            try (LoginCache other = LoginCache.begin()) {
+                assertThat(other.matches("test1@example.com", sharedDataAccess.findByCode(1).getPassword(),
+                        "password1")).isFalse();
+                assertThat(sharedDataAccess.findByEmailAndPassword("test1@example.com", "password1")).isNotNull();
+            }
+            assertThat(LoginCache.current()).isSameAs(session);
+        }
+        assertThat(LoginCache.current()).isNull();
+    }
+}
\ No newline at end of file
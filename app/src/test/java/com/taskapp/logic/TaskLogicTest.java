@@ -6,6 +6,10 @@ import static org.mockito.Mockito.*;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Tag;
@@ -15,10 +19,13 @@ import org.mockito.MockitoAnnotations;
 
 import com.taskapp.dataaccess.LogDataAccess;
 import com.taskapp.dataaccess.TaskDataAccess;
+import com.taskapp.dataaccess.TaskSnapshot;
 import com.taskapp.dataaccess.UserDataAccess;
 import com.taskapp.exception.AppException;
 import com.taskapp.model.Log;
 import com.taskapp.model.Task;
+import com.taskapp.model.TaskCreated;
+import com.taskapp.model.TaskEvent;
 import com.taskapp.model.User;
 
 public class TaskLogicTest {
@@ -123,4 +130,150 @@ public class TaskLogicTest {
         verify(taskDataAccess).delete(code);
         verify(logDataAccess).deleteByTaskCode(code);
     }
+
+    @Test
+    public void testSaveAsync() throws Exception {
+        User loginUser = new User(1, "John", "", "");
+        User repUser = new User(2, "Alice", "", "");
+        when(userDataAccess.findByCode(2)).thenReturn(repUser);
+
+        taskLogic.saveAsync(1, "Task 1", 2, loginUser).get();
+
+        verify(taskDataAccess).save(any(Task.class));
+        verify(logDataAccess).save(any(Log.class));
+    }
+
+    @Test
+    public void testChangeStatusAsyncWithUnknownCode() {
+        User loginUser = new User(1, "John", "", "");
+
+        assertThatThrownBy(() -> taskLogic.changeStatusAsync(99, 1, loginUser).get())
+                .hasCauseInstanceOf(AppException.class);
+    }
+
+    @Test
+    public void testSavePublishesTaskCreated() throws Exception {
+        User loginUser = new User(1, "John", "", "");
+        when(userDataAccess.findByCode(2)).thenReturn(new User(2, "Alice", "", ""));
+
+        List<TaskEvent> events = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        taskLogic.getEventPublisher().subscribe(new TaskEventSubscriber() {
+            @Override
+            protected void onEvent(TaskEvent event) {
+                events.add(event);
+                latch.countDown();
+            }
+        });
+
+        taskLogic.save(1, "Task 1", 2, loginUser);
+
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(events.get(0)).isInstanceOf(TaskCreated.class);
+        assertThat(events.get(0).getTask().getCode()).isEqualTo(1);
+    }
+
+    @Test
+    public void testSubscriberResubscribesAfterException() throws Exception {
+        User loginUser = new User(1, "John", "", "");
+        when(userDataAccess.findByCode(2)).thenReturn(new User(2, "Alice", "", ""));
+
+        List<TaskEvent> events = new CopyOnWriteArrayList<>();
+        CountDownLatch subscribed = new CountDownLatch(2);
+        CountDownLatch received = new CountDownLatch(1);
+        new TaskEventSubscriber() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                super.onSubscribe(subscription);
+                subscribed.countDown();
+            }
+
+            @Override
+            protected void onEvent(TaskEvent event) {
+                if (event.getTask().getCode() == 1) {
+                    throw new IllegalStateException("テスト用の例外");
+                }
+                events.add(event);
+                received.countDown();
+            }
+        }.subscribeTo(taskLogic.getEventPublisher());
+
+        taskLogic.save(1, "Task 1", 2, loginUser);
+
+        // 例外で購読が解除された後、購読し直す
+        assertThat(subscribed.await(5, TimeUnit.SECONDS)).isTrue();
+
+        taskLogic.save(2, "Task 2", 2, loginUser);
+
+        assertThat(received.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(events).extracting(event -> event.getTask().getCode()).containsExactly(2);
+    }
+
+    @Test
+    public void testSaveWithDuplicateCode() {
+        User loginUser = new User(1, "John", "", "");
+        when(taskDataAccess.existsByCode(1)).thenReturn(true);
+
+        assertThatThrownBy(() -> taskLogic.save(1, "Task 1", 2, loginUser))
+                .isInstanceOf(AppException.class);
+
+        verify(taskDataAccess, never()).save(any(Task.class));
+    }
+
+    @Test
+    public void testSaveWithDeletedTaskCode() {
+        User loginUser = new User(1, "John", "", "");
+        when(taskDataAccess.existsByCode(1)).thenReturn(false);
+        when(logDataAccess.isDeletedTaskCode(1)).thenReturn(true);
+
+        // 削除したタスクのログがまだ残っているコードは使えない
+        assertThatThrownBy(() -> taskLogic.save(1, "Task 1", 2, loginUser))
+                .isInstanceOf(AppException.class);
+
+        verify(taskDataAccess, never()).save(any(Task.class));
+    }
+
+    @Test
+    public void testDeleteCompleted() {
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Task(1, "Task 1", 1, new User(2, "Alice", "", "")));
+        tasks.add(new Task(2, "Task 2", 2, new User(2, "Alice", "", "")));
+        when(taskDataAccess.findAll()).thenReturn(tasks);
+
+        int deleted = taskLogic.deleteCompleted();
+
+        assertThat(deleted).isEqualTo(1);
+        verify(taskDataAccess).markDeleted(List.of(2));
+        verify(logDataAccess).markDeletedByTaskCodes(List.of(2));
+    }
+
+    @Test
+    public void testChangeStatusWithDisplayedSnapshot() throws AppException {
+        User loginUser = new User(1, "John", "", "");
+        Task task = new Task(1, "Task 1", 0, new User(2, "Alice", "", ""));
+        TaskSnapshot displayed = mock(TaskSnapshot.class);
+        when(displayed.find(1)).thenReturn(task);
+        when(taskDataAccess.isCurrent(displayed)).thenReturn(true);
+
+        taskLogic.changeStatus(1, 1, loginUser, displayed);
+
+        // 表示した版が最新であれば、タスクを探し直さない
+        verify(taskDataAccess, never()).findByCode(anyInt());
+        verify(taskDataAccess).update(any(Task.class));
+        verify(logDataAccess).save(any(Log.class));
+    }
+
+    @Test
+    public void testChangeStatusWithStaleSnapshot() throws AppException {
+        User loginUser = new User(1, "John", "", "");
+        TaskSnapshot displayed = mock(TaskSnapshot.class);
+        when(taskDataAccess.isCurrent(displayed)).thenReturn(false);
+        when(taskDataAccess.findByCode(1)).thenReturn(new Task(1, "Task 1", 1, new User(2, "Alice", "", "")));
+
+        // 表示した後に着手中になっていた場合は、最新のタスクで確かめる
+        assertThatThrownBy(() -> taskLogic.changeStatus(1, 1, loginUser, displayed))
+                .isInstanceOf(AppException.class);
+        verify(displayed, never()).find(anyInt());
+        verify(taskDataAccess, never()).update(any(Task.class));
+    }
 }
\ No newline at end of file
@@ -48,4 +48,13 @@ public class UserLogicTest {
         assertThat(result).isEqualToComparingFieldByField(user);
     }
 
+    @Test
+    public void testLoginAsync() throws Exception {
+        User user = new User(1, "John", "john@example.com", "password");
+        when(userDataAccess.findByEmailAndPassword("john@example.com", "password")).thenReturn(user);
+
+        User result = userLogic.loginAsync("john@example.com", "password").get();
+
+        assertThat(result).isEqualToComparingFieldByField(user);
+    }
 }
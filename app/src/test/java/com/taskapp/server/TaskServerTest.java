@@ -0,0 +1,200 @@
+package com.taskapp.server;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.taskapp.logic.TaskLogic;
+import com.taskapp.logic.UserLogic;
+import com.taskapp.model.User;
+
+public class TaskServerTest {
+    @Mock
+    private UserLogic userLogic;
+
+    @Mock
+    private TaskLogic taskLogic;
+
+    private TaskServer server;
+
+    private CompletableFuture<Void> serving;
+
+    private final PrintStream originalOut = System.out;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        when(userLogic.login("alice@example.com", "password1")).thenReturn(new User(1, "Alice", "", ""));
+        when(userLogic.login("bob@example.com", "password2")).thenReturn(new User(2, "Bob", "", ""));
+
+        server = new TaskServer(0, userLogic, taskLogic);
+        serving = CompletableFuture.runAsync(server::serve);
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        stop();
+    }
+
+    @Test
+    public void testOutputIsRoutedToEachSession() throws Exception {
+        // ロジックが標準出力に出したメッセージは、コマンドを送ってきた接続に返る
+        doAnswer(invocation -> {
+            User loginUser = invocation.getArgument(0);
+            System.out.println("タスク一覧：" + loginUser.getName());
+            return null;
+        }).when(taskLogic).showAll(any());
+
+        try (Client alice = new Client(); Client bob = new Client()) {
+            assertThat(alice.send("login alice@example.com password1")).containsExactly("OK");
+            assertThat(bob.send("login bob@example.com password2")).containsExactly("OK");
+
+            assertThat(alice.send("list")).containsExactly("タスク一覧：Alice", "OK");
+            assertThat(bob.send("list")).containsExactly("タスク一覧：Bob", "OK");
+            assertThat(alice.send("quit")).containsExactly("OK");
+        }
+    }
+
+    @Test
+    public void testErrorReplies() throws Exception {
+        doThrow(new IllegalStateException("壊れた行があります")).when(taskLogic).showAll(any());
+
+        try (Client client = new Client()) {
+            assertThat(client.send("list").get(0)).startsWith("ERROR ");
+            assertThat(client.send("login alice@example.com password1")).containsExactly("OK");
+
+            // 想定外の例外も、そのコマンドだけをエラーとして返して接続を続ける
+            assertThat(client.send("list").get(0))
+                    .startsWith("ERROR ").contains("壊れた行があります");
+            assertThat(client.send("status 99999999999 1").get(0)).startsWith("ERROR ");
+            assertThat(client.send("unknown").get(0)).startsWith("ERROR ");
+            assertThat(client.send("summary")).containsExactly("OK");
+        }
+    }
+
+    @Test
+    public void testWriteCommandWaitsForReadCommands() throws Exception {
+        CountDownLatch reading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            reading.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(taskLogic).showAll(any());
+
+        try (Client reader = new Client(); Client other = new Client(); Client writer = new Client()) {
+            reader.send("login alice@example.com password1");
+            other.send("login alice@example.com password1");
+            writer.send("login bob@example.com password2");
+
+            CompletableFuture<List<String>> list = CompletableFuture.supplyAsync(() -> reader.send("list"));
+            assertThat(reading.await(10, TimeUnit.SECONDS)).isTrue();
+
+            // 読み込みのコマンドは同時に実行できる
+            assertThat(other.send("summary")).containsExactly("OK");
+
+            // 書き込みのコマンドは、実行中の読み込みが終わるまで待つ
+            CompletableFuture<List<String>> hash = CompletableFuture.supplyAsync(() -> writer.send("hashpasswords"));
+            verify(userLogic, after(200).never()).hashPasswords();
+
+            release.countDown();
+            assertThat(list.get(10, TimeUnit.SECONDS)).containsExactly("OK");
+            assertThat(hash.get(10, TimeUnit.SECONDS)).containsExactly("OK");
+            verify(userLogic).hashPasswords();
+        }
+    }
+
+    @Test
+    public void testIsWriteCommand() {
+        assertThat(TaskServer.isWriteCommand("add 10 2 Test Task")).isTrue();
+        assertThat(TaskServer.isWriteCommand("status 10 1")).isTrue();
+        assertThat(TaskServer.isWriteCommand("delete 10")).isTrue();
+        assertThat(TaskServer.isWriteCommand("commit")).isTrue();
+        assertThat(TaskServer.isWriteCommand("hashpasswords")).isTrue();
+        assertThat(TaskServer.isWriteCommand("summary rebuild")).isTrue();
+
+        assertThat(TaskServer.isWriteCommand("summary")).isFalse();
+        assertThat(TaskServer.isWriteCommand("list")).isFalse();
+        assertThat(TaskServer.isWriteCommand("login alice@example.com password1")).isFalse();
+    }
+
+    @Test
+    public void testServeRestoresSystemOut() throws Exception {
+        try (Client client = new Client()) {
+            assertThat(System.out).isNotSameAs(originalOut);
+        }
+
+        // 全ての接続の処理が終わったら、標準出力を元に戻す
+        stop();
+        assertThat(System.out).isSameAs(originalOut);
+    }
+
+    private void stop() throws Exception {
+        server.close();
+        serving.get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * サーバーに接続し、1行ずつコマンドを送るクライアントです。
+     */
+    private class Client implements AutoCloseable {
+        private final Socket socket;
+
+        private final BufferedReader in;
+
+        private final PrintWriter out;
+
+        Client() throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+            socket.setSoTimeout(10000);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8);
+            assertThat(in.readLine()).isEqualTo("READY");
+        }
+
+        /**
+         * コマンドを送り、OKまたはERRORの行までの出力を返します。
+         */
+        List<String> send(String command) {
+            out.println(command);
+            List<String> lines = new ArrayList<>();
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    lines.add(line);
+                    if (line.equals("OK") || line.startsWith("ERROR ")) {
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return lines;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
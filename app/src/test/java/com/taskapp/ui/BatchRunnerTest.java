@@ -0,0 +1,134 @@
+package com.taskapp.ui;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.taskapp.logic.TaskLogic;
+import com.taskapp.logic.UserLogic;
+import com.taskapp.model.User;
+
+public class BatchRunnerTest {
+    @Mock
+    private UserLogic userLogic;
+
+    @Mock
+    private TaskLogic taskLogic;
+
+    private BatchRunner batchRunner;
+
+    private final ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        batchRunner = new BatchRunner(userLogic, taskLogic);
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        User user = new User(1, "John", "john@example.com", "password");
+        when(userLogic.login("john@example.com", "password")).thenReturn(user);
+
+        String script = String.join("\n",
+                "# コメント",
+                "login john@example.com password",
+                "add 10 2 Test Task",
+                "status 10 1",
+                "filter status=1 user=2",
+                "list");
+
+        int errors = batchRunner.run(new BufferedReader(new StringReader(script)), new PrintStream(outContent));
+
+        assertThat(errors).isZero();
+        verify(taskLogic).save(10, "Test Task", 2, user);
+        verify(taskLogic).changeStatus(10, 1, user);
+        verify(taskLogic).showFiltered(user, 1, 2);
+        verify(taskLogic).showAll(user);
+    }
+
+    @Test
+    public void testRunWithoutLogin() throws Exception {
+        int errors = batchRunner.run(new BufferedReader(new StringReader("list\nunknown")),
+                new PrintStream(outContent));
+
+        assertThat(errors).isEqualTo(2);
+        assertThat(outContent.toString()).contains("1行目：", "2行目：");
+        verify(taskLogic, never()).showAll(any());
+    }
+
+    @Test
+    public void testRunWithTooLargeNumber() throws Exception {
+        User user = new User(1, "John", "john@example.com", "password");
+        when(userLogic.login("john@example.com", "password")).thenReturn(user);
+
+        String script = String.join("\n",
+                "login john@example.com password",
+                "status 99999999999 1",
+                "status 10 1");
+
+        int errors = batchRunner.run(new BufferedReader(new StringReader(script)), new PrintStream(outContent));
+
+        // intに収まらない数字はその行だけをエラーにし、続きの行を実行する
+        assertThat(errors).isEqualTo(1);
+        assertThat(outContent.toString()).contains("2行目：");
+        verify(taskLogic).changeStatus(10, 1, user);
+    }
+
+    @Test
+    public void testRunWithUnexpectedException() throws Exception {
+        User user = new User(1, "John", "john@example.com", "password");
+        when(userLogic.login("john@example.com", "password")).thenReturn(user);
+        doThrow(new IllegalStateException("壊れた行があります")).when(taskLogic).showAll(user);
+
+        String script = String.join("\n",
+                "login john@example.com password",
+                "list",
+                "status 10 1");
+
+        int errors = batchRunner.run(new BufferedReader(new StringReader(script)), new PrintStream(outContent));
+
+        // 想定外の例外もその行だけをエラーにし、続きの行を実行する
+        assertThat(errors).isEqualTo(1);
+        assertThat(outContent.toString()).contains("2行目：", "壊れた行があります");
+        verify(taskLogic).changeStatus(10, 1, user);
+    }
+
+    @Test
+    public void testRunWithBatch() throws Exception {
+        User user = new User(1, "John", "john@example.com", "password");
+        when(userLogic.login("john@example.com", "password")).thenReturn(user);
+
+        String script = String.join("\n",
+                "login john@example.com password",
+                "begin",
+                "add 10 2 Test Task",
+                "status 10 1",
+                "commit",
+                "begin",
+                "add 11 2 Test Task");
+
+        int errors = batchRunner.run(new BufferedReader(new StringReader(script)), new PrintStream(outContent));
+
+        // commitされていないバッチは破棄される
+        assertThat(errors).isEqualTo(1);
+        InOrder inOrder = inOrder(taskLogic);
+        inOrder.verify(taskLogic).beginBatch();
+        inOrder.verify(taskLogic).save(10, "Test Task", 2, user);
+        inOrder.verify(taskLogic).changeStatus(10, 1, user);
+        inOrder.verify(taskLogic).commitBatch();
+        inOrder.verify(taskLogic).beginBatch();
+        inOrder.verify(taskLogic).save(11, "Test Task", 2, user);
+        inOrder.verify(taskLogic).rollbackBatch();
+    }
+}
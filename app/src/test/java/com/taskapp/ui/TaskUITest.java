@@ -6,6 +6,7 @@ import static org.mockito.Mockito.*;
 import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
+import java.time.LocalDate;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,6 +15,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import com.taskapp.dataaccess.TaskOrder;
 import com.taskapp.logic.TaskLogic;
 import com.taskapp.logic.UserLogic;
 import com.taskapp.model.User;
@@ -118,6 +120,43 @@ public class TaskUITest {
         assertThat(outContent.toString()).contains(expectedMessage);
     }
 
+    @Test
+    public void testInputSearchInformation() throws Exception {
+        when(reader.readLine()).thenReturn("", "task");
+        when(taskLogic.showSearchResult("task", null)).thenReturn(0);
+        taskUI.inputSearchInformation();
+
+        verify(taskLogic, times(1)).showSearchResult("task", null);
+        String[] expectedMessage = {
+                "タスク名に含まれる文字列を入力してください：",
+                "検索する文字列は1文字以上10文字以内で入力してください",
+                "該当するタスクはありません"
+        };
+        assertThat(outContent.toString()).contains(expectedMessage);
+    }
+
+    @Test
+    public void testSelectReportMenu() throws Exception {
+        when(reader.readLine()).thenReturn("2", "20", "2024-01-01", "", "6");
+        taskUI.selectReportMenu();
+
+        verify(taskLogic, times(1)).showTopChangeUsers(20, LocalDate.of(2024, 1, 1), null);
+        String[] expectedMessage = {
+                "表示する件数を入力してください：",
+                "期間の最初の日を入力してください（yyyy-MM-dd、空欄の場合は指定なし）：",
+                "メニューへ戻ります"
+        };
+        assertThat(outContent.toString()).contains(expectedMessage);
+    }
+
+    @Test
+    public void testSelectOrder() throws Exception {
+        when(reader.readLine()).thenReturn("5", "3");
+
+        assertThat(taskUI.selectOrder()).isEqualTo(TaskOrder.STATUS);
+        assertThat(outContent.toString()).contains("選択肢が誤っています。1~4の中から選択してください。");
+    }
+
     @Test
     public void testIsNumeric() {
         assertThat(taskUI.isNumeric("123")).isTrue();